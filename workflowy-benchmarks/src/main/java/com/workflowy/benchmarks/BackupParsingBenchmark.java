@@ -0,0 +1,66 @@
+package com.workflowy.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.converter.StreamingBackupParser;
+import com.workflowy.data.pojo.InputItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses a synthetic backup held in memory, item by item with the {@link StreamingBackupParser} and as a whole tree
+ * of {@link InputItem}s.
+ *
+ * <p>Run with {@code java -jar workflowy-benchmarks/target/benchmarks.jar BackupParsingBenchmark -prof gc} to also
+ * see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackupParsingBenchmark {
+
+	@Param({"10000", "100000"})
+	private int nodeCount;
+
+	@Param({"BALANCED", "WIDE", "DEEP"})
+	private OutlineShape shape;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private byte[] backup;
+
+	@Setup
+	public void setUp() {
+		this.backup = this.shape.backup(this.nodeCount, 0);
+	}
+
+	@Benchmark
+	public int streaming(Blackhole blackhole) throws IOException {
+		return new StreamingBackupParser(this.objectMapper).parse(
+			new ByteArrayInputStream(this.backup),
+			(inputItem, parentId, priority) -> blackhole.consume(inputItem)
+		);
+	}
+
+	@Benchmark
+	public List<InputItem> tree() throws IOException {
+		return this.objectMapper.readValue(this.backup, new TypeReference<>() {});
+	}
+}
@@ -0,0 +1,96 @@
+package com.workflowy.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.workflowy.embedding.engine.OnnxEmbeddingEngine;
+import com.workflowy.embedding.engine.OnnxThreading;
+import com.workflowy.embedding.model.EmbeddingModel;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Embeds item names and notes with the MiniLM ONNX model from {@code workers} threads, each with its own predictor
+ * and an equal share of the cores as intra-op threads. The score is texts embedded per second, so it shows how far
+ * running inferences side by side beats giving one inference every core.
+ *
+ * <p>Downloads the model into {@code ./models} on first run. Run with
+ * {@code java -jar workflowy-benchmarks/target/benchmarks.jar EmbeddingThroughputBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class EmbeddingThroughputBenchmark {
+
+	private static final int TEXT_COUNT = 2048;
+
+	// Texts per inference
+	private static final int BATCH_SIZE = 32;
+
+	@Param({"1", "2", "4", "8", "16"})
+	private int workers;
+
+	private OnnxEmbeddingEngine engine;
+	private ExecutorService executor;
+	private MutableList<List<String>> batches;
+
+	@Setup
+	public void setUp() {
+		int intraOpThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / this.workers);
+		this.engine = new OnnxEmbeddingEngine(
+			EmbeddingModel.MINILM,
+			"./models",
+			new OnnxThreading(this.workers, intraOpThreads, 1)
+		);
+		this.executor = Executors.newFixedThreadPool(this.workers);
+
+		String[] names = WorkflowyHtmlSamples.names(TEXT_COUNT, 0);
+		String[] notes = WorkflowyHtmlSamples.notes(TEXT_COUNT, 1);
+		MutableList<String> texts = Lists.mutable.withInitialCapacity(TEXT_COUNT);
+		for (int i = 0; i < TEXT_COUNT; i++) {
+			texts.add(notes[i] == null ? names[i] : names[i] + "\n" + notes[i]);
+		}
+		this.batches = texts.chunk(BATCH_SIZE).collect((batch) -> List.copyOf(batch.toList())).toList();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.executor.shutdown();
+		this.engine.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TEXT_COUNT)
+	public int embed() throws InterruptedException, ExecutionException {
+		MutableList<Future<List<float[]>>> futures = Lists.mutable.withInitialCapacity(this.batches.size());
+		for (List<String> batch : this.batches) {
+			futures.add(this.executor.submit(() -> this.engine.generateEmbeddings(batch, false)));
+		}
+
+		int embedded = 0;
+		for (Future<List<float[]>> future : futures) {
+			embedded += future.get().size();
+		}
+		return embedded;
+	}
+}
@@ -0,0 +1,106 @@
+package com.workflowy.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.converter.ImportBaseline;
+import com.workflowy.data.converter.InputItemWalker;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.converter.extractor.ItemExtractor;
+import com.workflowy.data.converter.extractor.MirrorExtractor;
+import com.workflowy.data.converter.extractor.NodeContentExtractor;
+import com.workflowy.data.converter.extractor.NodeDateExtractor;
+import com.workflowy.data.converter.extractor.NodeMetadataExtractor;
+import com.workflowy.data.converter.extractor.NodeS3FileExtractor;
+import com.workflowy.data.converter.extractor.TagExtractor;
+import com.workflowy.data.converter.extractor.VirtualRootExtractor;
+import com.workflowy.data.pojo.InputItem;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stages a parsed synthetic backup with groups of {@link ItemExtractor}s, into an empty baseline so every node is
+ * staged. Every benchmark also pays for hashing each item, which the {@link ExtractionPipeline} always does.
+ *
+ * <p>Run with {@code java -jar workflowy-benchmarks/target/benchmarks.jar ExtractionBenchmark -prof gc} to also see
+ * allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+	private static final String USER_ID = "benchmark@example.com";
+
+	@Param({"10000", "100000"})
+	private int nodeCount;
+
+	@Param({"BALANCED", "WIDE", "DEEP"})
+	private OutlineShape shape;
+
+	private List<InputItem> outline;
+	private ImmutableList<ItemExtractor> nodeExtractors;
+	private ImmutableList<ItemExtractor> tagExtractors;
+	private ImmutableList<ItemExtractor> metadataExtractors;
+	private ImmutableList<ItemExtractor> allExtractors;
+
+	@Setup
+	public void setUp() throws IOException {
+		ObjectMapper objectMapper = new ObjectMapper();
+		this.outline = objectMapper.readValue(this.shape.backup(this.nodeCount, 0), new TypeReference<>() {});
+		this.nodeExtractors = Lists.immutable.with(new NodeContentExtractor());
+		this.tagExtractors = Lists.immutable.with(new TagExtractor());
+		this.metadataExtractors = Lists.immutable.with(
+			new NodeMetadataExtractor(objectMapper, USER_ID),
+			new MirrorExtractor(),
+			new NodeDateExtractor(),
+			new NodeS3FileExtractor(),
+			new VirtualRootExtractor()
+		);
+		this.allExtractors = ExtractionPipeline.defaultExtractors(objectMapper, USER_ID);
+	}
+
+	@Benchmark
+	public StagedImport nodes() {
+		return this.stage(this.nodeExtractors);
+	}
+
+	@Benchmark
+	public StagedImport tags() {
+		return this.stage(this.tagExtractors);
+	}
+
+	@Benchmark
+	public StagedImport metadata() {
+		return this.stage(this.metadataExtractors);
+	}
+
+	@Benchmark
+	public StagedImport all() {
+		return this.stage(this.allExtractors);
+	}
+
+	private StagedImport stage(ImmutableList<ItemExtractor> extractors) {
+		StagedImport stagedImport = new StagedImport();
+		InputItemWalker.walk(this.outline, new ExtractionPipeline(extractors, stagedImport, ImportBaseline.empty()));
+		return stagedImport;
+	}
+}
@@ -0,0 +1,61 @@
+package com.workflowy.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.workflowy.data.converter.HashtagExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the regex-based hashtag extraction with the single-pass scanner over the names and notes of 10,000 items.
+ *
+ * <p>Run with {@code java -jar workflowy-benchmarks/target/benchmarks.jar HashtagExtractorBenchmark -prof gc} to also
+ * see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashtagExtractorBenchmark {
+
+	private static final int ITEM_COUNT = 10_000;
+
+	private String[] names;
+	private String[] notes;
+	private HashtagExtractor hashtagExtractor;
+
+	@Setup
+	public void setUp() {
+		this.names = WorkflowyHtmlSamples.names(ITEM_COUNT, 1L);
+		this.notes = WorkflowyHtmlSamples.notes(ITEM_COUNT, 2L);
+		this.hashtagExtractor = new HashtagExtractor();
+	}
+
+	@Benchmark
+	public void regex(Blackhole blackhole) {
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			blackhole.consume(RegexHashtagExtractor.extractHashtags(this.names[i]));
+			if (this.notes[i] != null) {
+				blackhole.consume(RegexHashtagExtractor.extractHashtags(this.notes[i]));
+			}
+		}
+	}
+
+	@Benchmark
+	public void scanner(Blackhole blackhole) {
+		for (int i = 0; i < ITEM_COUNT; i++) {
+			blackhole.consume(this.hashtagExtractor.scan(this.names[i], this.notes[i]));
+		}
+	}
+}
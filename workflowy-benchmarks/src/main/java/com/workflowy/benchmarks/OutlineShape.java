@@ -0,0 +1,64 @@
+package com.workflowy.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+import com.workflowy.data.generator.SyntheticBackupWriter;
+import com.workflowy.data.generator.SyntheticOutlineOptions;
+
+/**
+ * Shapes of synthetic outlines for benchmark parameters, otherwise using {@link SyntheticOutlineOptions#defaults}.
+ */
+public enum OutlineShape {
+	BALANCED(16, 6.0),
+	WIDE(4, 40.0),
+	DEEP(48, 1.5);
+
+	private static final long SEED = 42L;
+	private static final LocalDate FIRST_DATE = LocalDate.parse("2024-01-01");
+
+	private final int maxDepth;
+	private final double meanFanOut;
+
+	OutlineShape(int maxDepth, double meanFanOut) {
+		this.maxDepth = maxDepth;
+		this.meanFanOut = meanFanOut;
+	}
+
+	public SyntheticOutlineOptions options(int nodeCount) {
+		SyntheticOutlineOptions defaults = SyntheticOutlineOptions.defaults(SEED, nodeCount);
+		return new SyntheticOutlineOptions(
+			defaults.seed(),
+			defaults.nodeCount(),
+			this.maxDepth,
+			this.meanFanOut,
+			defaults.completedRate(),
+			defaults.noteRate(),
+			defaults.meanNoteLength(),
+			defaults.hashtagDensity(),
+			defaults.tagCount(),
+			defaults.mirrorRate(),
+			defaults.backlinkRate(),
+			defaults.calendarRate(),
+			defaults.s3FileRate(),
+			defaults.dailyUpdateRate(),
+			defaults.dailyInsertRate(),
+			defaults.dailyDeleteRate()
+		);
+	}
+
+	/**
+	 * @return the backup of {@code day} days after the first one, in memory
+	 */
+	public byte[] backup(int nodeCount, int day) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try {
+			new SyntheticBackupWriter(this.options(nodeCount), FIRST_DATE).write(outputStream, day);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return outputStream.toByteArray();
+	}
+}
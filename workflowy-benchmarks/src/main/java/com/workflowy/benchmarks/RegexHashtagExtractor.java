@@ -0,0 +1,39 @@
+package com.workflowy.benchmarks;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * The regex-based hashtag extraction that {@link com.workflowy.data.converter.HashtagExtractor} replaced, kept as the
+ * benchmark baseline.
+ */
+public final class RegexHashtagExtractor {
+
+	private static final Pattern HASHTAG_PATTERN = Pattern.compile("[#@]([a-zA-Z0-9_-]+)");
+
+	private RegexHashtagExtractor() {}
+
+	public static List<String> extractHashtags(String text) {
+		MutableList<String> hashtags = Lists.mutable.empty();
+
+		if (text == null || text.isEmpty()) {
+			return hashtags;
+		}
+
+		String plainText = text.replaceAll("<[^>]*>", "");
+
+		Matcher matcher = HASHTAG_PATTERN.matcher(plainText);
+		while (matcher.find()) {
+			String tagName = matcher.group(1).toLowerCase();
+			if (!hashtags.contains(tagName)) {
+				hashtags.add(tagName);
+			}
+		}
+
+		return hashtags;
+	}
+}
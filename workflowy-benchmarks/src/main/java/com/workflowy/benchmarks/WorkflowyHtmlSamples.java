@@ -0,0 +1,63 @@
+package com.workflowy.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic item names and notes shaped like the HTML in Workflowy backups: mostly plain text, some formatting
+ * and links, and a few tags and mentions per tagged item.
+ */
+public final class WorkflowyHtmlSamples {
+
+	private static final String[] WORDS = {
+		"review", "draft", "meeting", "notes", "plan", "the", "for", "with", "quarterly", "budget", "call", "ideas",
+	};
+
+	private static final String[] TAGS = {
+		"#todo", "#Project", "#waiting-for", "#q3_goals", "@alice", "@Bob", "#someday", "#TODO",
+	};
+
+	private WorkflowyHtmlSamples() {}
+
+	public static String[] names(int count, long seed) {
+		Random random = new Random(seed);
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			names[i] = text(random, 3 + random.nextInt(12));
+		}
+		return names;
+	}
+
+	public static String[] notes(int count, long seed) {
+		Random random = new Random(seed);
+		String[] notes = new String[count];
+		for (int i = 0; i < count; i++) {
+			// Most items have no note
+			notes[i] = random.nextInt(5) == 0 ? text(random, 10 + random.nextInt(40)) : null;
+		}
+		return notes;
+	}
+
+	private static String text(Random random, int wordCount) {
+		boolean tagged = random.nextInt(3) == 0;
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < wordCount; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			String word = WORDS[random.nextInt(WORDS.length)];
+			switch (random.nextInt(12)) {
+				case 0 -> text.append("<b>").append(word).append("</b>");
+				case 1 -> text.append("<i>").append(word).append("</i>");
+				case 2 -> text.append("<span class=\"colored c-red\">").append(word).append("</span>");
+				case 3 -> text.append("<a href=\"https://example.com/").append(word).append("#section\">")
+					.append(word)
+					.append("</a>");
+				default -> text.append(word);
+			}
+			if (tagged && random.nextInt(4) == 0) {
+				text.append(' ').append(TAGS[random.nextInt(TAGS.length)]);
+			}
+		}
+		return text.toString();
+	}
+}
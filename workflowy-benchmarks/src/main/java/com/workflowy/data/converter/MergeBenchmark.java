@@ -0,0 +1,160 @@
+package com.workflowy.data.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.fw.common.mithra.MithraManagerProvider;
+import com.gs.fw.common.mithra.test.ConnectionManagerForTests;
+import com.gs.fw.common.mithra.test.MithraTestResource;
+import com.workflowy.benchmarks.OutlineShape;
+import com.workflowy.data.converter.TargetedMerge.Step;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.set.MutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merges synthetic backups into an in-memory H2 database through Reladomo: the first day into an empty database with
+ * {@link InitialLoad}, and the changes of the second day with a {@link TargetedMerge}.
+ *
+ * <p>Each measurement is one merge into a fresh database, parsed and staged beforehand, so only the merge and its
+ * commits are timed. Lives in the converter's package because both merges are package-private.
+ *
+ * <p>Run with {@code java -jar workflowy-benchmarks/target/benchmarks.jar MergeBenchmark -prof gc} to also see
+ * allocation per operation.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeBenchmark {
+
+	private static final String RUNTIME_CONFIGURATION =
+		"reladomo-runtime-configuration/TestReladomoRuntimeConfiguration.xml";
+	private static final String USER_ID = "benchmark@example.com";
+	private static final Instant DAY_0 = Instant.parse("2024-01-01T00:00:00Z");
+	private static final Instant DAY_1 = Instant.parse("2024-01-02T00:00:00Z");
+
+	@Benchmark
+	public void initialLoad(EmptyDatabase database) {
+		database.loadDay0();
+	}
+
+	@Benchmark
+	public void targetedMerge(LoadedDatabase database) {
+		inTransaction(DAY_1, () -> new TargetedMerge(
+			USER_ID,
+			database.day1Import,
+			database.day1ChangedNodeIds,
+			Sets.immutable.empty(),
+			database.metrics
+		).mergeAll());
+	}
+
+	public abstract static class Database {
+
+		@Param({"10000", "100000"})
+		private int nodeCount;
+
+		@Param({"BALANCED", "WIDE", "DEEP"})
+		private OutlineShape shape;
+
+		private final ObjectMapper objectMapper = new ObjectMapper();
+		protected final ImportMetrics metrics = new ImportMetrics(new MetricRegistry());
+		private byte[] day0Backup;
+		protected byte[] day1Backup;
+
+		private MithraTestResource testResource;
+		protected StagedImport day0Import;
+
+		@Setup(Level.Trial)
+		public void generateBackups() {
+			this.day0Backup = this.shape.backup(this.nodeCount, 0);
+			this.day1Backup = this.shape.backup(this.nodeCount, 1);
+		}
+
+		@TearDown(Level.Iteration)
+		public void dropDatabase() {
+			this.testResource.tearDown();
+		}
+
+		protected void createDatabaseAndStageDay0() throws IOException {
+			this.testResource = new MithraTestResource(RUNTIME_CONFIGURATION);
+			this.testResource.createSingleDatabase(ConnectionManagerForTests.getInstanceForDbName("workflowy"));
+			this.testResource.setUp();
+			this.day0Import = this.stage(this.day0Backup, ImportBaseline.empty());
+		}
+
+		protected void loadDay0() {
+			MutableSet<String> allNodeIds = Sets.mutable.withAll(this.day0Import.getRowHashes().keysView());
+			inTransaction(DAY_0, () -> {
+				new TargetedMerge(USER_ID, this.day0Import, allNodeIds, Sets.immutable.empty(), this.metrics)
+					.merge(Step.TAGS);
+				new InitialLoad(USER_ID, this.day0Import, this.metrics).insertAll();
+			});
+		}
+
+		protected StagedImport stage(byte[] backup, ImportBaseline baseline) throws IOException {
+			StagedImport stagedImport = new StagedImport();
+			ExtractionPipeline extractionPipeline = new ExtractionPipeline(
+				ExtractionPipeline.defaultExtractors(this.objectMapper, USER_ID),
+				stagedImport,
+				baseline
+			);
+			new StreamingBackupParser(this.objectMapper).parse(new ByteArrayInputStream(backup), extractionPipeline);
+			return stagedImport;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class EmptyDatabase extends Database {
+
+		@Setup(Level.Iteration)
+		public void setUp() throws IOException {
+			this.createDatabaseAndStageDay0();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class LoadedDatabase extends Database {
+
+		private StagedImport day1Import;
+		private MutableSet<String> day1ChangedNodeIds;
+
+		@Setup(Level.Iteration)
+		public void setUp() throws IOException {
+			this.createDatabaseAndStageDay0();
+			this.loadDay0();
+
+			ImportBaseline baseline = ImportBaseline.empty();
+			baseline.advanceTo(DAY_0.toString(), this.day0Import.getRowHashes());
+			this.day1Import = this.stage(this.day1Backup, baseline);
+			this.day1ChangedNodeIds = baseline.getChangedNodeIds(this.day1Import.getRowHashes());
+		}
+	}
+
+	private static void inTransaction(Instant systemTime, Runnable runnable) {
+		MithraManagerProvider.getMithraManager().executeTransactionalCommand((transaction) -> {
+			transaction.setProcessingStartTime(systemTime.toEpochMilli());
+			runnable.run();
+			return null;
+		});
+	}
+}
@@ -0,0 +1,18 @@
+package com.workflowy.data.converter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.pojo.InputItem;
+
+/**
+ * Receives the items of a Workflowy backup one at a time.
+ *
+ * <p>Items are visited after all of their descendants. Visitors must not rely on {@link InputItem#children()}, which the
+ * streaming parser never populates. An item's position in the tree is described by {@code parentId} (null for root
+ * items) and {@code priority} (the index among its siblings).
+ */
+@FunctionalInterface
+public interface BackupItemVisitor {
+	void visitItem(@Nonnull InputItem inputItem, @Nullable String parentId, int priority);
+}
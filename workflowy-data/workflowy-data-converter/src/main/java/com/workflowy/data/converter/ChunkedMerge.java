@@ -0,0 +1,139 @@
+package com.workflowy.data.converter;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.workflowy.ImportCheckpoint;
+import com.workflowy.ImportCheckpointFinder;
+import com.workflowy.data.converter.TargetedMerge.Step;
+import cool.klass.data.store.DataStore;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.api.set.sorted.MutableSortedSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges a {@link StagedImport} in many short transactions instead of one, committing an {@link ImportCheckpoint}
+ * with each.
+ *
+ * <p>The changed node ids are sorted and split into chunks. Each {@link Step} commits one transaction per chunk,
+ * except for the {@linkplain Step#isShared() shared steps} that {@link WorkflowyDataConverter} runs on its own. The checkpoint names the step and the last node id of the
+ * committed chunk, so a restarted import of the same file skips everything up to it. Every transaction uses the
+ * backup's timestamp as its system time.
+ *
+ * <p>Resuming relies on the high watermark and the row hashes only advancing once the whole file is merged, so that
+ * the restarted import finds the same changed node ids. Row hashes are merged by the last step, so the only ids that
+ * drop out on a restart are those of chunks that already committed in that step.
+ */
+final class ChunkedMerge {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedMerge.class);
+
+	private final DataStore dataStore;
+	private final String userId;
+	private final String backupFileName;
+	private final long systemTime;
+	private final StagedImport stagedImport;
+	private final SetIterable<String> changedNodeIds;
+	private final SetIterable<String> setBasedEntities;
+	private final int chunkSize;
+	private final ImportMetrics metrics;
+	private final ImmutableList<MutableSortedSet<String>> chunks;
+
+	ChunkedMerge(
+		@Nonnull DataStore dataStore,
+		@Nonnull String userId,
+		@Nonnull String backupFileName,
+		long systemTime,
+		@Nonnull StagedImport stagedImport,
+		@Nonnull SetIterable<String> changedNodeIds,
+		@Nonnull SetIterable<String> setBasedEntities,
+		int chunkSize,
+		@Nonnull ImportMetrics metrics
+	) {
+		this.dataStore = Objects.requireNonNull(dataStore);
+		this.userId = Objects.requireNonNull(userId);
+		this.backupFileName = Objects.requireNonNull(backupFileName);
+		this.systemTime = systemTime;
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.changedNodeIds = Objects.requireNonNull(changedNodeIds);
+		this.setBasedEntities = Objects.requireNonNull(setBasedEntities);
+		this.chunkSize = chunkSize;
+		this.metrics = Objects.requireNonNull(metrics);
+		this.chunks = changedNodeIds.toSortedList()
+			.chunk(chunkSize)
+			.collect(RichIterable::toSortedSet)
+			.toList()
+			.toImmutable();
+	}
+
+	/**
+	 * Runs the remaining steps, then runs {@code onComplete} in the same transaction that deletes the checkpoint.
+	 */
+	void mergeAll(@Nonnull Runnable onComplete) {
+		ImportCheckpoint checkpoint = ImportCheckpointFinder.findOne(
+			ImportCheckpointFinder.backupFileName().eq(this.backupFileName)
+		);
+		Step resumeStep = checkpoint == null ? null : Step.valueOf(checkpoint.getStep());
+		String resumeKey = checkpoint == null ? null : checkpoint.getLastKey();
+		if (checkpoint != null) {
+			LOGGER.info("Resuming {} after step {} at node {}", this.backupFileName, resumeStep, resumeKey);
+		}
+
+		LOGGER.info(
+			"Merging rows of {} changed nodes in {} chunks of at most {} nodes",
+			this.changedNodeIds.size(),
+			this.chunks.size(),
+			this.chunkSize
+		);
+		for (Step step : Step.values()) {
+			if (step.isShared() || resumeStep != null && step.compareTo(resumeStep) < 0) {
+				continue;
+			}
+			boolean resuming = step == resumeStep;
+			for (MutableSortedSet<String> chunk : this.chunks) {
+				String lastKey = chunk.last();
+				if (resuming && resumeKey != null && lastKey.compareTo(resumeKey) <= 0) {
+					continue;
+				}
+				this.commit(step, chunk, lastKey);
+			}
+		}
+
+		this.metrics.runInTransaction(this.dataStore, this.userId, this.systemTime, () -> {
+			onComplete.run();
+			ImportCheckpoint completed = ImportCheckpointFinder.findOne(
+				ImportCheckpointFinder.backupFileName().eq(this.backupFileName)
+			);
+			if (completed != null) {
+				completed.delete();
+			}
+		});
+	}
+
+	private void commit(Step step, SetIterable<String> nodeIds, String lastKey) {
+		this.metrics.runInTransaction(this.dataStore, this.userId, this.systemTime, () -> {
+			new TargetedMerge(this.userId, this.stagedImport, nodeIds, this.setBasedEntities, this.metrics).merge(step);
+			this.storeCheckpoint(step, lastKey);
+		});
+	}
+
+	private void storeCheckpoint(Step step, String lastKey) {
+		ImportCheckpoint checkpoint = ImportCheckpointFinder.findOne(
+			ImportCheckpointFinder.backupFileName().eq(this.backupFileName)
+		);
+		if (checkpoint == null) {
+			checkpoint = new ImportCheckpoint();
+			checkpoint.setBackupFileName(this.backupFileName);
+			checkpoint.setStep(step.name());
+			checkpoint.setLastKey(lastKey);
+			checkpoint.insert();
+		} else {
+			checkpoint.setStep(step.name());
+			checkpoint.setLastKey(lastKey);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.workflowy.data.converter;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+
+import com.workflowy.NodeContent;
+import com.workflowy.NodeContentChange;
+import com.workflowy.NodeContentChangeList;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeContentList;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the {@link NodeContent} rows changed by one import as {@link NodeContentChange} rows keyed by the user and
+ * the backup's timestamp, so the embedding pipeline can re-embed only those nodes.
+ *
+ * <p>The changed node ids also include nodes whose metadata alone changed, so each one is compared with its content
+ * as of just before the import. Every transaction of an import uses the backup's timestamp as its system time, so
+ * that earlier state is the same whether or not a chunked merge already wrote part of the import.
+ *
+ * <p>The embedding text of a node includes the names of all its ancestors, so the descendants of a renamed or moved
+ * node are recorded as well. They are found by walking the merged tree, so this must run after the node contents are
+ * merged, inside a transaction.
+ */
+final class ContentChangeFeed {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ContentChangeFeed.class);
+
+	enum Kind {
+		INSERTED,
+		UPDATED,
+		TERMINATED,
+		ANCESTOR_CHANGED,
+	}
+
+	private final String userId;
+	private final StagedImport stagedImport;
+	private final SetIterable<String> changedNodeIds;
+	private final Timestamp importTimestamp;
+
+	ContentChangeFeed(
+		@Nonnull String userId,
+		@Nonnull StagedImport stagedImport,
+		@Nonnull SetIterable<String> changedNodeIds,
+		@Nonnull Instant importTimestamp
+	) {
+		this.userId = Objects.requireNonNull(userId);
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.changedNodeIds = Objects.requireNonNull(changedNodeIds);
+		this.importTimestamp = Timestamp.from(importTimestamp);
+	}
+
+	/**
+	 * Records every staged node as inserted, for an import into an empty database.
+	 */
+	void recordAllInserted() {
+		StagedNodes nodes = this.stagedImport.getNodes();
+		NodeContentChangeList changes = new NodeContentChangeList(nodes.size());
+		for (int row = 0; row < nodes.size(); row++) {
+			if (nodes.hasContent(row)) {
+				changes.add(this.newChange(nodes.getNodeId(row), Kind.INSERTED));
+			}
+		}
+		LOGGER.info("Recording {} inserted node contents", changes.size());
+		changes.insertAll();
+	}
+
+	void record() {
+		MutableMap<String, NodeContent> previousContents = this.findPreviousContents();
+		StagedNodes nodes = this.stagedImport.getNodes();
+
+		MutableMap<String, Kind> changes = Maps.mutable.empty();
+		MutableSet<String> movedOrRenamedIds = Sets.mutable.empty();
+		this.changedNodeIds.forEach((nodeId) -> {
+			NodeContent previous = previousContents.get(nodeId);
+			int row = nodes.indexOf(nodeId);
+			NodeContent current = row >= 0 && nodes.hasContent(row) ? nodes.toNodeContent(row) : null;
+			if (current == null) {
+				if (previous != null) {
+					changes.put(nodeId, Kind.TERMINATED);
+				}
+			} else if (previous == null) {
+				changes.put(nodeId, Kind.INSERTED);
+			} else if (
+				!Objects.equals(previous.getParentId(), current.getParentId())
+				|| !Objects.equals(previous.getName(), current.getName())
+			) {
+				changes.put(nodeId, Kind.UPDATED);
+				movedOrRenamedIds.add(nodeId);
+			} else if (!Objects.equals(previous.getNote(), current.getNote())) {
+				changes.put(nodeId, Kind.UPDATED);
+			}
+		});
+
+		int ownChangeCount = changes.size();
+		this.forEachDescendant(movedOrRenamedIds, (nodeId) -> changes.getIfAbsentPut(nodeId, Kind.ANCESTOR_CHANGED));
+
+		NodeContentChangeList changeList = new NodeContentChangeList(changes.size());
+		changes.forEachKeyValue((nodeId, kind) -> changeList.add(this.newChange(nodeId, kind)));
+		LOGGER.info(
+			"Recording {} changed node contents and {} descendants of {} renamed or moved nodes",
+			ownChangeCount,
+			changes.size() - ownChangeCount,
+			movedOrRenamedIds.size()
+		);
+		changeList.insertAll();
+	}
+
+	private MutableMap<String, NodeContent> findPreviousContents() {
+		Timestamp beforeImport = new Timestamp(this.importTimestamp.getTime() - 1);
+		MutableMap<String, NodeContent> previousContents = Maps.mutable.empty();
+		for (RichIterable<String> chunk : this.changedNodeIds.chunk(TargetedMerge.CHUNK_SIZE)) {
+			NodeContentList chunkContents = NodeContentFinder.findMany(
+				NodeContentFinder.id().in(chunk.toSet()).and(NodeContentFinder.system().eq(beforeImport))
+			);
+			for (NodeContent nodeContent : chunkContents) {
+				previousContents.put(nodeContent.getId(), nodeContent);
+			}
+		}
+		return previousContents;
+	}
+
+	/**
+	 * Walks the current tree down from {@code rootIds} one level at a time, never visiting a node twice.
+	 */
+	private void forEachDescendant(SetIterable<String> rootIds, Consumer<String> consumer) {
+		MutableSet<String> visited = Sets.mutable.withAll(rootIds);
+		MutableSet<String> level = Sets.mutable.withAll(rootIds);
+		while (level.notEmpty()) {
+			MutableSet<String> nextLevel = Sets.mutable.empty();
+			for (RichIterable<String> chunk : level.chunk(TargetedMerge.CHUNK_SIZE)) {
+				NodeContentList children = NodeContentFinder.findMany(NodeContentFinder.parentId().in(chunk.toSet()));
+				for (NodeContent child : children) {
+					if (visited.add(child.getId())) {
+						nextLevel.add(child.getId());
+						consumer.accept(child.getId());
+					}
+				}
+			}
+			level = nextLevel;
+		}
+	}
+
+	private NodeContentChange newChange(String nodeId, Kind kind) {
+		NodeContentChange change = new NodeContentChange();
+		change.setUserId(this.userId);
+		change.setImportTimestamp(this.importTimestamp);
+		change.setNodeId(nodeId);
+		change.setKind(kind.name());
+		return change;
+	}
+}
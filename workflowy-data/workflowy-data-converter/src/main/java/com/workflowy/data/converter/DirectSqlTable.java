@@ -0,0 +1,39 @@
+package com.workflowy.data.converter;
+
+import java.sql.Connection;
+import java.util.TimeZone;
+
+import javax.annotation.Nonnull;
+
+import com.gs.fw.common.mithra.database.MithraCodeGeneratedDatabaseObject;
+import com.gs.fw.common.mithra.databasetype.DatabaseType;
+import com.gs.fw.common.mithra.finder.RelatedFinder;
+
+/**
+ * The table of a Reladomo entity without a source attribute, for writing it with set-based SQL instead of going
+ * through the Reladomo object API.
+ *
+ * <p>The database type and time zone are needed to bind parameters the same way Reladomo does.
+ */
+record DirectSqlTable(String tableName, DatabaseType databaseType, TimeZone timeZone) {
+
+	static DirectSqlTable of(@Nonnull RelatedFinder<?> finder) {
+		MithraCodeGeneratedDatabaseObject databaseObject = databaseObject(finder);
+		return new DirectSqlTable(
+			databaseObject.getFullyQualifiedTableNameGenericSource(null),
+			databaseObject.getDatabaseTypeGenericSource(null),
+			databaseObject.getDatabaseTimeZoneGenericSource(null)
+		);
+	}
+
+	/**
+	 * Inside a Reladomo transaction, the connection enlisted in that transaction.
+	 */
+	static Connection getConnection(@Nonnull RelatedFinder<?> finder) {
+		return databaseObject(finder).getConnectionGenericSource(null);
+	}
+
+	private static MithraCodeGeneratedDatabaseObject databaseObject(RelatedFinder<?> finder) {
+		return (MithraCodeGeneratedDatabaseObject) finder.getMithraObjectPortal().getDatabaseObject();
+	}
+}
@@ -1,21 +1,37 @@
 package com.workflowy.data.converter;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
 
 import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ListIterable;
 import org.eclipse.collections.api.list.MutableList;
 
 /**
- * Extracts hashtags from Workflowy item names.
+ * Extracts hashtags from Workflowy item names and notes.
  * Handles both #hashtag and @mention patterns.
+ *
+ * <p>A tag is {@code #} or {@code @} followed by letters, digits, {@code _} or {@code -}, matched as if HTML tags had
+ * been removed from the text first, so a tag may continue across formatting markup. Tags are lowercased and returned
+ * once each in order of first occurrence.
+ *
+ * <p>The text is scanned once without regular expressions. An instance reuses its buffers across calls and only
+ * allocates a String for each distinct tag, so it is not thread-safe.
  */
 public final class HashtagExtractor {
 
-	private static final Pattern HASHTAG_PATTERN = Pattern.compile("[#@]([a-zA-Z0-9_-]+)");
+	private static final int INITIAL_TOKEN_CAPACITY = 32;
+	private static final int INITIAL_TABLE_CAPACITY = 16;
+
+	private char[] token = new char[INITIAL_TOKEN_CAPACITY];
+	private int tokenLength;
+	private int tokenHash;
 
-	private HashtagExtractor() {}
+	// Open-addressing set of the tags found so far, with linear probing
+	private String[] table = new String[INITIAL_TABLE_CAPACITY];
+	private final MutableList<String> hashtags = Lists.mutable.empty();
 
 	/**
 	 * Extract all hashtags from the given text.
@@ -23,27 +39,129 @@ public final class HashtagExtractor {
 	 * @param text The text to search for hashtags
 	 * @return List of hashtag names (without the # or @ prefix)
 	 */
-	public static List<String> extractHashtags(String text) {
-		MutableList<String> hashtags = Lists.mutable.empty();
+	public static List<String> extractHashtags(@Nullable String text) {
+		return new HashtagExtractor().scan(text, null).toList();
+	}
+
+	/**
+	 * Extracts the hashtags of a name and a note together, so a tag in both is returned once.
+	 *
+	 * @return the tags, valid until the next call
+	 */
+	public ListIterable<String> scan(@Nullable String name, @Nullable String note) {
+		if (!this.hashtags.isEmpty()) {
+			this.hashtags.clear();
+			Arrays.fill(this.table, null);
+		}
+		this.scanText(name);
+		this.scanText(note);
+		return this.hashtags;
+	}
+
+	private void scanText(@Nullable String text) {
+		if (text == null) {
+			return;
+		}
+
+		int length = text.length();
+		boolean inToken = false;
+		// Once a '<' has no later '>', no later '<' does either, and the rest of the text contains no HTML tags
+		boolean markupClosed = true;
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '<' && markupClosed) {
+				int close = text.indexOf('>', i + 1);
+				if (close >= 0) {
+					i = close + 1;
+					continue;
+				}
+				markupClosed = false;
+			}
+
+			if (inToken && isTagChar(c)) {
+				this.append(c);
+			} else {
+				if (inToken) {
+					this.endToken();
+				}
+				inToken = c == '#' || c == '@';
+				this.tokenLength = 0;
+				this.tokenHash = 0;
+			}
+			i++;
+		}
+		if (inToken) {
+			this.endToken();
+		}
+	}
+
+	private void append(char c) {
+		char lower = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+		if (this.tokenLength == this.token.length) {
+			this.token = Arrays.copyOf(this.token, this.token.length * 2);
+		}
+		this.token[this.tokenLength++] = lower;
+		this.tokenHash = 31 * this.tokenHash + lower;
+	}
+
+	private void endToken() {
+		if (this.tokenLength == 0) {
+			return;
+		}
+
+		int mask = this.table.length - 1;
+		int slot = spread(this.tokenHash) & mask;
+		while (this.table[slot] != null) {
+			if (this.matchesToken(this.table[slot])) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
 
-		if (text == null || text.isEmpty()) {
-			return hashtags;
+		// Same hash as String.hashCode(), so the table can be rehashed without rescanning
+		String hashtag = new String(this.token, 0, this.tokenLength);
+		this.table[slot] = hashtag;
+		this.hashtags.add(hashtag);
+		if (this.hashtags.size() * 2 > this.table.length) {
+			this.grow();
 		}
+	}
 
-		String plainText = stripHtmlTags(text);
+	private boolean matchesToken(String candidate) {
+		if (candidate.hashCode() != this.tokenHash || candidate.length() != this.tokenLength) {
+			return false;
+		}
+		for (int i = 0; i < this.tokenLength; i++) {
+			if (candidate.charAt(i) != this.token[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
 
-		Matcher matcher = HASHTAG_PATTERN.matcher(plainText);
-		while (matcher.find()) {
-			String tagName = matcher.group(1).toLowerCase();
-			if (!hashtags.contains(tagName)) {
-				hashtags.add(tagName);
+	private void grow() {
+		String[] grown = new String[this.table.length * 2];
+		int mask = grown.length - 1;
+		for (String hashtag : this.hashtags) {
+			int slot = spread(hashtag.hashCode()) & mask;
+			while (grown[slot] != null) {
+				slot = (slot + 1) & mask;
 			}
+			grown[slot] = hashtag;
 		}
+		this.table = grown;
+	}
 
-		return hashtags;
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
 	}
 
-	private static String stripHtmlTags(String html) {
-		return html.replaceAll("<[^>]*>", "");
+	private static boolean isTagChar(char c) {
+		return (c >= 'a' && c <= 'z')
+			|| (c >= 'A' && c <= 'Z')
+			|| (c >= '0' && c <= '9')
+			|| c == '_'
+			|| c == '-';
 	}
 }
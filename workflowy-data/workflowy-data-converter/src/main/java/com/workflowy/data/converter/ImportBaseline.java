@@ -0,0 +1,124 @@
+package com.workflowy.data.converter;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeContent;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeContentList;
+import com.workflowy.NodeImportHash;
+import com.workflowy.NodeImportHashFinder;
+import com.workflowy.NodeImportHashList;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.api.map.primitive.ObjectLongMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The file digest and row hashes of a user's most recently imported backup, used to skip an identical next backup and
+ * to find the nodes that changed in a different one.
+ *
+ * <p>Loaded once per run and then advanced in memory after each successful import.
+ */
+public final class ImportBaseline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImportBaseline.class);
+
+	@Nullable
+	private String fileDigest;
+
+	private MutableObjectLongMap<String> rowHashes;
+	private boolean hashesKnown;
+
+	private ImportBaseline(
+		@Nullable String fileDigest,
+		@Nonnull MutableObjectLongMap<String> rowHashes,
+		boolean hashesKnown
+	) {
+		this.fileDigest = fileDigest;
+		this.rowHashes = Objects.requireNonNull(rowHashes);
+		this.hashesKnown = hashesKnown;
+	}
+
+	/**
+	 * A baseline with no previous import, so every node is new.
+	 */
+	public static ImportBaseline empty() {
+		return new ImportBaseline(null, new ObjectLongHashMap<>(), true);
+	}
+
+	/**
+	 * Loads the user's stored row hashes. A database imported before row hashes existed has none, so every current
+	 * {@link NodeContent} created by the user is loaded instead and treated as changed.
+	 */
+	public static ImportBaseline load(@Nonnull String userId, @Nullable String fileDigest) {
+		NodeImportHashList storedHashes = NodeImportHashFinder.findMany(NodeImportHashFinder.userId().eq(userId));
+		MutableObjectLongMap<String> rowHashes = new ObjectLongHashMap<>(storedHashes.size());
+		for (NodeImportHash storedHash : storedHashes) {
+			rowHashes.put(storedHash.getNodeId(), storedHash.getRowHash());
+		}
+		if (rowHashes.notEmpty()) {
+			LOGGER.info("Loaded {} row hashes from the previous import of {}", rowHashes.size(), userId);
+			return new ImportBaseline(fileDigest, rowHashes, true);
+		}
+
+		NodeContentList existingContents = NodeContentFinder.findMany(
+			NodeContentFinder.metadata().createdById().eq(userId)
+		);
+		for (NodeContent existingContent : existingContents) {
+			rowHashes.put(existingContent.getId(), 0L);
+		}
+		if (rowHashes.notEmpty()) {
+			LOGGER.info(
+				"No stored row hashes for {}, treating all {} of their existing nodes as changed",
+				userId,
+				rowHashes.size()
+			);
+		}
+		return new ImportBaseline(fileDigest, rowHashes, false);
+	}
+
+	/**
+	 * Whether nothing has been imported yet, so the next backup can be inserted without merging.
+	 */
+	public boolean isEmpty() {
+		return this.fileDigest == null && this.rowHashes.isEmpty();
+	}
+
+	public boolean hasFileDigest(@Nonnull String fileDigest) {
+		return fileDigest.equals(this.fileDigest);
+	}
+
+	public boolean isUnchanged(@Nonnull String nodeId, long rowHash) {
+		return this.hashesKnown && this.rowHashes.containsKey(nodeId) && this.rowHashes.get(nodeId) == rowHash;
+	}
+
+	/**
+	 * The ids of nodes that are new, changed, or deleted in {@code currentRowHashes} relative to this baseline.
+	 */
+	public MutableSet<String> getChangedNodeIds(@Nonnull ObjectLongMap<String> currentRowHashes) {
+		MutableSet<String> changedNodeIds = Sets.mutable.empty();
+		currentRowHashes.forEachKeyValue((nodeId, rowHash) -> {
+			if (!this.isUnchanged(nodeId, rowHash)) {
+				changedNodeIds.add(nodeId);
+			}
+		});
+		this.rowHashes.forEachKey((nodeId) -> {
+			if (!currentRowHashes.containsKey(nodeId)) {
+				changedNodeIds.add(nodeId);
+			}
+		});
+		return changedNodeIds;
+	}
+
+	public void advanceTo(@Nonnull String fileDigest, @Nonnull MutableObjectLongMap<String> currentRowHashes) {
+		this.fileDigest = Objects.requireNonNull(fileDigest);
+		this.rowHashes = Objects.requireNonNull(currentRowHashes);
+		this.hashesKnown = true;
+	}
+}
@@ -0,0 +1,186 @@
+package com.workflowy.data.converter;
+
+import java.sql.Timestamp;
+import java.util.function.Function;
+
+import com.gs.fw.common.mithra.MithraDatedTransactionalObject;
+import com.gs.fw.common.mithra.MithraList;
+import com.gs.fw.common.mithra.MithraTransactionalList;
+import com.gs.fw.common.mithra.attribute.AsOfAttribute;
+import com.gs.fw.common.mithra.attribute.Attribute;
+import com.gs.fw.common.mithra.attribute.TimestampAttribute;
+import com.gs.fw.common.mithra.finder.RelatedFinder;
+import com.workflowy.Mirror;
+import com.workflowy.MirrorFinder;
+import com.workflowy.NodeDate;
+import com.workflowy.NodeDateFinder;
+import com.workflowy.NodeS3File;
+import com.workflowy.NodeS3FileFinder;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.impl.list.fixed.ArrayAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rewrites the full history of {@link Mirror}, {@link NodeDate} and {@link NodeS3File} from the random ids assigned by
+ * older imports to the name-based ids from {@link ImportIds}.
+ *
+ * <p>Older imports terminated and re-inserted every row on every import, so one logical row is spread over many
+ * back-to-back milestones with different ids. Rekeyed milestones that are adjacent in time and carry the same values
+ * are coalesced into one. Rows that already have their name-based id are left untouched, so the rekey is idempotent.
+ *
+ * <p>Older imports also wrote two concurrent mirrors for a link reported both as a backlink and as a mirror root.
+ * Milestones that overlap in time under the same name-based id are merged when they carry the same values. Ones with
+ * different values cannot both be kept. The rekey then fails before purging anything, so no history is lost and the
+ * rows can be repaired by hand.
+ *
+ * <p>Must run inside a transaction.
+ */
+public final class ImportIdRekeyer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImportIdRekeyer.class);
+
+	private static final ImmutableList<Attribute> MIRROR_VALUES = Lists.immutable.with(
+		MirrorFinder.mirrorRootId(),
+		MirrorFinder.mirrorNodeId(),
+		MirrorFinder.backlink()
+	);
+
+	private static final ImmutableList<Attribute> NODE_DATE_VALUES = Lists.immutable.with(
+		NodeDateFinder.nodeId(),
+		NodeDateFinder.dateValue(),
+		NodeDateFinder.root(),
+		NodeDateFinder.level(),
+		NodeDateFinder.dateId(),
+		NodeDateFinder.timestamp(),
+		NodeDateFinder.value()
+	);
+
+	private static final ImmutableList<Attribute> NODE_S3_FILE_VALUES = Lists.immutable.with(
+		NodeS3FileFinder.nodeId(),
+		NodeS3FileFinder.file(),
+		NodeS3FileFinder.fileName(),
+		NodeS3FileFinder.fileType(),
+		NodeS3FileFinder.objectFolder(),
+		NodeS3FileFinder.animatedGIF(),
+		NodeS3FileFinder.imageOriginalWidth(),
+		NodeS3FileFinder.imageOriginalHeight(),
+		NodeS3FileFinder.imageOriginalPixels()
+	);
+
+	private ImportIdRekeyer() {}
+
+	public static void rekeyAll() {
+		rekey(
+			"Mirror",
+			MirrorFinder.getFinderInstance(),
+			Mirror::new,
+			(row) -> ImportIds.mirrorId(row.getMirrorRootId(), row.getMirrorNodeId(), row.isBacklink()),
+			MIRROR_VALUES
+		);
+		rekey(
+			"NodeDate",
+			NodeDateFinder.getFinderInstance(),
+			NodeDate::new,
+			(row) -> ImportIds.nodeDateId(row.getNodeId()),
+			NODE_DATE_VALUES
+		);
+		rekey(
+			"NodeS3File",
+			NodeS3FileFinder.getFinderInstance(),
+			NodeS3File::new,
+			(row) -> ImportIds.nodeS3FileId(row.getNodeId()),
+			NODE_S3_FILE_VALUES
+		);
+	}
+
+	/**
+	 * Reads the rows through their attributes, so one pass serves every entity with a string {@code id} and a single
+	 * {@code system} as-of attribute.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends MithraDatedTransactionalObject> void rekey(
+		String entityName,
+		RelatedFinder<T> finder,
+		Function<Timestamp, T> constructor,
+		Function<T, String> newIdFunction,
+		ImmutableList<Attribute> valueAttributes
+	) {
+		Attribute idAttribute = finder.getAttributeByName("id");
+		AsOfAttribute<?> systemAttribute = finder.getAsOfAttributes()[0];
+		TimestampAttribute systemFromAttribute = systemAttribute.getFromAttribute();
+		TimestampAttribute systemToAttribute = systemAttribute.getToAttribute();
+		ImmutableList<Attribute> copiedAttributes = ArrayAdapter.adapt(finder.getPersistentAttributes()).toImmutable();
+
+		MithraList<T> history = finder.findMany(systemAttribute.equalsEdgePoint());
+		history.setOrderBy(systemFromAttribute.ascendingOrderBy());
+
+		MithraTransactionalList<T> staleRows = (MithraTransactionalList<T>) finder.constructEmptyList();
+		MutableMap<String, T> latestByNewId = Maps.mutable.empty();
+		MutableList<T> rekeyedRows = Lists.mutable.empty();
+		MutableList<String> overlappingIds = Lists.mutable.empty();
+
+		for (T row : history) {
+			String newId = newIdFunction.apply(row);
+			if (newId.equals(idAttribute.valueOf(row))) {
+				continue;
+			}
+			staleRows.add(row);
+
+			Timestamp systemFrom = systemFromAttribute.timestampValueOf(row);
+			Timestamp systemTo = systemToAttribute.timestampValueOf(row);
+			T previous = latestByNewId.get(newId);
+			Timestamp previousSystemTo = previous == null ? null : systemToAttribute.timestampValueOf(previous);
+			if (previous != null && !previousSystemTo.before(systemFrom)
+				&& sameValues(valueAttributes, previous, row)) {
+				// A continuation, or a duplicate that older imports wrote for a link reported twice
+				if (systemTo.after(previousSystemTo)) {
+					systemToAttribute.setValue(previous, systemTo);
+				}
+			} else if (previous != null && previousSystemTo.after(systemFrom)) {
+				overlappingIds.add((String) idAttribute.valueOf(row));
+			} else {
+				T rekeyed = constructor.apply(systemFrom);
+				copiedAttributes.forEach((attribute) -> attribute.setValue(rekeyed, attribute.valueOf(row)));
+				idAttribute.setValue(rekeyed, newId);
+				latestByNewId.put(newId, rekeyed);
+				rekeyedRows.add(rekeyed);
+			}
+		}
+
+		failOnOverlaps(entityName, overlappingIds);
+		staleRows.purgeAll();
+		rekeyedRows.forEach(MithraDatedTransactionalObject::insertForRecovery);
+		logResult(entityName, staleRows.size(), rekeyedRows.size());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean sameValues(ImmutableList<Attribute> attributes, Object first, Object second) {
+		return attributes.allSatisfy((attribute) -> attribute.valueEquals(first, second));
+	}
+
+	private static void failOnOverlaps(String entityName, MutableList<String> overlappingIds) {
+		if (overlappingIds.notEmpty()) {
+			throw new IllegalStateException(String.format(
+				"%d %s milestones overlap an earlier milestone with the same name-based id, so rekeying would lose "
+					+ "history. Nothing was rekeyed. Overlapping ids: %s",
+				overlappingIds.size(),
+				entityName,
+				overlappingIds.take(20)
+			));
+		}
+	}
+
+	private static void logResult(String entityName, int staleCount, int rekeyedCount) {
+		LOGGER.info(
+			"Rekeyed {}: replaced {} milestones with {} coalesced milestones",
+			entityName,
+			staleCount,
+			rekeyedCount
+		);
+	}
+}
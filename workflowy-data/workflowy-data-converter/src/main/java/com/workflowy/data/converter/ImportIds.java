@@ -0,0 +1,62 @@
+package com.workflowy.data.converter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Name-based (version 5) UUIDs for rows that have no natural key in the backup.
+ *
+ * <p>Deriving the id from the row's identifying fields means the same mirror, date or S3 file gets the same id in every
+ * import, so merging an unchanged row is a no-op instead of a terminate and re-insert.
+ */
+public final class ImportIds {
+
+	// Fixed namespace for all Workflowy import ids. Changing it would rekey every row on the next import.
+	private static final UUID NAMESPACE = UUID.fromString("3f1d9a52-7c4b-4e0a-9b6f-5d2c8e1a4f70");
+
+	private ImportIds() {}
+
+	public static String mirrorId(@Nonnull String mirrorRootId, @Nonnull String mirrorNodeId, boolean backlink) {
+		return nameBasedUuid("mirror:" + mirrorRootId + ":" + mirrorNodeId + ":" + backlink).toString();
+	}
+
+	public static String nodeDateId(@Nonnull String nodeId) {
+		return nameBasedUuid("nodeDate:" + nodeId).toString();
+	}
+
+	public static String nodeS3FileId(@Nonnull String nodeId) {
+		return nameBasedUuid("nodeS3File:" + nodeId).toString();
+	}
+
+	static UUID nameBasedUuid(String name) {
+		MessageDigest sha1 = newSha1();
+		sha1.update(
+			ByteBuffer.allocate(16)
+				.putLong(NAMESPACE.getMostSignificantBits())
+				.putLong(NAMESPACE.getLeastSignificantBits())
+				.array()
+		);
+		sha1.update(name.getBytes(StandardCharsets.UTF_8));
+		byte[] hash = sha1.digest();
+
+		// RFC 4122 section 4.3: version 5 in the high nibble of byte 6, IETF variant in the high bits of byte 8
+		hash[6] = (byte) ((hash[6] & 0x0f) | 0x50);
+		hash[8] = (byte) ((hash[8] & 0x3f) | 0x80);
+
+		ByteBuffer buffer = ByteBuffer.wrap(hash, 0, 16);
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+
+	private static MessageDigest newSha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is required by every Java platform", e);
+		}
+	}
+}
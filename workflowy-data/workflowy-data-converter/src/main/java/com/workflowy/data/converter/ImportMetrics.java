@@ -0,0 +1,201 @@
+package com.workflowy.data.converter;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import cool.klass.data.store.DataStore;
+import org.eclipse.collections.api.factory.Lists;
+
+/**
+ * Times the phases of an import and counts the rows it writes, in a {@link MetricRegistry} and as JFR events.
+ *
+ * <p>Registers, under the name of {@link WorkflowyDataConverter}:
+ * <ul>
+ *   <li>a timer {@code phase.<phase>} per phase: {@code digest}, {@code parse}, {@code diff}, {@code merge.<step>},
+ *   {@code insert.<entity>}, {@code change-feed} and {@code commit}</li>
+ *   <li>the counters {@code rows.<entity>.inserted}, {@code rows.<entity>.updated} and
+ *   {@code rows.<entity>.terminated}</li>
+ *   <li>the gauges {@code files-remaining}, the backup files still to import, and {@code staged-bytes}, an estimate of
+ *   the heap held by staged files waiting to merge</li>
+ * </ul>
+ *
+ * <p>Each timed phase is also an {@link ImportPhaseEvent} and each count an {@link ImportRowsEvent}, so a flight
+ * recording lines them up with allocation, GC and lock events. Thread-safe.
+ */
+public final class ImportMetrics {
+
+	private final MetricRegistry metricRegistry;
+
+	private final ConcurrentHashMap<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+	private final Set<String> entityNames = ConcurrentHashMap.newKeySet();
+	private final ConcurrentHashMap<String, Integer> filesRemainingByUser = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Long> stagedBytesByUser = new ConcurrentHashMap<>();
+
+	/**
+	 * Replaces the gauges of an earlier instance on the same registry, whose timers and counters it shares.
+	 */
+	public ImportMetrics(@Nonnull MetricRegistry metricRegistry) {
+		this.metricRegistry = Objects.requireNonNull(metricRegistry);
+		this.registerGauge(
+			"files-remaining",
+			(Gauge<Integer>) () -> this.filesRemainingByUser.values().stream().mapToInt(Integer::intValue).sum()
+		);
+		this.registerGauge(
+			"staged-bytes",
+			(Gauge<Long>) () -> this.stagedBytesByUser.values().stream().mapToLong(Long::longValue).sum()
+		);
+	}
+
+	/**
+	 * Starts timing a phase, until the returned phase is closed.
+	 */
+	Phase time(@Nonnull String phase, @Nonnull String userId) {
+		return new Phase(this, phase, userId);
+	}
+
+	void countRows(@Nonnull String entityName, @Nonnull String userId, @Nonnull RowCounts rowCounts) {
+		this.entityNames.add(entityName);
+		this.rowCounter(entityName, "inserted").inc(rowCounts.inserted());
+		this.rowCounter(entityName, "updated").inc(rowCounts.updated());
+		this.rowCounter(entityName, "terminated").inc(rowCounts.terminated());
+
+		ImportRowsEvent event = new ImportRowsEvent();
+		event.entity = entityName;
+		event.userId = userId;
+		event.inserted = rowCounts.inserted();
+		event.updated = rowCounts.updated();
+		event.terminated = rowCounts.terminated();
+		event.commit();
+	}
+
+	/**
+	 * Runs {@code body} in a transaction with {@code systemTime} as its system time, and times its commit as the phase
+	 * {@code commit}.
+	 */
+	void runInTransaction(
+		@Nonnull DataStore dataStore,
+		@Nonnull String userId,
+		long systemTime,
+		@Nonnull Runnable body
+	) {
+		AtomicReference<Phase> commit = new AtomicReference<>();
+		try {
+			dataStore.runInTransaction((transaction) -> {
+				transaction.setSystemTime(systemTime);
+				body.run();
+				commit.set(this.time("commit", userId));
+				return null;
+			});
+		} finally {
+			// Also times a commit that throws
+			Phase commitPhase = commit.get();
+			if (commitPhase != null) {
+				commitPhase.close();
+			}
+		}
+	}
+
+	void setFilesRemaining(@Nonnull String userId, int fileCount) {
+		this.filesRemainingByUser.put(userId, fileCount);
+	}
+
+	void addStagedBytes(@Nonnull String userId, long bytes) {
+		this.stagedBytesByUser.merge(userId, bytes, Long::sum);
+	}
+
+	/**
+	 * Forgets the files and staged bytes of a user whose import ended, whether or not it succeeded.
+	 */
+	void clear(@Nonnull String userId) {
+		this.filesRemainingByUser.remove(userId);
+		this.stagedBytesByUser.remove(userId);
+	}
+
+	/**
+	 * A table of the time spent in each phase and the rows written per entity so far.
+	 */
+	public String summary() {
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format(
+			"%-28s %8s %12s %10s %10s%n",
+			"Phase",
+			"Count",
+			"Total ms",
+			"Mean ms",
+			"Max ms"
+		));
+		for (String phase : Lists.mutable.withAll(this.phaseNanos.keySet()).sortThis()) {
+			Timer timer = this.metricRegistry.timer(metricName("phase", phase));
+			double totalMillis = this.phaseNanos.get(phase).sum() / 1e6;
+			summary.append(String.format(
+				"%-28s %8d %12.1f %10.1f %10.1f%n",
+				phase,
+				timer.getCount(),
+				totalMillis,
+				totalMillis / Math.max(1, timer.getCount()),
+				timer.getSnapshot().getMax() / 1e6
+			));
+		}
+
+		summary.append(String.format("%n%-28s %12s %12s %12s%n", "Entity", "Inserted", "Updated", "Terminated"));
+		for (String entityName : Lists.mutable.withAll(this.entityNames).sortThis()) {
+			summary.append(String.format(
+				"%-28s %12d %12d %12d%n",
+				entityName,
+				this.rowCounter(entityName, "inserted").getCount(),
+				this.rowCounter(entityName, "updated").getCount(),
+				this.rowCounter(entityName, "terminated").getCount()
+			));
+		}
+		return summary.toString();
+	}
+
+	private Counter rowCounter(String entityName, String kind) {
+		return this.metricRegistry.counter(metricName("rows", entityName, kind));
+	}
+
+	private void registerGauge(String name, Gauge<?> gauge) {
+		this.metricRegistry.remove(metricName(name));
+		this.metricRegistry.register(metricName(name), gauge);
+	}
+
+	private static String metricName(String... names) {
+		return MetricRegistry.name(WorkflowyDataConverter.class, names);
+	}
+
+	/**
+	 * A running phase, timed by a {@link Timer} and an {@link ImportPhaseEvent} until closed.
+	 */
+	static final class Phase implements AutoCloseable {
+
+		private final ImportMetrics metrics;
+		private final String phase;
+		private final ImportPhaseEvent event = new ImportPhaseEvent();
+		private final Timer.Context timerContext;
+
+		private Phase(ImportMetrics metrics, String phase, String userId) {
+			this.metrics = Objects.requireNonNull(metrics);
+			this.phase = Objects.requireNonNull(phase);
+			this.event.phase = phase;
+			this.event.userId = Objects.requireNonNull(userId);
+			this.event.begin();
+			this.timerContext = metrics.metricRegistry.timer(metricName("phase", phase)).time();
+		}
+
+		@Override
+		public void close() {
+			long nanos = this.timerContext.stop();
+			this.metrics.phaseNanos.computeIfAbsent(this.phase, (ignored) -> new LongAdder()).add(nanos);
+			this.event.commit();
+		}
+	}
+}
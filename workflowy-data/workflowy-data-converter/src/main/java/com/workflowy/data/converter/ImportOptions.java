@@ -0,0 +1,51 @@
+package com.workflowy.data.converter;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.eclipse.collections.api.set.ImmutableSet;
+
+/**
+ * How backup files are staged and merged into the database.
+ *
+ * @param userConcurrency      the number of users whose backups are imported at the same time, each user's in date
+ *                             order
+ * @param extractionThreads    the number of threads extracting staged rows, see
+ *                             {@link com.workflowy.data.converter.extractor.ParallelExtractionPipeline}, or 1 to
+ *                             extract on the parsing thread
+ * @param setBasedEntities     entities merged with {@link SetBasedMerge} instead of Reladomo's merge
+ * @param transactionChunkSize the number of changed nodes per transaction, see {@link ChunkedMerge}, or {@code null}
+ *                             to merge each file in one transaction
+ */
+public record ImportOptions(
+	int userConcurrency,
+	int extractionThreads,
+	@Nonnull ImmutableSet<String> setBasedEntities,
+	@Nullable Integer transactionChunkSize
+) {
+	public ImportOptions {
+		Objects.requireNonNull(setBasedEntities);
+		if (userConcurrency <= 0) {
+			String message = "Expected a positive user concurrency but got " + userConcurrency;
+			throw new IllegalArgumentException(message);
+		}
+		if (extractionThreads <= 0) {
+			String message = "Expected a positive number of extraction threads but got " + extractionThreads;
+			throw new IllegalArgumentException(message);
+		}
+		if (transactionChunkSize != null && transactionChunkSize <= 0) {
+			String message = "Expected a positive transaction chunk size but got " + transactionChunkSize;
+			throw new IllegalArgumentException(message);
+		}
+	}
+
+	public boolean isParallelExtraction() {
+		return this.extractionThreads > 1;
+	}
+
+	public boolean isChunked() {
+		return this.transactionChunkSize != null;
+	}
+}
@@ -0,0 +1,23 @@
+package com.workflowy.data.converter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event spanning one phase of an import, committed by {@link ImportMetrics.Phase#close()}.
+ */
+@Name("com.workflowy.ImportPhase")
+@Label("Import Phase")
+@Category({"Workflowy", "Import"})
+@Description("One phase of importing a backup file, such as parsing it or merging one step")
+final class ImportPhaseEvent extends Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("User")
+	String userId;
+}
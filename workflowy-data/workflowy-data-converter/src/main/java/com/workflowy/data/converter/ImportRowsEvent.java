@@ -0,0 +1,33 @@
+package com.workflowy.data.converter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event counting the rows of one entity written by a merge or an insert, committed by
+ * {@link ImportMetrics#countRows}.
+ */
+@Name("com.workflowy.ImportRows")
+@Label("Import Rows")
+@Category({"Workflowy", "Import"})
+@Description("Rows of one entity inserted, updated and terminated by a merge step")
+final class ImportRowsEvent extends Event {
+
+	@Label("Entity")
+	String entity;
+
+	@Label("User")
+	String userId;
+
+	@Label("Inserted")
+	long inserted;
+
+	@Label("Updated")
+	long updated;
+
+	@Label("Terminated")
+	long terminated;
+}
@@ -2,6 +2,7 @@ package com.workflowy.data.converter;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 
@@ -12,6 +13,7 @@ import io.dropwizard.cli.EnvironmentCommand;
 import io.dropwizard.setup.Environment;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
+import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
 import org.eclipse.jetty.util.thread.ShutdownThread;
 import org.slf4j.Logger;
@@ -39,13 +41,40 @@ public class ImportWorkflowyCommand<T extends AbstractKlassConfiguration> extend
 			.addArgument("--backups-path")
 			.type(String.class)
 			.required(true)
-			.help("Path to the directory containing Workflowy backup files.");
+			.help("Path to the directory containing Workflowy backup files, plain or compressed as .gz or .zst, "
+				+ "and zip or tar archives of them.");
 
 		subparser
 			.addArgument("--days-limit")
 			.type(Integer.class)
 			.setDefault(Integer.MAX_VALUE)
-			.help("Maximum number of backup files to process (default: all).");
+			.help("Maximum number of backup files to process per user (default: all).");
+
+		subparser
+			.addArgument("--user-concurrency")
+			.type(Integer.class)
+			.setDefault(1)
+			.help("Number of users whose backups are imported at the same time, each user's in date order "
+				+ "(default: 1).");
+
+		subparser
+			.addArgument("--extraction-threads")
+			.type(Integer.class)
+			.setDefault(1)
+			.help("Number of threads extracting rows from each backup file while it is parsed (default: 1).");
+
+		subparser
+			.addArgument("--set-based-merge")
+			.nargs("*")
+			.choices(SetBasedMerge.ALL.collect(SetBasedMerge::getEntityName).castToList())
+			.setDefault(List.of())
+			.help("Entities to merge with set-based SQL through staging tables instead of Reladomo (default: none).");
+
+		subparser
+			.addArgument("--transaction-chunk-size")
+			.type(Integer.class)
+			.help("Commit each merge step in transactions of at most this many changed nodes, "
+				+ "resuming from a checkpoint after a failure (default: one transaction per file).");
 	}
 
 	@Override
@@ -62,11 +91,38 @@ public class ImportWorkflowyCommand<T extends AbstractKlassConfiguration> extend
 		String backupsPathString = namespace.getString("backups_path");
 		Path backupsPath = Paths.get(backupsPathString);
 		Integer daysLimit = namespace.getInt("days_limit");
+		Integer userConcurrency = namespace.getInt("user_concurrency");
+		Integer extractionThreads = namespace.getInt("extraction_threads");
+		List<String> setBasedMergeEntities = namespace.getList("set_based_merge");
+		Integer transactionChunkSize = namespace.getInt("transaction_chunk_size");
 
 		LOGGER.info("backupsPath = {}", backupsPath);
 		LOGGER.info("daysLimit = {}", daysLimit);
-
-		WorkflowyDataConverter.convert(backupsPath, environment.getObjectMapper(), dataStore, daysLimit);
+		LOGGER.info("userConcurrency = {}", userConcurrency);
+		LOGGER.info("extractionThreads = {}", extractionThreads);
+		LOGGER.info("setBasedMergeEntities = {}", setBasedMergeEntities);
+		LOGGER.info("transactionChunkSize = {}", transactionChunkSize);
+
+		ImportOptions importOptions = new ImportOptions(
+			userConcurrency,
+			extractionThreads,
+			Sets.immutable.withAll(setBasedMergeEntities),
+			transactionChunkSize
+		);
+
+		ImportMetrics metrics = new ImportMetrics(environment.metrics());
+		try {
+			WorkflowyDataConverter.convert(
+				backupsPath,
+				environment.getObjectMapper(),
+				dataStore,
+				daysLimit,
+				importOptions,
+				metrics
+			);
+		} finally {
+			LOGGER.info("Import phases and rows:{}{}", System.lineSeparator(), metrics.summary());
+		}
 
 		this.containerLifeCycle.stop();
 
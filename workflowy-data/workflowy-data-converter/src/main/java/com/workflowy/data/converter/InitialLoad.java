@@ -0,0 +1,92 @@
+package com.workflowy.data.converter;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.gs.fw.common.mithra.MithraTransactionalList;
+import com.gs.fw.common.mithra.finder.Operation;
+import com.workflowy.MirrorList;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeImportHash;
+import com.workflowy.NodeImportHashList;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.set.MutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a user's first {@link StagedImport} with batched inserts instead of a merge, when none of its nodes is stored
+ * yet.
+ *
+ * <p>A merge first queries for existing rows and then writes each difference on its own. With nothing to compare
+ * against, {@code insertAll()} lets Reladomo batch the inserts and stamp {@code systemFrom} with the transaction's
+ * system time and {@code systemTo} with infinity.
+ *
+ * <p>Tags are shared by all users, so they are inserted beforehand by the shared {@link TargetedMerge.Step#TAGS} step.
+ *
+ * <p>Each entity's inserts are timed as the phase {@code insert.<entity>} of {@link ImportMetrics}.
+ *
+ * <p>Must run inside a transaction.
+ */
+final class InitialLoad {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InitialLoad.class);
+
+	private final String userId;
+	private final StagedImport stagedImport;
+	private final ImportMetrics metrics;
+
+	InitialLoad(@Nonnull String userId, @Nonnull StagedImport stagedImport, @Nonnull ImportMetrics metrics) {
+		this.userId = Objects.requireNonNull(userId);
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.metrics = Objects.requireNonNull(metrics);
+	}
+
+	/**
+	 * Whether none of the staged nodes is stored, at any system time. Backups of different users can share nodes, so a
+	 * user's first import can still find rows that another user's import wrote, which the inserts would collide with.
+	 */
+	boolean isNothingStored() {
+		StagedNodes nodes = this.stagedImport.getNodes();
+		for (int start = 0; start < nodes.size(); start += TargetedMerge.CHUNK_SIZE) {
+			MutableSet<String> chunk = Sets.mutable.empty();
+			for (int row = start; row < Math.min(start + TargetedMerge.CHUNK_SIZE, nodes.size()); row++) {
+				chunk.add(nodes.getNodeId(row));
+			}
+			Operation operation = NodeContentFinder.id().in(chunk).and(NodeContentFinder.system().equalsEdgePoint());
+			if (NodeContentFinder.findMany(operation).count() > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void insertAll() {
+		this.insert("NodeContent", this.stagedImport.getNodes().toNodeContents());
+		this.insert("NodeMetadata", this.stagedImport.getNodes().toNodeMetadatas());
+		this.insert("NodeTagMapping", this.stagedImport.getNodeTagMappings());
+		this.insert("Mirror", new MirrorList(this.stagedImport.getMirrors().values()));
+		this.insert("NodeDate", this.stagedImport.getNodeDates());
+		this.insert("NodeS3File", this.stagedImport.getNodeS3Files());
+		this.insert("VirtualRootMapping", this.stagedImport.getVirtualRootMappings());
+
+		NodeImportHashList nodeImportHashes = new NodeImportHashList(this.stagedImport.getRowHashes().size());
+		this.stagedImport.getRowHashes().forEachKeyValue((nodeId, rowHash) -> {
+			NodeImportHash nodeImportHash = new NodeImportHash();
+			nodeImportHash.setUserId(this.userId);
+			nodeImportHash.setNodeId(nodeId);
+			nodeImportHash.setRowHash(rowHash);
+			nodeImportHashes.add(nodeImportHash);
+		});
+		this.insert("NodeImportHash", nodeImportHashes);
+	}
+
+	private void insert(String entityName, MithraTransactionalList<?> rows) {
+		LOGGER.info("Inserting {} {} rows", rows.size(), entityName);
+		try (ImportMetrics.Phase ignored = this.metrics.time("insert." + entityName, this.userId)) {
+			rows.insertAll();
+		}
+		this.metrics.countRows(entityName, this.userId, RowCounts.inserted(rows.size()));
+	}
+}
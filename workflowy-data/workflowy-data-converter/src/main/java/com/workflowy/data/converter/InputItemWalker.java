@@ -0,0 +1,37 @@
+package com.workflowy.data.converter;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.pojo.InputItem;
+
+/**
+ * Visits an already materialized tree of {@link InputItem}s in the same order as {@link StreamingBackupParser}.
+ */
+public final class InputItemWalker {
+
+	private InputItemWalker() {}
+
+	/**
+	 * @return the number of items visited
+	 */
+	public static int walk(@Nonnull List<InputItem> rootItems, @Nonnull BackupItemVisitor visitor) {
+		return walk(rootItems, null, visitor);
+	}
+
+	private static int walk(List<InputItem> inputItems, @Nullable String parentId, BackupItemVisitor visitor) {
+		int itemCount = 0;
+		int priority = 0;
+		for (InputItem inputItem : inputItems) {
+			if (inputItem.hasChildren()) {
+				itemCount += walk(inputItem.children(), inputItem.id(), visitor);
+			}
+			visitor.visitItem(inputItem, parentId, priority);
+			priority++;
+			itemCount++;
+		}
+		return itemCount;
+	}
+}
@@ -0,0 +1,52 @@
+package com.workflowy.data.converter;
+
+import javax.annotation.Nonnull;
+
+import cool.klass.data.store.DataStore;
+import cool.klass.dropwizard.configuration.AbstractKlassConfiguration;
+import io.dropwizard.Application;
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.setup.Environment;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ShutdownThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One-off migration that rewrites imported rows from random ids to the name-based ids in {@link ImportIds}.
+ */
+public class RekeyImportIdsCommand<T extends AbstractKlassConfiguration> extends EnvironmentCommand<T> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RekeyImportIdsCommand.class);
+
+	private final ContainerLifeCycle containerLifeCycle = new ContainerLifeCycle();
+
+	public RekeyImportIdsCommand(Application<T> application) {
+		super(
+			application,
+			"rekey-import-ids",
+			"Rewrite Mirror, NodeDate and NodeS3File history to content-derived ids."
+		);
+	}
+
+	@Override
+	protected void run(@Nonnull Environment environment, Namespace namespace, @Nonnull T configuration)
+		throws Exception {
+		LOGGER.info("Running {}.", this.getClass().getSimpleName());
+
+		environment.lifecycle().getManagedObjects().forEach(this.containerLifeCycle::addBean);
+		ShutdownThread.register(this.containerLifeCycle);
+		this.containerLifeCycle.start();
+
+		DataStore dataStore = configuration.getKlassFactory().getDataStoreFactory().createDataStore();
+		dataStore.runInTransaction((transaction) -> {
+			ImportIdRekeyer.rekeyAll();
+			return null;
+		});
+
+		this.containerLifeCycle.stop();
+
+		LOGGER.info("Completing {}.", this.getClass().getSimpleName());
+	}
+}
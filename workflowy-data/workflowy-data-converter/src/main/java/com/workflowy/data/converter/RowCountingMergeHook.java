@@ -0,0 +1,36 @@
+package com.workflowy.data.converter;
+
+import com.gs.fw.common.mithra.list.merge.MergeBuffer;
+import com.gs.fw.common.mithra.list.merge.MergeHook;
+
+/**
+ * Counts the rows a Reladomo merge inserts, updates and terminates, without changing what it does.
+ */
+final class RowCountingMergeHook<E> extends MergeHook<E> {
+
+	private long inserted;
+	private long updated;
+	private long terminated;
+
+	@Override
+	public InsertInstruction beforeInsertOfNew(E incoming) {
+		this.inserted++;
+		return super.beforeInsertOfNew(incoming);
+	}
+
+	@Override
+	public UpdateInstruction matchedWithDifferenceBeforeAttributeCopy(E existing, E incoming) {
+		this.updated++;
+		return super.matchedWithDifferenceBeforeAttributeCopy(existing, incoming);
+	}
+
+	@Override
+	public DeleteOrTerminateInstruction beforeDeleteOrTerminate(E existing, MergeBuffer<E> mergeBuffer) {
+		this.terminated++;
+		return super.beforeDeleteOrTerminate(existing, mergeBuffer);
+	}
+
+	RowCounts toRowCounts() {
+		return new RowCounts(this.inserted, this.updated, this.terminated);
+	}
+}
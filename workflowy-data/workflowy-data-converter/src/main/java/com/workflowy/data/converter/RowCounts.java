@@ -0,0 +1,16 @@
+package com.workflowy.data.converter;
+
+/**
+ * The rows of one entity written by a merge. An updated row of a temporal entity is chained out and inserted again,
+ * but counts only as updated.
+ */
+record RowCounts(long inserted, long updated, long terminated) {
+
+	static RowCounts inserted(long inserted) {
+		return new RowCounts(inserted, 0, 0);
+	}
+
+	static RowCounts terminated(long terminated) {
+		return new RowCounts(0, 0, terminated);
+	}
+}
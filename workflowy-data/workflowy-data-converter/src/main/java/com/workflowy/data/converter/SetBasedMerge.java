@@ -0,0 +1,350 @@
+package com.workflowy.data.converter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TimeZone;
+
+import javax.annotation.Nonnull;
+
+import com.gs.fw.common.mithra.MithraManagerProvider;
+import com.gs.fw.common.mithra.MithraObjectPortal;
+import com.gs.fw.common.mithra.MithraTransaction;
+import com.gs.fw.common.mithra.attribute.AsOfAttribute;
+import com.gs.fw.common.mithra.attribute.Attribute;
+import com.gs.fw.common.mithra.attribute.SingleColumnAttribute;
+import com.gs.fw.common.mithra.databasetype.DatabaseType;
+import com.gs.fw.common.mithra.finder.RelatedFinder;
+import com.workflowy.MirrorFinder;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeDateFinder;
+import com.workflowy.NodeMetadataFinder;
+import com.workflowy.NodeS3FileFinder;
+import com.workflowy.NodeTagMappingFinder;
+import com.workflowy.VirtualRootMappingFinder;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.list.fixed.ArrayAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the staged rows of one system-temporal entity with set-based SQL instead of Reladomo's in-memory merge.
+ *
+ * <p>The staged rows and the ids of the changed nodes are batch-inserted into transaction-local staging tables. One
+ * {@code UPDATE} then chains out every current row owned by a changed node that has no identical staged row, and one
+ * {@code INSERT ... SELECT} adds every staged row that has no current row with the same key. Existing rows are never
+ * loaded into memory, which makes this faster than {@link TargetedMerge}'s default path when many nodes changed.
+ *
+ * <p>The staging DDL is H2's. The merged entity's cache and every query cache are cleared afterwards, since Reladomo
+ * did not see the writes. Must run inside a transaction.
+ */
+final class SetBasedMerge {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SetBasedMerge.class);
+
+	private static final String STAGED_OWNER_TABLE = "STAGED_OWNER_ID";
+	private static final int BATCH_SIZE = 1000;
+
+	static final SetBasedMerge NODE_CONTENT = new SetBasedMerge(
+		"NodeContent",
+		NodeContentFinder.getFinderInstance(),
+		NodeContentFinder.system(),
+		Lists.immutable.with(NodeContentFinder.id()),
+		Lists.immutable.empty()
+	);
+
+	static final SetBasedMerge NODE_METADATA = new SetBasedMerge(
+		"NodeMetadata",
+		NodeMetadataFinder.getFinderInstance(),
+		NodeMetadataFinder.system(),
+		Lists.immutable.with(NodeMetadataFinder.nodeId()),
+		Lists.immutable.with(
+			NodeMetadataFinder.createdById(),
+			NodeMetadataFinder.createdOn(),
+			NodeMetadataFinder.lastUpdatedById()
+		)
+	);
+
+	static final SetBasedMerge NODE_TAG_MAPPING = new SetBasedMerge(
+		"NodeTagMapping",
+		NodeTagMappingFinder.getFinderInstance(),
+		NodeTagMappingFinder.system(),
+		Lists.immutable.with(NodeTagMappingFinder.nodeId()),
+		Lists.immutable.empty()
+	);
+
+	static final SetBasedMerge MIRROR = new SetBasedMerge(
+		"Mirror",
+		MirrorFinder.getFinderInstance(),
+		MirrorFinder.system(),
+		Lists.immutable.with(MirrorFinder.mirrorRootId(), MirrorFinder.mirrorNodeId()),
+		Lists.immutable.empty()
+	);
+
+	static final SetBasedMerge NODE_DATE = new SetBasedMerge(
+		"NodeDate",
+		NodeDateFinder.getFinderInstance(),
+		NodeDateFinder.system(),
+		Lists.immutable.with(NodeDateFinder.nodeId()),
+		Lists.immutable.empty()
+	);
+
+	static final SetBasedMerge NODE_S3_FILE = new SetBasedMerge(
+		"NodeS3File",
+		NodeS3FileFinder.getFinderInstance(),
+		NodeS3FileFinder.system(),
+		Lists.immutable.with(NodeS3FileFinder.nodeId()),
+		Lists.immutable.empty()
+	);
+
+	static final SetBasedMerge VIRTUAL_ROOT_MAPPING = new SetBasedMerge(
+		"VirtualRootMapping",
+		VirtualRootMappingFinder.getFinderInstance(),
+		VirtualRootMappingFinder.system(),
+		Lists.immutable.with(VirtualRootMappingFinder.nodeId()),
+		Lists.immutable.empty()
+	);
+
+	static final ImmutableList<SetBasedMerge> ALL = Lists.immutable.with(
+		NODE_CONTENT,
+		NODE_METADATA,
+		NODE_TAG_MAPPING,
+		MIRROR,
+		NODE_DATE,
+		NODE_S3_FILE,
+		VIRTUAL_ROOT_MAPPING
+	);
+
+	private final String entityName;
+	private final RelatedFinder<?> finder;
+	private final AsOfAttribute<?> systemAttribute;
+	private final ImmutableList<Attribute> dataAttributes;
+	private final ImmutableList<String> keyColumns;
+	private final ImmutableList<String> comparedColumns;
+	private final ImmutableList<String> ownerColumns;
+	private final String fromColumn;
+	private final String toColumn;
+	private final String stagedTable;
+
+	private SetBasedMerge(
+		@Nonnull String entityName,
+		@Nonnull RelatedFinder<?> finder,
+		@Nonnull AsOfAttribute<?> systemAttribute,
+		@Nonnull ImmutableList<Attribute> ownerAttributes,
+		@Nonnull ImmutableList<Attribute> ignoredAttributes
+	) {
+		this.entityName = Objects.requireNonNull(entityName);
+		this.finder = Objects.requireNonNull(finder);
+		this.systemAttribute = Objects.requireNonNull(systemAttribute);
+		this.fromColumn = columnName(systemAttribute.getFromAttribute());
+		this.toColumn = columnName(systemAttribute.getToAttribute());
+		this.dataAttributes = ArrayAdapter.adapt(finder.getPersistentAttributes())
+			.reject((attribute) -> this.isSystemColumn(columnName(attribute)))
+			.toImmutable();
+		this.keyColumns = ArrayAdapter.adapt(finder.getPrimaryKeyAttributes())
+			.collect(SetBasedMerge::columnName)
+			.reject(this::isSystemColumn)
+			.toImmutable();
+		ImmutableList<String> ignoredColumns = ignoredAttributes.collect(SetBasedMerge::columnName);
+		this.comparedColumns = this.dataAttributes
+			.collect(SetBasedMerge::columnName)
+			.reject((column) -> this.keyColumns.contains(column) || ignoredColumns.contains(column));
+		this.ownerColumns = ownerAttributes.collect(SetBasedMerge::columnName);
+		this.stagedTable = "STAGED_" + entityName.toUpperCase(Locale.ROOT);
+	}
+
+	String getEntityName() {
+		return this.entityName;
+	}
+
+	/**
+	 * Makes the current rows owned by {@code ownerIds} match {@code stagedRows}, which must hold exactly the staged rows
+	 * owned by those ids.
+	 *
+	 * @return the rows chained out as terminated and the rows added as inserted, since telling apart the updated rows
+	 * would take another query
+	 */
+	RowCounts merge(@Nonnull List<?> stagedRows, @Nonnull SetIterable<String> ownerIds) {
+		MithraTransaction transaction = MithraManagerProvider.getMithraManager().getCurrentTransaction();
+		transaction.executeBufferedOperations();
+		Timestamp systemTime = new Timestamp(transaction.getProcessingStartTime());
+		Timestamp infinity = this.systemAttribute.getInfinityDate();
+
+		DirectSqlTable table = DirectSqlTable.of(this.finder);
+		String tableName = table.tableName();
+		DatabaseType databaseType = table.databaseType();
+		TimeZone timeZone = table.timeZone();
+
+		RowCounts rowCounts;
+		try (Connection connection = DirectSqlTable.getConnection(this.finder)) {
+			this.createStagingTables(connection, tableName);
+			this.stageOwnerIds(connection, ownerIds);
+			this.stageRows(connection, stagedRows, databaseType, timeZone);
+
+			int chainedOut;
+			try (PreparedStatement statement = connection.prepareStatement(this.chainOutSql(tableName))) {
+				this.bindSystemTime(statement, 1, systemTime, databaseType, timeZone);
+				this.bindSystemTime(statement, 2, infinity, databaseType, timeZone);
+				chainedOut = statement.executeUpdate();
+			}
+
+			int inserted;
+			try (PreparedStatement statement = connection.prepareStatement(this.insertSql(tableName))) {
+				this.bindSystemTime(statement, 1, systemTime, databaseType, timeZone);
+				this.bindSystemTime(statement, 2, infinity, databaseType, timeZone);
+				this.bindSystemTime(statement, 3, infinity, databaseType, timeZone);
+				inserted = statement.executeUpdate();
+			}
+
+			LOGGER.info(
+				"Set-based merge of {}: staged {} rows, chained out {}, inserted {}",
+				this.entityName,
+				stagedRows.size(),
+				chainedOut,
+				inserted
+			);
+			rowCounts = new RowCounts(inserted, 0, chainedOut);
+		} catch (SQLException e) {
+			throw new RuntimeException("Set-based merge failed for " + this.entityName, e);
+		}
+
+		this.clearCaches();
+		return rowCounts;
+	}
+
+	/**
+	 * Reladomo did not see the writes, so neither the cached rows of the merged entity nor any cached query, including
+	 * those of other entities that deep-fetched it, may be used again.
+	 */
+	private void clearCaches() {
+		MithraObjectPortal portal = this.finder.getMithraObjectPortal();
+		portal.getCache().clear();
+		MithraManagerProvider.getMithraManager().clearAllQueryCaches();
+	}
+
+	/**
+	 * {@code TRANSACTIONAL} keeps H2 from committing the surrounding transaction on DDL, and rows are cleared with
+	 * {@code DELETE} rather than {@code TRUNCATE} for the same reason.
+	 */
+	private void createStagingTables(Connection connection, String tableName) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(
+				"CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS " + STAGED_OWNER_TABLE
+					+ " (\"ID\" VARCHAR(36) PRIMARY KEY) TRANSACTIONAL"
+			);
+			statement.execute(
+				"CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS " + this.stagedTable + " TRANSACTIONAL AS SELECT "
+					+ this.dataColumnList("") + " FROM " + tableName + " WHERE 1 = 0"
+			);
+			statement.execute("DELETE FROM " + STAGED_OWNER_TABLE);
+			statement.execute("DELETE FROM " + this.stagedTable);
+		}
+	}
+
+	private void stageOwnerIds(Connection connection, SetIterable<String> ownerIds) throws SQLException {
+		String sql = "INSERT INTO " + STAGED_OWNER_TABLE + " (\"ID\") VALUES (?)";
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			int batched = 0;
+			for (String ownerId : ownerIds) {
+				statement.setString(1, ownerId);
+				statement.addBatch();
+				if (++batched % BATCH_SIZE == 0) {
+					statement.executeBatch();
+				}
+			}
+			statement.executeBatch();
+		}
+	}
+
+	private void stageRows(
+		Connection connection,
+		List<?> stagedRows,
+		DatabaseType databaseType,
+		TimeZone timeZone
+	) throws SQLException {
+		String placeholders = this.dataAttributes.collect((attribute) -> "?").makeString(", ");
+		String sql =
+			"INSERT INTO " + this.stagedTable + " (" + this.dataColumnList("") + ") VALUES (" + placeholders + ")";
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			int batched = 0;
+			for (Object row : stagedRows) {
+				for (int i = 0; i < this.dataAttributes.size(); i++) {
+					this.dataAttributes.get(i).setSqlParameters(statement, row, i + 1, timeZone, databaseType);
+				}
+				statement.addBatch();
+				if (++batched % BATCH_SIZE == 0) {
+					statement.executeBatch();
+				}
+			}
+			statement.executeBatch();
+		}
+	}
+
+	/**
+	 * Parameters: the new system time, then infinity.
+	 */
+	private String chainOutSql(String tableName) {
+		String ownedByChangedNode = this.ownerColumns
+			.collect((column) -> "X." + quote(column) + " IN (SELECT \"ID\" FROM " + STAGED_OWNER_TABLE + ")")
+			.makeString("(", " OR ", ")");
+		String sameKey = this.keyColumns.collect((column) -> "S." + quote(column) + " = X." + quote(column))
+			.makeString(" AND ");
+		String sameValues = this.comparedColumns
+			.collect((column) -> " AND S." + quote(column) + " IS NOT DISTINCT FROM X." + quote(column))
+			.makeString("");
+		return "UPDATE " + tableName + " X SET " + quote(this.toColumn) + " = ?"
+			+ " WHERE X." + quote(this.toColumn) + " = ?"
+			+ " AND " + ownedByChangedNode
+			+ " AND NOT EXISTS (SELECT 1 FROM " + this.stagedTable + " S WHERE " + sameKey + sameValues + ")";
+	}
+
+	/**
+	 * Runs after {@link #chainOutSql}, so a current row with the same key is an unchanged one. Parameters: the new
+	 * system time, infinity, then infinity again.
+	 */
+	private String insertSql(String tableName) {
+		String sameKey = this.keyColumns.collect((column) -> "X." + quote(column) + " = S." + quote(column))
+			.makeString(" AND ");
+		return "INSERT INTO " + tableName + " (" + this.dataColumnList("") + ", " + quote(this.fromColumn) + ", "
+			+ quote(this.toColumn) + ")"
+			+ " SELECT " + this.dataColumnList("S.") + ", ?, ? FROM " + this.stagedTable + " S"
+			+ " WHERE NOT EXISTS (SELECT 1 FROM " + tableName + " X WHERE " + sameKey
+			+ " AND X." + quote(this.toColumn) + " = ?)";
+	}
+
+	private void bindSystemTime(
+		PreparedStatement statement,
+		int index,
+		Timestamp value,
+		DatabaseType databaseType,
+		TimeZone timeZone
+	) throws SQLException {
+		this.systemAttribute.getToAttribute().setSqlParameter(index, statement, value, timeZone, databaseType);
+	}
+
+	private String dataColumnList(String prefix) {
+		return this.dataAttributes.collect((attribute) -> prefix + quote(columnName(attribute))).makeString(", ");
+	}
+
+	private boolean isSystemColumn(String column) {
+		return column.equals(this.fromColumn) || column.equals(this.toColumn);
+	}
+
+	private static String columnName(Attribute attribute) {
+		return ((SingleColumnAttribute) attribute).getColumnName();
+	}
+
+	/**
+	 * Several columns, such as {@code TIMESTAMP} and {@code VALUE}, are keywords in H2.
+	 */
+	private static String quote(String column) {
+		return "\"" + column + "\"";
+	}
+}
@@ -0,0 +1,98 @@
+package com.workflowy.data.converter;
+
+import java.util.LinkedHashMap;
+
+import javax.annotation.Nonnull;
+
+import com.workflowy.Mirror;
+import com.workflowy.NodeDateList;
+import com.workflowy.NodeS3FileList;
+import com.workflowy.NodeTagMappingList;
+import com.workflowy.Tag;
+import com.workflowy.VirtualRootMappingList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectLongMap;
+import org.eclipse.collections.impl.map.mutable.MapAdapter;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectLongHashMap;
+
+/**
+ * The rows extracted from one backup file, waiting to be merged into the database.
+ *
+ * <p>Rows are only staged for nodes that changed since the previous import, but hashes are recorded for every node.
+ */
+public final class StagedImport {
+
+	// A compressed key reference and a long per slot, in a table kept at most half full
+	private static final int HASH_ENTRY_BYTES = 24;
+
+	private final StagedNodes nodes = new StagedNodes();
+	private final MutableMap<String, Tag> tags = MapAdapter.adapt(new LinkedHashMap<>());
+	private final NodeTagMappingList nodeTagMappings = new NodeTagMappingList();
+	private final MutableMap<String, Mirror> mirrors = MapAdapter.adapt(new LinkedHashMap<>());
+	private final NodeDateList nodeDates = new NodeDateList();
+	private final NodeS3FileList nodeS3Files = new NodeS3FileList();
+	private final VirtualRootMappingList virtualRootMappings = new VirtualRootMappingList();
+	private final MutableObjectLongMap<String> rowHashes = new ObjectLongHashMap<>();
+
+	/**
+	 * The node content and node metadata rows, keyed by node id.
+	 */
+	public StagedNodes getNodes() {
+		return this.nodes;
+	}
+
+	public MutableMap<String, Tag> getTags() {
+		return this.tags;
+	}
+
+	public NodeTagMappingList getNodeTagMappings() {
+		return this.nodeTagMappings;
+	}
+
+	public MutableMap<String, Mirror> getMirrors() {
+		return this.mirrors;
+	}
+
+	public NodeDateList getNodeDates() {
+		return this.nodeDates;
+	}
+
+	public NodeS3FileList getNodeS3Files() {
+		return this.nodeS3Files;
+	}
+
+	public VirtualRootMappingList getVirtualRootMappings() {
+		return this.virtualRootMappings;
+	}
+
+	/**
+	 * The row hash of every node in the backup, keyed by node id.
+	 */
+	public MutableObjectLongMap<String> getRowHashes() {
+		return this.rowHashes;
+	}
+
+	/**
+	 * An estimate of the heap held by the staged nodes and the hashes. The other rows are only staged for changed
+	 * nodes and are left out.
+	 */
+	public long estimateBytes() {
+		return this.nodes.estimateBytes() + (long) this.rowHashes.size() * HASH_ENTRY_BYTES;
+	}
+
+	/**
+	 * Appends the rows staged from items visited after this import's items, with the same outcome as if they had been
+	 * staged into this import directly: keyed rows keep their first position, tags and mirrors keep their first
+	 * instance, and node rows take the latest value.
+	 */
+	public void addAll(@Nonnull StagedImport later) {
+		this.nodes.addAll(later.nodes);
+		later.tags.forEachKeyValue(this.tags::putIfAbsent);
+		this.nodeTagMappings.addAll(later.nodeTagMappings);
+		later.mirrors.forEachKeyValue(this.mirrors::putIfAbsent);
+		this.nodeDates.addAll(later.nodeDates);
+		this.nodeS3Files.addAll(later.nodeS3Files);
+		this.virtualRootMappings.addAll(later.virtualRootMappings);
+		this.rowHashes.putAll(later.rowHashes);
+	}
+}
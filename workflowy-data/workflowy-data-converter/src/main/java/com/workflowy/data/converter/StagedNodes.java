@@ -0,0 +1,470 @@
+package com.workflowy.data.converter;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeContent;
+import com.workflowy.NodeContentList;
+import com.workflowy.NodeMetadata;
+import com.workflowy.NodeMetadataList;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.MutableIntLongMap;
+import org.eclipse.collections.api.map.primitive.MutableIntObjectMap;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.impl.map.mutable.primitive.IntLongHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+/**
+ * The {@link NodeContent} and {@link NodeMetadata} rows of a {@link StagedImport}, stored column by column.
+ *
+ * <p>Each staged node id gets a row index from an open-addressing dictionary. Flags, priorities and timestamps are
+ * kept in primitive arrays, layout modes and user ids as indexes into small string pools, and the rarely set original
+ * id and changes in sparse maps. A timestamp that does not fit its int column goes to a sparse map of longs. Reladomo
+ * objects are only created by {@link #toNodeContents} and {@link #toNodeMetadatas} when the rows are merged.
+ *
+ * <p>Not thread-safe.
+ */
+public final class StagedNodes {
+
+	private static final long WORKFLOWY_EPOCH_OFFSET = 1262304000L;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// Four compressed references, a short, four ints and two bytes
+	private static final int COLUMN_BYTES_PER_ROW = 36;
+	// Object header, fields and padding of a String and of its byte array
+	private static final int STRING_OVERHEAD_BYTES = 40;
+
+	private static final int HAS_CONTENT = 1;
+	private static final int HAS_METADATA = 1 << 1;
+	private static final int COMPLETED = 1 << 2;
+	private static final int VIRTUAL_ROOT = 1 << 3;
+	private static final int REFERENCES_ROOT = 1 << 4;
+	private static final int IN_CHAT_SET = 1 << 5;
+	private static final int IN_CHAT = 1 << 6;
+	private static final int MIRROR_ROOT_SET = 1 << 7;
+	private static final int MIRROR_ROOT = 1 << 8;
+
+	private int size;
+
+	// Open-addressing table of row index + 1, with linear probing; 0 marks an empty slot
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+
+	private String[] nodeIds = new String[INITIAL_CAPACITY];
+	private short[] flags = new short[INITIAL_CAPACITY];
+
+	private String[] parentIds = new String[INITIAL_CAPACITY];
+	private String[] names = new String[INITIAL_CAPACITY];
+	private String[] notes = new String[INITIAL_CAPACITY];
+
+	private int[] priorities = new int[INITIAL_CAPACITY];
+	private final TimestampColumn completedAts = new TimestampColumn();
+	private final TimestampColumn lastModifieds = new TimestampColumn();
+	private final TimestampColumn createdOns = new TimestampColumn();
+	private byte[] layoutModes = new byte[INITIAL_CAPACITY];
+	private byte[] userIds = new byte[INITIAL_CAPACITY];
+
+	private final StringPool layoutModePool = new StringPool();
+	private final StringPool userIdPool = new StringPool();
+	private final MutableIntObjectMap<String> originalIds = new IntObjectHashMap<>();
+	private final MutableIntObjectMap<String> changes = new IntObjectHashMap<>();
+
+	public int size() {
+		return this.size;
+	}
+
+	@Nonnull
+	public String getNodeId(int row) {
+		return this.nodeIds[row];
+	}
+
+	/**
+	 * @return the row of the node, or -1 if it is not staged
+	 */
+	public int indexOf(@Nonnull String nodeId) {
+		return this.table[this.findSlot(nodeId)] - 1;
+	}
+
+	/**
+	 * @return the row of the node, added after the existing rows if it is not staged yet
+	 */
+	public int stage(@Nonnull String nodeId) {
+		int slot = this.findSlot(nodeId);
+		if (this.table[slot] != 0) {
+			return this.table[slot] - 1;
+		}
+
+		if (this.size == this.nodeIds.length) {
+			this.growColumns();
+		}
+		int row = this.size++;
+		this.nodeIds[row] = nodeId;
+		this.table[slot] = row + 1;
+		if (this.size * 2 > this.table.length) {
+			this.growTable();
+		}
+		return row;
+	}
+
+	public void setContent(int row, @Nullable String parentId, @Nonnull String name, @Nullable String note) {
+		this.parentIds[row] = parentId;
+		this.names[row] = name;
+		this.notes[row] = note;
+		this.flags[row] |= HAS_CONTENT;
+	}
+
+	/**
+	 * Stages the metadata of a row and clears the optional metadata of an earlier call.
+	 *
+	 * <p>Timestamps are seconds since the Workflowy epoch, as in the backup. A node is completed if it has a completed
+	 * timestamp. The user is both the creator and the last updater.
+	 */
+	public void setMetadata(
+		int row,
+		int priority,
+		@Nullable Long completedTimestamp,
+		@Nullable Long lastModifiedTimestamp,
+		@Nullable Long createdTimestamp,
+		@Nonnull String userId
+	) {
+		this.flags[row] = (short) (this.flags[row] & HAS_CONTENT | HAS_METADATA);
+		this.setFlag(row, COMPLETED, completedTimestamp != null);
+		this.priorities[row] = priority;
+		this.completedAts.set(row, completedTimestamp);
+		this.lastModifieds.set(row, lastModifiedTimestamp);
+		this.createdOns.set(row, createdTimestamp);
+		this.layoutModes[row] = 0;
+		this.userIds[row] = this.userIdPool.indexOf(userId);
+		this.originalIds.remove(row);
+		this.changes.remove(row);
+	}
+
+	public void setLayoutMode(int row, @Nullable String layoutMode) {
+		this.layoutModes[row] = this.layoutModePool.indexOf(layoutMode);
+	}
+
+	public void setVirtualRoot(int row, boolean virtualRoot) {
+		this.setFlag(row, VIRTUAL_ROOT, virtualRoot);
+	}
+
+	public void setReferencesRoot(int row, boolean referencesRoot) {
+		this.setFlag(row, REFERENCES_ROOT, referencesRoot);
+	}
+
+	public void setInChat(int row, boolean inChat) {
+		this.setFlag(row, IN_CHAT_SET, true);
+		this.setFlag(row, IN_CHAT, inChat);
+	}
+
+	public void setMirrorRoot(int row, boolean mirrorRoot) {
+		this.setFlag(row, MIRROR_ROOT_SET, true);
+		this.setFlag(row, MIRROR_ROOT, mirrorRoot);
+	}
+
+	public void setOriginalId(int row, @Nonnull String originalId) {
+		this.originalIds.put(row, originalId);
+	}
+
+	public void setChanges(int row, @Nonnull String changesJson) {
+		this.changes.put(row, changesJson);
+	}
+
+	public boolean hasContent(int row) {
+		return (this.flags[row] & HAS_CONTENT) != 0;
+	}
+
+	public boolean hasMetadata(int row) {
+		return (this.flags[row] & HAS_METADATA) != 0;
+	}
+
+	/**
+	 * Creates the node contents of every row, in row order.
+	 */
+	public NodeContentList toNodeContents() {
+		NodeContentList nodeContents = new NodeContentList(this.size);
+		for (int row = 0; row < this.size; row++) {
+			if (this.hasContent(row)) {
+				nodeContents.add(this.toNodeContent(row));
+			}
+		}
+		return nodeContents;
+	}
+
+	/**
+	 * Creates the node contents of the given nodes that are staged, in the order of {@code nodeIds}.
+	 */
+	public NodeContentList toNodeContents(@Nonnull Iterable<String> nodeIds) {
+		NodeContentList nodeContents = new NodeContentList();
+		for (String nodeId : nodeIds) {
+			int row = this.indexOf(nodeId);
+			if (row >= 0 && this.hasContent(row)) {
+				nodeContents.add(this.toNodeContent(row));
+			}
+		}
+		return nodeContents;
+	}
+
+	/**
+	 * Creates the node metadatas of every row, in row order.
+	 */
+	public NodeMetadataList toNodeMetadatas() {
+		NodeMetadataList nodeMetadatas = new NodeMetadataList(this.size);
+		for (int row = 0; row < this.size; row++) {
+			if (this.hasMetadata(row)) {
+				nodeMetadatas.add(this.toNodeMetadata(row));
+			}
+		}
+		return nodeMetadatas;
+	}
+
+	/**
+	 * Creates the node metadatas of the given nodes that are staged, in the order of {@code nodeIds}.
+	 */
+	public NodeMetadataList toNodeMetadatas(@Nonnull Iterable<String> nodeIds) {
+		NodeMetadataList nodeMetadatas = new NodeMetadataList();
+		for (String nodeId : nodeIds) {
+			int row = this.indexOf(nodeId);
+			if (row >= 0 && this.hasMetadata(row)) {
+				nodeMetadatas.add(this.toNodeMetadata(row));
+			}
+		}
+		return nodeMetadatas;
+	}
+
+	public NodeContent toNodeContent(int row) {
+		NodeContent nodeContent = new NodeContent();
+		nodeContent.setId(this.nodeIds[row]);
+		nodeContent.setParentId(this.parentIds[row]);
+		nodeContent.setName(this.names[row]);
+		nodeContent.setNote(this.notes[row]);
+		return nodeContent;
+	}
+
+	public NodeMetadata toNodeMetadata(int row) {
+		String userId = this.userIdPool.get(this.userIds[row]);
+
+		NodeMetadata nodeMetadata = new NodeMetadata();
+		nodeMetadata.setNodeId(this.nodeIds[row]);
+		nodeMetadata.setPriority(this.priorities[row]);
+		nodeMetadata.setCompleted(this.isSet(row, COMPLETED));
+		nodeMetadata.setCompletedAt(this.completedAts.getTimestamp(row));
+		nodeMetadata.setCollapsed(false);
+		nodeMetadata.setLastModified(this.lastModifieds.getTimestamp(row));
+		nodeMetadata.setCreatedById(userId);
+		nodeMetadata.setCreatedOn(this.createdOns.getTimestamp(row));
+		nodeMetadata.setLastUpdatedById(userId);
+		nodeMetadata.setLayoutMode(this.layoutModePool.get(this.layoutModes[row]));
+		nodeMetadata.setVirtualRoot(this.isSet(row, VIRTUAL_ROOT));
+		nodeMetadata.setReferencesRoot(this.isSet(row, REFERENCES_ROOT));
+		if (this.isSet(row, IN_CHAT_SET)) {
+			nodeMetadata.setInChat(this.isSet(row, IN_CHAT));
+		}
+		if (this.isSet(row, MIRROR_ROOT_SET)) {
+			nodeMetadata.setMirrorRoot(this.isSet(row, MIRROR_ROOT));
+		}
+		String originalId = this.originalIds.get(row);
+		if (originalId != null) {
+			nodeMetadata.setOriginalId(originalId);
+		}
+		String changesJson = this.changes.get(row);
+		if (changesJson != null) {
+			nodeMetadata.setChanges(changesJson);
+		}
+		return nodeMetadata;
+	}
+
+	/**
+	 * An estimate of the heap held by the columns and by the node ids, names and notes, assuming compressed
+	 * references and Latin-1 strings. Parent ids are left out, since they are the parents' node ids.
+	 */
+	public long estimateBytes() {
+		long bytes = (long) this.nodeIds.length * COLUMN_BYTES_PER_ROW + (long) this.table.length * Integer.BYTES;
+		for (int row = 0; row < this.size; row++) {
+			bytes += estimateBytes(this.nodeIds[row]) + estimateBytes(this.names[row]) + estimateBytes(this.notes[row]);
+		}
+		return bytes;
+	}
+
+	private static long estimateBytes(@Nullable String string) {
+		return string == null ? 0 : STRING_OVERHEAD_BYTES + string.length();
+	}
+
+	/**
+	 * Stages the rows of {@code later} after this store's rows, as if they had been staged here directly.
+	 */
+	public void addAll(@Nonnull StagedNodes later) {
+		for (int laterRow = 0; laterRow < later.size; laterRow++) {
+			int row = this.stage(later.nodeIds[laterRow]);
+			if (later.hasContent(laterRow)) {
+				this.setContent(row, later.parentIds[laterRow], later.names[laterRow], later.notes[laterRow]);
+			}
+			if (later.hasMetadata(laterRow)) {
+				this.copyMetadata(row, later, laterRow);
+			}
+		}
+	}
+
+	private void copyMetadata(int row, StagedNodes later, int laterRow) {
+		this.flags[row] = (short) (this.flags[row] & HAS_CONTENT | later.flags[laterRow] & ~HAS_CONTENT);
+		this.priorities[row] = later.priorities[laterRow];
+		this.completedAts.copy(row, later.completedAts, laterRow);
+		this.lastModifieds.copy(row, later.lastModifieds, laterRow);
+		this.createdOns.copy(row, later.createdOns, laterRow);
+		this.layoutModes[row] = this.layoutModePool.indexOf(later.layoutModePool.get(later.layoutModes[laterRow]));
+		this.userIds[row] = this.userIdPool.indexOf(later.userIdPool.get(later.userIds[laterRow]));
+		putOrRemove(this.originalIds, row, later.originalIds.get(laterRow));
+		putOrRemove(this.changes, row, later.changes.get(laterRow));
+	}
+
+	private static void putOrRemove(MutableIntObjectMap<String> column, int row, @Nullable String value) {
+		if (value == null) {
+			column.remove(row);
+		} else {
+			column.put(row, value);
+		}
+	}
+
+	private boolean isSet(int row, int flag) {
+		return (this.flags[row] & flag) != 0;
+	}
+
+	private void setFlag(int row, int flag, boolean value) {
+		if (value) {
+			this.flags[row] |= flag;
+		} else {
+			this.flags[row] &= ~flag;
+		}
+	}
+
+	/**
+	 * @return the slot holding the node's row, or the empty slot where it would be added
+	 */
+	private int findSlot(String nodeId) {
+		int mask = this.table.length - 1;
+		int slot = spread(nodeId.hashCode()) & mask;
+		while (this.table[slot] != 0 && !this.nodeIds[this.table[slot] - 1].equals(nodeId)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void growTable() {
+		int[] grown = new int[this.table.length * 2];
+		int mask = grown.length - 1;
+		for (int row = 0; row < this.size; row++) {
+			int slot = spread(this.nodeIds[row].hashCode()) & mask;
+			while (grown[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			grown[slot] = row + 1;
+		}
+		this.table = grown;
+	}
+
+	private void growColumns() {
+		int capacity = this.nodeIds.length + (this.nodeIds.length >> 1);
+		this.nodeIds = Arrays.copyOf(this.nodeIds, capacity);
+		this.flags = Arrays.copyOf(this.flags, capacity);
+		this.parentIds = Arrays.copyOf(this.parentIds, capacity);
+		this.names = Arrays.copyOf(this.names, capacity);
+		this.notes = Arrays.copyOf(this.notes, capacity);
+		this.priorities = Arrays.copyOf(this.priorities, capacity);
+		this.completedAts.grow(capacity);
+		this.lastModifieds.grow(capacity);
+		this.createdOns.grow(capacity);
+		this.layoutModes = Arrays.copyOf(this.layoutModes, capacity);
+		this.userIds = Arrays.copyOf(this.userIds, capacity);
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Workflowy timestamps, in seconds since 2010. They fit an int until 2078, and any that does not is kept as a long
+	 * in a sparse map instead.
+	 */
+	private static final class TimestampColumn {
+
+		private static final int NO_TIMESTAMP = Integer.MIN_VALUE;
+		private static final int OVERFLOW = Integer.MIN_VALUE + 1;
+
+		private int[] values = new int[INITIAL_CAPACITY];
+		private final MutableIntLongMap overflows = new IntLongHashMap();
+
+		void set(int row, @Nullable Long workflowyTimestamp) {
+			this.overflows.remove(row);
+			if (workflowyTimestamp == null) {
+				this.values[row] = NO_TIMESTAMP;
+			} else if (workflowyTimestamp > OVERFLOW && workflowyTimestamp <= Integer.MAX_VALUE) {
+				this.values[row] = workflowyTimestamp.intValue();
+			} else {
+				this.values[row] = OVERFLOW;
+				this.overflows.put(row, workflowyTimestamp);
+			}
+		}
+
+		@Nullable
+		Timestamp getTimestamp(int row) {
+			int value = this.values[row];
+			if (value == NO_TIMESTAMP) {
+				return null;
+			}
+			long workflowyTimestamp = value == OVERFLOW ? this.overflows.get(row) : value;
+			return Timestamp.from(Instant.ofEpochSecond(workflowyTimestamp + WORKFLOWY_EPOCH_OFFSET));
+		}
+
+		void copy(int row, TimestampColumn later, int laterRow) {
+			int value = later.values[laterRow];
+			this.values[row] = value;
+			if (value == OVERFLOW) {
+				this.overflows.put(row, later.overflows.get(laterRow));
+			} else {
+				this.overflows.remove(row);
+			}
+		}
+
+		void grow(int capacity) {
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+	}
+
+	/**
+	 * A few distinct strings, each stored once and referenced by a byte. Index 0 is {@code null}.
+	 */
+	private static final class StringPool {
+
+		private static final int MAX_SIZE = 256;
+
+		private final MutableList<String> values = Lists.mutable.with((String) null);
+		private final MutableObjectIntMap<String> indexes = new ObjectIntHashMap<>();
+
+		byte indexOf(@Nullable String value) {
+			if (value == null) {
+				return 0;
+			}
+			int index = this.indexes.getIfAbsent(value, -1);
+			if (index < 0) {
+				if (this.values.size() == MAX_SIZE) {
+					String message = "Expected at most " + MAX_SIZE + " distinct values but got " + value;
+					throw new IllegalStateException(message);
+				}
+				index = this.values.size();
+				this.values.add(value);
+				this.indexes.put(value, index);
+			}
+			return (byte) index;
+		}
+
+		@Nullable
+		String get(byte index) {
+			return this.values.get(Byte.toUnsignedInt(index));
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.workflowy.data.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+
+/**
+ * Streams a Workflowy backup item by item instead of binding the whole file into a tree of {@link InputItem}s.
+ *
+ * <p>The {@code ch} arrays are walked depth-first with an explicit stack of open items in place of recursion. Only the
+ * scalar fields and the {@code metadata} object of the open items are held in memory, so peak memory is bounded by the
+ * depth of the outline rather than by the size of the file.
+ *
+ * <p>Items are handed to the {@link BackupItemVisitor} once their closing brace has been read, so every item is
+ * visited after all of its descendants. Siblings are visited in file order.
+ *
+ * <p>Object members are unordered, so an item's {@code id} may follow its {@code ch} array. Its children are then held
+ * until the item's closing brace, when their parent id is known.
+ */
+public final class StreamingBackupParser {
+
+	private static final List<Object> KNOWN_FIELDS = List.of("id", "nm", "no", "ct", "lm", "cp", "metadata", "ch");
+
+	private final ObjectMapper objectMapper;
+
+	public StreamingBackupParser(@Nonnull ObjectMapper objectMapper) {
+		this.objectMapper = Objects.requireNonNull(objectMapper);
+	}
+
+	/**
+	 * @return the number of items visited
+	 */
+	public int parse(@Nonnull InputStream inputStream, @Nonnull BackupItemVisitor visitor) throws IOException {
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(inputStream)) {
+			return this.parse(parser, visitor);
+		}
+	}
+
+	private int parse(JsonParser parser, BackupItemVisitor visitor) throws IOException {
+		if (parser.nextToken() != JsonToken.START_ARRAY) {
+			throw new JsonParseException(parser, "Expected a backup file to start with an array of items");
+		}
+
+		Deque<Frame> openItems = new ArrayDeque<>();
+		int rootCount = 0;
+		int itemCount = 0;
+
+		while (true) {
+			JsonToken token = parser.nextToken();
+			Frame current = openItems.peek();
+
+			if (token == JsonToken.START_OBJECT) {
+				Frame frame = current == null
+					? new Frame(null, rootCount++)
+					: new Frame(current, current.childCount++);
+				openItems.push(frame);
+			} else if (token == JsonToken.END_ARRAY) {
+				if (current == null) {
+					return itemCount;
+				}
+				// End of the current item's "ch" array; its remaining fields follow
+			} else {
+				throw new JsonParseException(parser, "Expected an item or the end of an item array but found " + token);
+			}
+
+			Frame frame = openItems.peek();
+			boolean enteredChildren = this.readFields(parser, frame);
+			if (!enteredChildren) {
+				openItems.pop();
+				itemCount += visit(frame, visitor);
+			}
+		}
+	}
+
+	/**
+	 * Visits the children held back until the item's id was read, then the item itself, unless its own parent's id is
+	 * still unknown.
+	 *
+	 * @return the number of items visited
+	 */
+	private static int visit(Frame frame, BackupItemVisitor visitor) {
+		int visitedCount = 0;
+		for (HeldItem child : frame.heldChildren) {
+			visitor.visitItem(child.inputItem(), frame.id, child.priority());
+			visitedCount++;
+		}
+
+		if (frame.parent != null && frame.parent.id == null) {
+			frame.parent.heldChildren.add(new HeldItem(frame.toInputItem(), frame.priority));
+			return visitedCount;
+		}
+		String parentId = frame.parent == null ? null : frame.parent.id;
+		visitor.visitItem(frame.toInputItem(), parentId, frame.priority);
+		return visitedCount + 1;
+	}
+
+	/**
+	 * Reads fields of the current item until its closing brace or the start of its {@code ch} array.
+	 *
+	 * @return true if the parser is now positioned inside the item's {@code ch} array
+	 */
+	private boolean readFields(JsonParser parser, Frame frame) throws IOException {
+		JsonToken token = parser.nextToken();
+		while (token == JsonToken.FIELD_NAME) {
+			String fieldName = parser.currentName();
+			JsonToken valueToken = parser.nextToken();
+			switch (fieldName) {
+				case "id" -> frame.id = this.readString(parser, valueToken);
+				case "nm" -> frame.name = this.readString(parser, valueToken);
+				case "no" -> frame.note = this.readString(parser, valueToken);
+				case "ct" -> frame.createdTimestamp = this.readLong(parser, valueToken);
+				case "lm" -> frame.lastModifiedTimestamp = this.readLong(parser, valueToken);
+				case "cp" -> frame.completedTimestamp = this.readLong(parser, valueToken);
+				case "metadata" -> frame.metadata = this.objectMapper.readValue(parser, InputMetadata.class);
+				case "ch" -> {
+					if (valueToken == JsonToken.START_ARRAY) {
+						return true;
+					}
+					if (valueToken != JsonToken.VALUE_NULL) {
+						throw new JsonParseException(parser, "Expected 'ch' to be an array but found " + valueToken);
+					}
+				}
+				default -> this.skipUnknownField(parser, fieldName);
+			}
+			token = parser.nextToken();
+		}
+
+		if (token != JsonToken.END_OBJECT) {
+			throw new JsonParseException(parser, "Expected a field name or the end of an item but found " + token);
+		}
+		return false;
+	}
+
+	private void skipUnknownField(JsonParser parser, String fieldName) throws IOException {
+		if (this.objectMapper.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)) {
+			throw UnrecognizedPropertyException.from(parser, InputItem.class, fieldName, KNOWN_FIELDS);
+		}
+		parser.skipChildren();
+	}
+
+	/**
+	 * Reads the common tokens directly, and leaves any other to data binding, so that it coerces or rejects them
+	 * exactly as binding the whole item did.
+	 */
+	@Nullable
+	private String readString(JsonParser parser, JsonToken valueToken) throws IOException {
+		return switch (valueToken) {
+			case VALUE_STRING -> parser.getText();
+			case VALUE_NULL -> null;
+			default -> this.objectMapper.readValue(parser, String.class);
+		};
+	}
+
+	@Nullable
+	private Long readLong(JsonParser parser, JsonToken valueToken) throws IOException {
+		return switch (valueToken) {
+			case VALUE_NUMBER_INT -> parser.getLongValue();
+			case VALUE_NULL -> null;
+			default -> this.objectMapper.readValue(parser, Long.class);
+		};
+	}
+
+	private record HeldItem(InputItem inputItem, int priority) {}
+
+	private static final class Frame {
+
+		@Nullable
+		private final Frame parent;
+
+		private final int priority;
+		private int childCount;
+
+		private String id;
+		private String name;
+		private String note;
+		private Long createdTimestamp;
+		private Long lastModifiedTimestamp;
+		private Long completedTimestamp;
+		private InputMetadata metadata;
+
+		// Children closed before this item's id was read
+		private final List<HeldItem> heldChildren = new ArrayList<>(0);
+
+		private Frame(@Nullable Frame parent, int priority) {
+			this.parent = parent;
+			this.priority = priority;
+		}
+
+		private InputItem toInputItem() {
+			return new InputItem(
+				this.id,
+				this.name,
+				this.note,
+				this.createdTimestamp,
+				this.lastModifiedTimestamp,
+				this.completedTimestamp,
+				this.metadata,
+				null
+			);
+		}
+	}
+}
@@ -0,0 +1,464 @@
+package com.workflowy.data.converter;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import com.gs.fw.common.mithra.MithraList;
+import com.gs.fw.common.mithra.MithraManagerProvider;
+import com.gs.fw.common.mithra.finder.Operation;
+import com.gs.fw.common.mithra.list.merge.TopLevelMergeOptions;
+import com.workflowy.Mirror;
+import com.workflowy.MirrorFinder;
+import com.workflowy.MirrorList;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeContentList;
+import com.workflowy.NodeDate;
+import com.workflowy.NodeDateFinder;
+import com.workflowy.NodeDateList;
+import com.workflowy.NodeImportHash;
+import com.workflowy.NodeImportHashFinder;
+import com.workflowy.NodeImportHashList;
+import com.workflowy.NodeMetadata;
+import com.workflowy.NodeMetadataFinder;
+import com.workflowy.NodeMetadataList;
+import com.workflowy.NodeS3File;
+import com.workflowy.NodeS3FileFinder;
+import com.workflowy.NodeS3FileList;
+import com.workflowy.NodeTagMapping;
+import com.workflowy.NodeTagMappingFinder;
+import com.workflowy.NodeTagMappingList;
+import com.workflowy.Tag;
+import com.workflowy.TagFinder;
+import com.workflowy.TagList;
+import com.workflowy.VirtualRootMapping;
+import com.workflowy.VirtualRootMappingFinder;
+import com.workflowy.VirtualRootMappingList;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Multimaps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.multimap.list.MutableListMultimap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.set.SetIterable;
+import org.eclipse.collections.impl.list.mutable.ListAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges a {@link StagedImport} into the database, touching only rows owned by changed nodes.
+ *
+ * <p>Existing rows are loaded with {@code in} operations over chunks of at most {@link #CHUNK_SIZE} node ids. Both
+ * sides of each merge are restricted by the same owner predicate, so rows of unchanged nodes are never loaded, and rows
+ * of deleted nodes are found by key and terminated.
+ *
+ * <p>Entities named in {@code setBasedEntities} are instead merged by {@link SetBasedMerge}, which never loads the
+ * existing rows.
+ *
+ * <p>Each step is timed as the phase {@code merge.<step>} of {@link ImportMetrics}, which also counts the rows each
+ * entity's merge inserts, updates and terminates.
+ *
+ * <p>Row hashes are kept per user, so backups of different users never compare against each other. Tags are shared by
+ * all users, so {@link WorkflowyDataConverter} runs the {@linkplain Step#isShared() shared steps} in transactions of
+ * their own.
+ *
+ * <p>Must run inside a transaction.
+ */
+final class TargetedMerge {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TargetedMerge.class);
+
+	static final int CHUNK_SIZE = 1000;
+
+	private final String userId;
+	private final StagedImport stagedImport;
+	private final SetIterable<String> changedNodeIds;
+	private final SetIterable<String> setBasedEntities;
+	private final ImportMetrics metrics;
+	private final ImmutableList<MutableSet<String>> chunks;
+
+	TargetedMerge(
+		@Nonnull String userId,
+		@Nonnull StagedImport stagedImport,
+		@Nonnull SetIterable<String> changedNodeIds,
+		@Nonnull SetIterable<String> setBasedEntities,
+		@Nonnull ImportMetrics metrics
+	) {
+		this.userId = Objects.requireNonNull(userId);
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.changedNodeIds = Objects.requireNonNull(changedNodeIds);
+		this.setBasedEntities = Objects.requireNonNull(setBasedEntities);
+		this.metrics = Objects.requireNonNull(metrics);
+		this.chunks = changedNodeIds.chunk(CHUNK_SIZE).collect(RichIterable::toSet).toList().toImmutable();
+	}
+
+	/**
+	 * The merge steps in the order they run. A step that is not shared only touches rows owned by the changed nodes, so
+	 * it can be split across several merges over disjoint subsets of them. A shared step touches rows that belong to no
+	 * single user and works on the whole file.
+	 */
+	enum Step {
+		TAGS(true),
+		NODE_CONTENT(false),
+		NODE_METADATA(false),
+		NODE_TAG_MAPPING(false),
+		ORPHANED_TAGS(true),
+		MIRROR(false),
+		NODE_DATE(false),
+		NODE_S3_FILE(false),
+		VIRTUAL_ROOT_MAPPING(false),
+		ROW_HASH(false);
+
+		private final boolean shared;
+
+		Step(boolean shared) {
+			this.shared = shared;
+		}
+
+		boolean isShared() {
+			return this.shared;
+		}
+	}
+
+	void mergeAll() {
+		LOGGER.info("Merging rows of {} changed nodes in {} chunks", this.changedNodeIds.size(), this.chunks.size());
+		for (Step step : Step.values()) {
+			this.merge(step);
+		}
+	}
+
+	/**
+	 * Runs every step except the shared ones.
+	 */
+	void mergeOwned() {
+		LOGGER.info("Merging rows of {} changed nodes in {} chunks", this.changedNodeIds.size(), this.chunks.size());
+		for (Step step : Step.values()) {
+			if (!step.isShared()) {
+				this.merge(step);
+			}
+		}
+	}
+
+	void merge(@Nonnull Step step) {
+		long processingStartTime = MithraManagerProvider.getMithraManager()
+			.getCurrentTransaction()
+			.getProcessingStartTime();
+		this.merge(step, new Timestamp(processingStartTime));
+	}
+
+	/**
+	 * @param ownedRowsTime the system time of the user's own rows, which is earlier than the transaction's when a
+	 *                      shared step runs after a later backup of another user
+	 */
+	void merge(@Nonnull Step step, @Nonnull Timestamp ownedRowsTime) {
+		try (ImportMetrics.Phase ignored = this.metrics.time("merge." + step, this.userId)) {
+			switch (step) {
+				case TAGS -> this.insertMissingTags(ownedRowsTime);
+				case NODE_CONTENT -> this.mergeNodeContents();
+				case NODE_METADATA -> this.mergeNodeMetadatas();
+				case NODE_TAG_MAPPING -> this.mergeNodeTagMappings();
+				case ORPHANED_TAGS -> this.terminateOrphanedTags();
+				case MIRROR -> this.mergeMirrors();
+				case NODE_DATE -> this.mergeNodeDates();
+				case NODE_S3_FILE -> this.mergeNodeS3Files();
+				case VIRTUAL_ROOT_MAPPING -> this.mergeVirtualRootMappings();
+				case ROW_HASH -> this.mergeRowHashes();
+			}
+		}
+	}
+
+	/**
+	 * Tags are only staged from changed nodes, so a tag still used by an unchanged node may be missing from the staged
+	 * set. Tags are therefore never terminated by a merge, only inserted here and terminated once no mapping uses them.
+	 *
+	 * <p>A missing tag is inserted from {@code ownedRowsTime}, when the user's mappings start referencing it, or from
+	 * the end of its last milestone if that is later. A current tag that starts after that time, because a later
+	 * backup of another user inserted it first, is restarted from that time, so no mapping references it before it
+	 * exists.
+	 */
+	private void insertMissingTags(Timestamp ownedRowsTime) {
+		MutableMap<String, Tag> stagedTags = this.stagedImport.getTags();
+		Timestamp infinity = TagFinder.system().getInfinityDate();
+		TagList staleRows = new TagList();
+		MutableList<Tag> insertedRows = Lists.mutable.empty();
+		int missingCount = 0;
+		int restartedCount = 0;
+		for (RichIterable<String> chunk : stagedTags.keysView().chunk(CHUNK_SIZE)) {
+			Operation operation = TagFinder.name().in(chunk.toSet()).and(TagFinder.system().equalsEdgePoint());
+			MutableListMultimap<String, Tag> historyByName = ListAdapter.adapt(TagFinder.findMany(operation))
+				.groupBy(Tag::getName);
+			for (String tagName : chunk) {
+				MutableList<Tag> history = historyByName.get(tagName);
+				Tag current = history.detect((row) -> row.getSystemTo().equals(infinity));
+				MutableList<Tag> ended = history.reject((row) -> row == current);
+				long lastEnd = ended.collectLong((row) -> row.getSystemTo().getTime()).maxIfEmpty(Long.MIN_VALUE);
+				Timestamp systemFrom = new Timestamp(Math.max(ownedRowsTime.getTime(), lastEnd));
+				if (current == null) {
+					insertedRows.add(milestone(stagedTags.get(tagName), systemFrom, infinity));
+					missingCount++;
+				} else if (current.getSystemFrom().after(systemFrom)) {
+					staleRows.addAll(history);
+					ended.collect((row) -> milestone(row, row.getSystemFrom(), row.getSystemTo()), insertedRows);
+					insertedRows.add(milestone(current, systemFrom, current.getSystemTo()));
+					restartedCount++;
+				}
+			}
+		}
+
+		LOGGER.info("Inserting {} new tags and restarting {} tags", missingCount, restartedCount);
+		staleRows.purgeAll();
+		insertedRows.forEach(Tag::insertForRecovery);
+		this.metrics.countRows("Tag", this.userId, new RowCounts(missingCount, restartedCount, 0));
+	}
+
+	private static Tag milestone(Tag tag, Timestamp systemFrom, Timestamp systemTo) {
+		Tag milestone = new Tag(systemFrom);
+		milestone.copyNonPrimaryKeyAttributesFrom(tag);
+		milestone.setName(tag.getName());
+		milestone.setSystemFrom(systemFrom);
+		milestone.setSystemTo(systemTo);
+		return milestone;
+	}
+
+	private void terminateOrphanedTags() {
+		TagList orphanedTags = TagFinder.findMany(TagFinder.nodes().notExists());
+		LOGGER.info("Terminating {} tags that are no longer used", orphanedTags.size());
+		orphanedTags.terminateAll();
+		this.metrics.countRows("Tag", this.userId, RowCounts.terminated(orphanedTags.size()));
+	}
+
+	private void mergeNodeContents() {
+		NodeContentList updatedContents = this.stagedImport.getNodes().toNodeContents(this.changedNodeIds);
+		if (this.mergedSetBased(SetBasedMerge.NODE_CONTENT, updatedContents)) {
+			return;
+		}
+
+		NodeContentList existingContents = new NodeContentList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingContents.addAll(NodeContentFinder.findMany(NodeContentFinder.id().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed node contents", updatedContents.size());
+		this.merge(
+			"NodeContent",
+			existingContents,
+			updatedContents,
+			new TopLevelMergeOptions<>(NodeContentFinder.getFinderInstance())
+		);
+	}
+
+	private void mergeNodeMetadatas() {
+		NodeMetadataList updatedMetadatas = this.stagedImport.getNodes().toNodeMetadatas(this.changedNodeIds);
+		if (this.mergedSetBased(SetBasedMerge.NODE_METADATA, updatedMetadatas)) {
+			return;
+		}
+
+		NodeMetadataList existingMetadatas = new NodeMetadataList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingMetadatas.addAll(NodeMetadataFinder.findMany(NodeMetadataFinder.nodeId().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed node metadatas", updatedMetadatas.size());
+		TopLevelMergeOptions<NodeMetadata> mergeOptions = new TopLevelMergeOptions<>(
+			NodeMetadataFinder.getFinderInstance()
+		);
+		mergeOptions.doNotCompare(
+			NodeMetadataFinder.createdById(),
+			NodeMetadataFinder.createdOn(),
+			NodeMetadataFinder.lastUpdatedById()
+		);
+		this.merge("NodeMetadata", existingMetadatas, updatedMetadatas, mergeOptions);
+	}
+
+	private void mergeNodeTagMappings() {
+		MutableListMultimap<String, NodeTagMapping> stagedMappings = Multimaps.mutable.list.empty();
+		for (NodeTagMapping mapping : this.stagedImport.getNodeTagMappings()) {
+			stagedMappings.put(mapping.getNodeId(), mapping);
+		}
+		NodeTagMappingList updatedMappings = new NodeTagMappingList();
+		this.changedNodeIds.forEach((nodeId) -> updatedMappings.addAll(stagedMappings.get(nodeId)));
+		if (this.mergedSetBased(SetBasedMerge.NODE_TAG_MAPPING, updatedMappings)) {
+			return;
+		}
+
+		NodeTagMappingList existingMappings = new NodeTagMappingList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingMappings.addAll(NodeTagMappingFinder.findMany(NodeTagMappingFinder.nodeId().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed node-tag mappings", updatedMappings.size());
+		this.merge(
+			"NodeTagMapping",
+			existingMappings,
+			updatedMappings,
+			new TopLevelMergeOptions<>(NodeTagMappingFinder.getFinderInstance())
+		);
+	}
+
+	/**
+	 * A mirror belongs to both of the nodes it links, so it is merged when either end changed. Backlink metadata names
+	 * the item that carries it as its source or target, so the item that produced a mirror is always one of its ends.
+	 */
+	private void mergeMirrors() {
+		MirrorList updatedMirrors = new MirrorList();
+		for (Mirror mirror : this.stagedImport.getMirrors().values()) {
+			if (
+				this.changedNodeIds.contains(mirror.getMirrorRootId())
+				|| this.changedNodeIds.contains(mirror.getMirrorNodeId())
+			) {
+				updatedMirrors.add(mirror);
+			}
+		}
+		if (this.mergedSetBased(SetBasedMerge.MIRROR, updatedMirrors)) {
+			return;
+		}
+
+		MutableMap<String, Mirror> existingById = Maps.mutable.empty();
+		for (MutableSet<String> chunk : this.chunks) {
+			MirrorList chunkMirrors = MirrorFinder.findMany(
+				MirrorFinder.mirrorRootId().in(chunk).or(MirrorFinder.mirrorNodeId().in(chunk))
+			);
+			for (Mirror mirror : chunkMirrors) {
+				existingById.put(mirror.getId(), mirror);
+			}
+		}
+		MirrorList existingMirrors = new MirrorList();
+		existingMirrors.addAll(existingById.values());
+
+		LOGGER.info("Merging {} changed mirrors", updatedMirrors.size());
+		this.merge(
+			"Mirror",
+			existingMirrors,
+			updatedMirrors,
+			new TopLevelMergeOptions<>(MirrorFinder.getFinderInstance())
+		);
+	}
+
+	private void mergeNodeDates() {
+		NodeDateList updatedDates = new NodeDateList();
+		for (NodeDate nodeDate : this.stagedImport.getNodeDates()) {
+			if (this.changedNodeIds.contains(nodeDate.getNodeId())) {
+				updatedDates.add(nodeDate);
+			}
+		}
+		if (this.mergedSetBased(SetBasedMerge.NODE_DATE, updatedDates)) {
+			return;
+		}
+
+		NodeDateList existingDates = new NodeDateList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingDates.addAll(NodeDateFinder.findMany(NodeDateFinder.nodeId().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed node dates", updatedDates.size());
+		this.merge(
+			"NodeDate",
+			existingDates,
+			updatedDates,
+			new TopLevelMergeOptions<>(NodeDateFinder.getFinderInstance())
+		);
+	}
+
+	private void mergeNodeS3Files() {
+		NodeS3FileList updatedS3Files = new NodeS3FileList();
+		for (NodeS3File nodeS3File : this.stagedImport.getNodeS3Files()) {
+			if (this.changedNodeIds.contains(nodeS3File.getNodeId())) {
+				updatedS3Files.add(nodeS3File);
+			}
+		}
+		if (this.mergedSetBased(SetBasedMerge.NODE_S3_FILE, updatedS3Files)) {
+			return;
+		}
+
+		NodeS3FileList existingS3Files = new NodeS3FileList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingS3Files.addAll(NodeS3FileFinder.findMany(NodeS3FileFinder.nodeId().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed node S3 files", updatedS3Files.size());
+		this.merge(
+			"NodeS3File",
+			existingS3Files,
+			updatedS3Files,
+			new TopLevelMergeOptions<>(NodeS3FileFinder.getFinderInstance())
+		);
+	}
+
+	private void mergeVirtualRootMappings() {
+		VirtualRootMappingList updatedVirtualRoots = new VirtualRootMappingList();
+		for (VirtualRootMapping mapping : this.stagedImport.getVirtualRootMappings()) {
+			if (this.changedNodeIds.contains(mapping.getNodeId())) {
+				updatedVirtualRoots.add(mapping);
+			}
+		}
+		if (this.mergedSetBased(SetBasedMerge.VIRTUAL_ROOT_MAPPING, updatedVirtualRoots)) {
+			return;
+		}
+
+		VirtualRootMappingList existingVirtualRoots = new VirtualRootMappingList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingVirtualRoots.addAll(VirtualRootMappingFinder.findMany(VirtualRootMappingFinder.nodeId().in(chunk)));
+		}
+
+		LOGGER.info("Merging {} changed virtual root mappings", updatedVirtualRoots.size());
+		this.merge(
+			"VirtualRootMapping",
+			existingVirtualRoots,
+			updatedVirtualRoots,
+			new TopLevelMergeOptions<>(VirtualRootMappingFinder.getFinderInstance())
+		);
+	}
+
+	private void mergeRowHashes() {
+		NodeImportHashList existingHashes = new NodeImportHashList();
+		for (MutableSet<String> chunk : this.chunks) {
+			existingHashes.addAll(NodeImportHashFinder.findMany(
+				NodeImportHashFinder.userId().eq(this.userId).and(NodeImportHashFinder.nodeId().in(chunk))
+			));
+		}
+
+		NodeImportHashList updatedHashes = new NodeImportHashList();
+		this.changedNodeIds.forEach((nodeId) -> {
+			if (this.stagedImport.getRowHashes().containsKey(nodeId)) {
+				NodeImportHash nodeImportHash = new NodeImportHash();
+				nodeImportHash.setUserId(this.userId);
+				nodeImportHash.setNodeId(nodeId);
+				nodeImportHash.setRowHash(this.stagedImport.getRowHashes().get(nodeId));
+				updatedHashes.add(nodeImportHash);
+			}
+		});
+
+		this.merge(
+			"NodeImportHash",
+			existingHashes,
+			updatedHashes,
+			new TopLevelMergeOptions<>(NodeImportHashFinder.getFinderInstance())
+		);
+	}
+
+	private <E> void merge(
+		String entityName,
+		MithraList<E> existingRows,
+		MithraList<E> updatedRows,
+		TopLevelMergeOptions<E> mergeOptions
+	) {
+		RowCountingMergeHook<E> mergeHook = new RowCountingMergeHook<>();
+		mergeOptions.setMergeHook(mergeHook);
+		existingRows.merge(updatedRows, mergeOptions);
+		this.metrics.countRows(entityName, this.userId, mergeHook.toRowCounts());
+	}
+
+	private boolean mergedSetBased(SetBasedMerge setBasedMerge, List<?> updatedRows) {
+		if (!this.setBasedEntities.contains(setBasedMerge.getEntityName())) {
+			return false;
+		}
+		RowCounts rowCounts = setBasedMerge.merge(updatedRows, this.changedNodeIds);
+		this.metrics.countRows(setBasedMerge.getEntityName(), this.userId, rowCounts);
+		return true;
+	}
+}
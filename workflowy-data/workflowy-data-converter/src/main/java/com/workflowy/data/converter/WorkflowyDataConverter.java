@@ -1,63 +1,51 @@
 package com.workflowy.data.converter;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.gs.fw.common.mithra.finder.Operation;
-import com.gs.fw.common.mithra.list.merge.TopLevelMergeOptions;
 import com.workflowy.DataImportTimestamp;
 import com.workflowy.DataImportTimestampFinder;
-import com.workflowy.Mirror;
-import com.workflowy.MirrorFinder;
-import com.workflowy.MirrorList;
-import com.workflowy.NodeContent;
-import com.workflowy.NodeContentFinder;
-import com.workflowy.NodeContentList;
-import com.workflowy.NodeDate;
-import com.workflowy.NodeDateFinder;
-import com.workflowy.NodeDateList;
-import com.workflowy.NodeMetadata;
-import com.workflowy.NodeMetadataFinder;
-import com.workflowy.NodeMetadataList;
-import com.workflowy.NodeS3File;
-import com.workflowy.NodeS3FileFinder;
-import com.workflowy.NodeS3FileList;
-import com.workflowy.NodeTagMapping;
-import com.workflowy.NodeTagMappingFinder;
-import com.workflowy.NodeTagMappingList;
-import com.workflowy.Tag;
-import com.workflowy.TagFinder;
-import com.workflowy.TagList;
 import com.workflowy.User;
 import com.workflowy.UserFinder;
-import com.workflowy.VirtualRootMapping;
-import com.workflowy.VirtualRootMappingFinder;
-import com.workflowy.VirtualRootMappingList;
-import com.workflowy.data.pojo.InputBacklinkMetadata;
-import com.workflowy.data.pojo.InputCalendarMetadata;
-import com.workflowy.data.pojo.InputItem;
-import com.workflowy.data.pojo.InputMetadata;
-import com.workflowy.data.pojo.InputMirrorMetadata;
-import com.workflowy.data.pojo.InputS3FileMetadata;
+import com.workflowy.data.converter.TargetedMerge.Step;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.converter.extractor.ParallelExtractionPipeline;
+import com.workflowy.data.converter.source.BackupSource;
+import com.workflowy.data.converter.source.BackupSources;
+import com.workflowy.data.converter.source.SequentialBackupReader;
 import cool.klass.data.store.DataStore;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.ImmutableList;
 import org.eclipse.collections.api.map.MutableMap;
-import org.eclipse.collections.impl.list.fixed.ArrayAdapter;
-import org.eclipse.collections.impl.map.mutable.MapAdapter;
-import org.eclipse.collections.impl.utility.MapIterate;
+import org.eclipse.collections.api.multimap.list.ImmutableListMultimap;
+import org.eclipse.collections.api.set.MutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,37 +53,66 @@ public final class WorkflowyDataConverter {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(WorkflowyDataConverter.class);
 
-	private static final long WORKFLOWY_EPOCH_OFFSET = 1262304000L;
 	private static final Pattern FILE_DATE_PATTERN = Pattern.compile("\\.(\\d{4}-\\d{2}-\\d{2})\\.");
 	private static final Pattern FILE_EMAIL_PATTERN = Pattern.compile("^\\((.+?)\\)\\.");
 
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	// Number of backup files that may be staged while an earlier file is still merging
+	private static final int STAGED_AHEAD = 1;
+
+	private static final String HIGH_WATERMARK_PREFIX = "workflowy:";
+	private static final String LEGACY_HIGH_WATERMARK_NAME = "workflowy";
+	private static final String SHARED_ROWS_TIMESTAMP_NAME = "workflowy-shared";
+
+	// Merges of different users hold the read lock, steps over rows shared by all users hold the write lock
+	private static final ReadWriteLock SHARED_ROWS_LOCK = new ReentrantReadWriteLock();
+
 	private final ObjectMapper objectMapper;
 	private final DataStore dataStore;
-	private final File backupFile;
+	private final BackupSource backupSource;
+	private final SequentialBackupReader backupReader;
 	private final String userId;
+	private final Instant backupInstant;
+	private final ImportBaseline baseline;
+	private final ImportOptions importOptions;
+	private final ImportMetrics metrics;
+
+	@Nullable
+	private final ForkJoinPool extractionPool;
 
-	private final MutableMap<String, NodeContent> nodeContents = MapAdapter.adapt(new LinkedHashMap<>());
-	private final MutableMap<String, NodeMetadata> nodeMetadatas = MapAdapter.adapt(new LinkedHashMap<>());
-	private final MutableMap<String, Tag> tags = MapAdapter.adapt(new LinkedHashMap<>());
-	private final NodeTagMappingList nodeTagMappings = new NodeTagMappingList();
-	private final MirrorList mirrors = new MirrorList();
-	private final NodeDateList nodeDates = new NodeDateList();
-	private final NodeS3FileList nodeS3Files = new NodeS3FileList();
-	private final VirtualRootMappingList virtualRootMappings = new VirtualRootMappingList();
+	private final StagedImport stagedImport = new StagedImport();
+
+	// Set by stageBackupFile() on the staging thread and read by commitBackupFile() on the importing thread
+	private String fileDigest;
+	private MutableSet<String> changedNodeIds;
+	private boolean initialLoad;
+	private long stagedBytes;
 
 	private WorkflowyDataConverter(
 		@Nonnull ObjectMapper objectMapper,
 		@Nonnull DataStore dataStore,
-		@Nonnull File backupFile
+		@Nonnull BackupSource backupSource,
+		@Nonnull SequentialBackupReader backupReader,
+		@Nonnull ImportBaseline baseline,
+		@Nonnull ImportOptions importOptions,
+		@Nonnull ImportMetrics metrics,
+		@Nullable ForkJoinPool extractionPool
 	) {
 		this.objectMapper = Objects.requireNonNull(objectMapper);
 		this.dataStore = Objects.requireNonNull(dataStore);
-		this.backupFile = Objects.requireNonNull(backupFile);
-		this.userId = extractUserIdFromFilename(backupFile);
+		this.backupSource = Objects.requireNonNull(backupSource);
+		this.backupReader = Objects.requireNonNull(backupReader);
+		this.userId = extractUserIdFromFilename(backupSource);
+		this.backupInstant = getFileTimestamp(backupSource);
+		this.baseline = Objects.requireNonNull(baseline);
+		this.importOptions = Objects.requireNonNull(importOptions);
+		this.metrics = Objects.requireNonNull(metrics);
+		this.extractionPool = extractionPool;
 	}
 
-	private static String extractUserIdFromFilename(File file) {
-		String fileName = file.getName();
+	private static String extractUserIdFromFilename(BackupSource backupSource) {
+		String fileName = backupSource.getName();
 		Matcher matcher = FILE_EMAIL_PATTERN.matcher(fileName);
 		if (matcher.find()) {
 			return matcher.group(1);
@@ -103,288 +120,321 @@ public final class WorkflowyDataConverter {
 		throw new IllegalArgumentException("Could not extract email from filename: " + fileName);
 	}
 
+	/**
+	 * Imports each user's backup files after that user's high watermark in timestamp order, with up to
+	 * {@code userConcurrency} users at a time. The user comes from the file name, and each user's files are compared
+	 * only with that user's previous import.
+	 *
+	 * <p>Files are staged (digested, parsed and diffed) on a background thread while the previous file of the same user
+	 * merges, with at most {@link #STAGED_AHEAD} staged files waiting. The staging thread reads the user's files in
+	 * order through one {@link SequentialBackupReader}, so a tar archive of backups is read once, digesting each entry
+	 * while parsing it. Merges of one user still commit one at a time in file order, so each transaction's system time
+	 * is later than the one before it.
+	 *
+	 * <p>A failing user does not stop the others. The first failure is rethrown once every user is done.
+	 *
+	 * <p>{@code importOptions} chooses how many users and threads import at a time, the merge engine per entity, and
+	 * whether each file commits in one transaction or in resumable chunks. {@code metrics} times each phase and counts
+	 * the rows written.
+	 */
 	public static void convert(
 		@Nonnull Path backupsPath,
 		@Nonnull ObjectMapper objectMapper,
 		@Nonnull DataStore dataStore,
-		int daysLimit
+		int daysLimit,
+		@Nonnull ImportOptions importOptions,
+		@Nonnull ImportMetrics metrics
 	) {
-		Instant highWatermark = WorkflowyDataConverter.getHighWatermark();
-
-		ImmutableList<File> filesToProcess = WorkflowyDataConverter.getBackupFiles(backupsPath)
-			.selectWith(WorkflowyDataConverter::isAfterHighWatermark, highWatermark)
-			.take(daysLimit);
-
-		if (filesToProcess.isEmpty()) {
-			LOGGER.info("No files to process after highWatermark {}", highWatermark);
+		ImmutableList<BackupSource> backupSources = BackupSources.list(backupsPath);
+		if (backupSources.isEmpty()) {
+			LOGGER.info("No backup files in {}", backupsPath);
 			return;
 		}
-
-		LOGGER.info("Processing {} files after highWatermark {}", filesToProcess.size(), highWatermark);
-		LOGGER.info("filesToProcess = {}", filesToProcess);
-
-		filesToProcess
-			.asLazy()
-			.collect((file) -> new WorkflowyDataConverter(objectMapper, dataStore, file))
-			.forEach(WorkflowyDataConverter::processBackupFile);
+		convert(backupSources, objectMapper, dataStore, daysLimit, importOptions, metrics);
 	}
 
-	private void processBackupFile() {
+	/**
+	 * Imports the given backups like {@link #convert(Path, ObjectMapper, DataStore, int, ImportOptions, ImportMetrics)}
+	 * imports every backup in a directory.
+	 */
+	public static void convert(
+		@Nonnull ImmutableList<BackupSource> backupSources,
+		@Nonnull ObjectMapper objectMapper,
+		@Nonnull DataStore dataStore,
+		int daysLimit,
+		@Nonnull ImportOptions importOptions,
+		@Nonnull ImportMetrics metrics
+	) {
+		ImmutableListMultimap<String, BackupSource> sourcesByUser = backupSources
+			.groupBy(WorkflowyDataConverter::extractUserIdFromFilename);
+		if (sourcesByUser.isEmpty()) {
+			return;
+		}
+
+		int userThreads = Math.min(importOptions.userConcurrency(), sourcesByUser.keysView().size());
+		LOGGER.info("Importing backups of {} users, {} at a time", sourcesByUser.keysView().size(), userThreads);
+
+		AtomicInteger userThreadCount = new AtomicInteger();
+		ExecutorService userExecutor = Executors.newFixedThreadPool(userThreads, (runnable) -> {
+			Thread thread = new Thread(runnable, "workflowy-user-import-" + userThreadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		ForkJoinPool extractionPool = importOptions.isParallelExtraction()
+			? new ForkJoinPool(importOptions.extractionThreads())
+			: null;
 		try {
-			this.processBackupFileOrThrow();
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to process backup file: " + this.backupFile, e);
+			MutableMap<String, Future<?>> userImports = Maps.mutable.empty();
+			sourcesByUser.forEachKeyMultiValues((userId, userSources) -> userImports.put(
+				userId,
+				userExecutor.submit(() -> WorkflowyDataConverter.convertUser(
+					userId,
+					Lists.immutable.withAll(userSources),
+					objectMapper,
+					dataStore,
+					daysLimit,
+					importOptions,
+					metrics,
+					extractionPool
+				))
+			));
+
+			RuntimeException failure = null;
+			for (String userId : userImports.keysView()) {
+				try {
+					await(userImports.get(userId), "the import of " + userId);
+				} catch (RuntimeException e) {
+					LOGGER.error("Failed to import backups of {}", userId, e);
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			userExecutor.shutdownNow();
+			if (extractionPool != null) {
+				extractionPool.shutdownNow();
+			}
 		}
 	}
 
-	private void processBackupFileOrThrow() throws IOException {
-		LOGGER.info("Processing backup file: {}", this.backupFile);
-
-		List<InputItem> rootItems = this.objectMapper.readValue(this.backupFile, new TypeReference<>() {});
-
-		Instant backupInstant = getFileTimestamp(this.backupFile);
-
-		LOGGER.info("Pass 1: Creating nodes from {} root items", rootItems.size());
-		this.processNodesPass1(rootItems, null, 0);
-		LOGGER.info(
-			"Created {} node contents and {} node metadatas",
-			this.nodeContents.size(),
-			this.nodeMetadatas.size()
-		);
-
-		LOGGER.info("Pass 2: Extracting tags");
-		this.extractTagsFromNodes();
-		LOGGER.info("Extracted {} tags and {} node-tag mappings", this.tags.size(), this.nodeTagMappings.size());
-
-		LOGGER.info("Pass 3: Processing metadata (mirrors, dates, S3 files, virtual roots)");
-		this.processMetadata(rootItems);
-		LOGGER.info(
-			"Created {} mirrors, {} node dates, {} S3 files, {} virtual root mappings",
-			this.mirrors.size(),
-			this.nodeDates.size(),
-			this.nodeS3Files.size(),
-			this.virtualRootMappings.size()
-		);
+	private static void convertUser(
+		String userId,
+		ImmutableList<BackupSource> backupSources,
+		ObjectMapper objectMapper,
+		DataStore dataStore,
+		int daysLimit,
+		ImportOptions importOptions,
+		ImportMetrics metrics,
+		@Nullable ForkJoinPool extractionPool
+	) {
+		DataImportTimestamp workflowyTimestamp = WorkflowyDataConverter.findHighWatermark(userId);
+		Instant highWatermark = Optional.ofNullable(workflowyTimestamp)
+			.map(DataImportTimestamp::getTimestamp)
+			.map(Timestamp::toInstant)
+			.orElse(Instant.MIN);
+		LOGGER.info("High watermark of {}: {}", userId, highWatermark);
 
-		this.mergeIntoDatabase(backupInstant);
-	}
+		ImmutableList<BackupSource> filesToProcess = backupSources
+			.selectWith(WorkflowyDataConverter::isAfterHighWatermark, highWatermark)
+			.take(daysLimit);
 
-	private void processNodesPass1(List<InputItem> inputItems, String parentId, int startPriority) {
-		int priority = startPriority;
-		for (InputItem inputItem : inputItems) {
-			NodeContent nodeContent = this.createNodeContent(inputItem, parentId);
-			NodeMetadata nodeMetadata = this.createNodeMetadata(inputItem, priority);
-			this.nodeContents.put(inputItem.id(), nodeContent);
-			this.nodeMetadatas.put(inputItem.id(), nodeMetadata);
-			priority++;
-
-			if (inputItem.hasChildren()) {
-				this.processNodesPass1(inputItem.children(), inputItem.id(), 0);
-			}
+		if (filesToProcess.isEmpty()) {
+			LOGGER.info("No files of {} to process after highWatermark {}", userId, highWatermark);
+			return;
 		}
-	}
 
-	private NodeContent createNodeContent(InputItem inputItem, String parentId) {
-		NodeContent nodeContent = new NodeContent();
-		nodeContent.setId(inputItem.id());
-		nodeContent.setParentId(parentId);
-		nodeContent.setName(inputItem.name() != null ? inputItem.name() : "");
-		nodeContent.setNote(inputItem.note());
-		return nodeContent;
-	}
+		LOGGER.info("Processing {} files of {} after highWatermark {}", filesToProcess.size(), userId, highWatermark);
+		LOGGER.info("filesToProcess = {}", filesToProcess);
 
-	private NodeMetadata createNodeMetadata(InputItem inputItem, int priority) {
-		NodeMetadata nodeMetadata = new NodeMetadata();
-		nodeMetadata.setNodeId(inputItem.id());
-		nodeMetadata.setPriority(priority);
-		nodeMetadata.setCompleted(inputItem.isCompleted());
-		nodeMetadata.setCompletedAt(convertWorkflowyTimestamp(inputItem.completedTimestamp()));
-		nodeMetadata.setCollapsed(false);
-		nodeMetadata.setLastModified(convertWorkflowyTimestamp(inputItem.lastModifiedTimestamp()));
-		nodeMetadata.setCreatedById(this.userId);
-		nodeMetadata.setCreatedOn(convertWorkflowyTimestamp(inputItem.createdTimestamp()));
-		nodeMetadata.setLastUpdatedById(this.userId);
-
-		InputMetadata metadata = inputItem.metadata();
-		if (metadata != null) {
-			nodeMetadata.setLayoutMode(metadata.layoutMode());
-			nodeMetadata.setVirtualRoot(Boolean.TRUE.equals(metadata.isVirtualRoot()));
-			nodeMetadata.setReferencesRoot(Boolean.TRUE.equals(metadata.isReferencesRoot()));
-
-			if (metadata.ai() != null) {
-				nodeMetadata.setInChat(metadata.ai().inChat());
-			}
+		ImportBaseline baseline = ImportBaseline.load(
+			userId,
+			workflowyTimestamp == null ? null : workflowyTimestamp.getDigest()
+		);
 
-			if (metadata.mirror() != null) {
-				if (metadata.mirror().isMirrorRoot() != null) {
-					nodeMetadata.setMirrorRoot(metadata.mirror().isMirrorRoot());
-				}
-				if (metadata.mirror().originalId() != null) {
-					nodeMetadata.setOriginalId(metadata.mirror().originalId());
+		ExecutorService stagingExecutor = Executors.newSingleThreadExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "workflowy-backup-staging-" + userId);
+			thread.setDaemon(true);
+			return thread;
+		});
+		SequentialBackupReader backupReader = new SequentialBackupReader();
+		int filesRemaining = filesToProcess.size();
+		metrics.setFilesRemaining(userId, filesRemaining);
+		try {
+			Deque<Future<WorkflowyDataConverter>> stagedConverters = new ArrayDeque<>();
+			for (BackupSource backupSource : filesToProcess) {
+				WorkflowyDataConverter converter = new WorkflowyDataConverter(
+					objectMapper,
+					dataStore,
+					backupSource,
+					backupReader,
+					baseline,
+					importOptions,
+					metrics,
+					extractionPool
+				);
+				stagedConverters.add(stagingExecutor.submit(() -> {
+					converter.stageBackupFile();
+					return converter;
+				}));
+				if (stagedConverters.size() > STAGED_AHEAD) {
+					await(stagedConverters.remove(), "a staged backup file").commitBackupFile();
+					metrics.setFilesRemaining(userId, --filesRemaining);
 				}
 			}
-
-			// metadata.originalId takes precedence if both are present
-			if (metadata.originalId() != null) {
-				nodeMetadata.setOriginalId(metadata.originalId());
-			}
-
-			if (MapIterate.notEmpty(metadata.changes())) {
-				try {
-					nodeMetadata.setChanges(this.objectMapper.writeValueAsString(metadata.changes()));
-				} catch (Exception e) {
-					LOGGER.warn("Failed to serialize changes for node {}: {}", inputItem.id(), e.getMessage());
-				}
+			while (!stagedConverters.isEmpty()) {
+				await(stagedConverters.remove(), "a staged backup file").commitBackupFile();
+				metrics.setFilesRemaining(userId, --filesRemaining);
 			}
+		} finally {
+			stagingExecutor.shutdownNow();
+			backupReader.close();
+			metrics.clear(userId);
 		}
-		return nodeMetadata;
 	}
 
-	private void extractTagsFromNodes() {
-		for (NodeContent nodeContent : this.nodeContents.values()) {
-			this.extractTagsFromName(nodeContent);
+	private static <T> T await(Future<T> future, String description) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for " + description, e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
 		}
 	}
 
-	private void extractTagsFromName(NodeContent nodeContent) {
-		String name = nodeContent.getName();
-		if (name == null || name.isEmpty()) {
-			return;
-		}
-
-		List<String> extractedTags = HashtagExtractor.extractHashtags(name);
-
-		for (String tagName : extractedTags) {
-			this.tags.computeIfAbsent(tagName, (t) -> {
-					Tag newTag = new Tag();
-					newTag.setName(t);
-					newTag.setColor(null);
-					return newTag;
-				});
-
-			NodeTagMapping mapping = new NodeTagMapping();
-			mapping.setNodeId(nodeContent.getId());
-			mapping.setTagName(tagName);
-			this.nodeTagMappings.add(mapping);
+	private void stageBackupFile() {
+		try {
+			this.stageBackupFileOrThrow();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to process backup file: " + this.backupSource, e);
 		}
 	}
 
-	private void processMetadata(List<InputItem> inputItems) {
-		for (InputItem inputItem : inputItems) {
-			this.processInputItemMetadata(inputItem);
-			if (inputItem.hasChildren()) {
-				this.processMetadata(inputItem.children());
+	/**
+	 * Computes everything the merge needs without touching the database, and advances the in-memory baseline so the
+	 * next file can be staged against this one before this one has merged.
+	 */
+	private void stageBackupFileOrThrow() throws IOException {
+		LOGGER.info("Staging backup file: {}", this.backupSource);
+
+		// An archive entry is read in one pass with the entries around it, so it is digested while it is parsed. Any
+		// other backup can be reopened, so it is digested first and an identical one is never parsed.
+		MessageDigest entryDigest = null;
+		if (this.backupSource.isArchiveEntry()) {
+			entryDigest = newMessageDigest();
+		} else {
+			try (ImportMetrics.Phase ignored = this.metrics.time("digest", this.userId)) {
+				this.fileDigest = computeDigest(this.backupSource);
+			}
+			if (this.skipIfIdentical()) {
+				return;
 			}
 		}
-	}
 
-	private void processInputItemMetadata(InputItem inputItem) {
-		InputMetadata metadata = inputItem.metadata();
-		if (metadata == null) {
-			return;
+		LOGGER.info("Extracting nodes, metadata, tags, mirrors, dates, S3 files and virtual roots in a single pass");
+		int itemCount;
+		try (
+			ImportMetrics.Phase ignored = this.metrics.time("parse", this.userId);
+			InputStream inputStream = this.openBackup(entryDigest)
+		) {
+			itemCount = this.extractionPool == null
+				? this.extract(inputStream)
+				: this.extractInParallel(inputStream, this.extractionPool);
 		}
-
-		if (metadata.hasMirror()) {
-			this.processMirrorMetadata(inputItem.id(), metadata.mirror());
+		if (entryDigest != null) {
+			this.fileDigest = HexFormat.of().formatHex(entryDigest.digest());
+			if (this.skipIfIdentical()) {
+				return;
+			}
 		}
 
-		if (metadata.hasBacklink()) {
-			this.processBacklinkMetadata(metadata.backlink());
-		}
+		// A chunked initial load that fails part way leaves rows behind, so it must be able to resume as a merge.
+		// Whether another user's import already stored some of the nodes is only checked in the merge's transaction.
+		this.initialLoad = this.baseline.isEmpty() && !this.importOptions.isChunked();
 
-		if (metadata.hasCalendar()) {
-			this.processCalendarMetadata(inputItem.id(), metadata.calendar());
-		}
+		LOGGER.info("Staged {} nodes from {} items", this.stagedImport.getNodes().size(), itemCount);
+		LOGGER.info(
+			"Extracted {} tags and {} node-tag mappings",
+			this.stagedImport.getTags().size(),
+			this.stagedImport.getNodeTagMappings().size()
+		);
+		LOGGER.info(
+			"Created {} mirrors, {} node dates, {} S3 files, {} virtual root mappings",
+			this.stagedImport.getMirrors().size(),
+			this.stagedImport.getNodeDates().size(),
+			this.stagedImport.getNodeS3Files().size(),
+			this.stagedImport.getVirtualRootMappings().size()
+		);
 
-		if (metadata.s3File() != null) {
-			this.processS3FileMetadata(inputItem.id(), metadata.s3File());
+		try (ImportMetrics.Phase ignored = this.metrics.time("diff", this.userId)) {
+			this.changedNodeIds = this.baseline.getChangedNodeIds(this.stagedImport.getRowHashes());
+			this.baseline.advanceTo(this.fileDigest, this.stagedImport.getRowHashes());
 		}
+		LOGGER.info(
+			"{} nodes are new, changed or deleted since the previous import ({} items in this backup)",
+			this.changedNodeIds.size(),
+			itemCount
+		);
 
-		if (MapIterate.notEmpty(metadata.virtualRootIds())) {
-			this.processVirtualRootIds(inputItem.id(), metadata.virtualRootIds());
-		}
+		this.stagedBytes = this.stagedImport.estimateBytes();
+		this.metrics.addStagedBytes(this.userId, this.stagedBytes);
 	}
 
-	private void processMirrorMetadata(String nodeId, InputMirrorMetadata mirrorMeta) {
-		for (String sourceId : mirrorMeta.getMirrorSourceIds()) {
-			Mirror mirror = new Mirror();
-			mirror.setId(UUID.randomUUID().toString());
-			mirror.setMirrorRootId(sourceId);
-			mirror.setMirrorNodeId(nodeId);
-			mirror.setBacklink(false);
-			this.mirrors.add(mirror);
-		}
-
-		for (String sourceId : mirrorMeta.getBacklinkMirrorIds()) {
-			Mirror mirror = new Mirror();
-			mirror.setId(UUID.randomUUID().toString());
-			mirror.setMirrorRootId(sourceId);
-			mirror.setMirrorNodeId(nodeId);
-			mirror.setBacklink(true);
-			this.mirrors.add(mirror);
+	private boolean skipIfIdentical() {
+		if (!this.baseline.hasFileDigest(this.fileDigest)) {
+			return false;
 		}
+		LOGGER.info("Backup file is identical to the previous import, only advancing the high watermark");
+		this.changedNodeIds = Sets.mutable.empty();
+		return true;
 	}
 
-	private void processBacklinkMetadata(InputBacklinkMetadata backlinkMeta) {
-		if (backlinkMeta.sourceId() != null && backlinkMeta.targetId() != null) {
-			Mirror mirror = new Mirror();
-			mirror.setId(UUID.randomUUID().toString());
-			mirror.setMirrorRootId(backlinkMeta.sourceId());
-			mirror.setMirrorNodeId(backlinkMeta.targetId());
-			mirror.setBacklink(true);
-			this.mirrors.add(mirror);
-		}
+	private InputStream openBackup(@Nullable MessageDigest entryDigest) throws IOException {
+		InputStream inputStream = this.backupReader.open(this.backupSource);
+		return entryDigest == null ? inputStream : new DrainingDigestInputStream(inputStream, entryDigest);
 	}
 
-	private void processCalendarMetadata(String nodeId, InputCalendarMetadata calendarMeta) {
-		if (calendarMeta.date() != null) {
-			Timestamp dateValue = parseCalendarDate(calendarMeta.date());
-			if (dateValue != null) {
-				NodeDate nodeDate = new NodeDate();
-				nodeDate.setId(UUID.randomUUID().toString());
-				nodeDate.setNodeId(nodeId);
-				nodeDate.setDateValue(dateValue);
-				nodeDate.setRoot(calendarMeta.isRoot());
-				nodeDate.setLevel(calendarMeta.level());
-				nodeDate.setDateId(calendarMeta.dateId());
-				nodeDate.setTimestamp(calendarMeta.timestamp());
-				if (calendarMeta.value() != null) {
-					nodeDate.setValue(String.valueOf(calendarMeta.value()));
-				}
-				this.nodeDates.add(nodeDate);
-			}
-		}
+	private int extract(InputStream inputStream) throws IOException {
+		ExtractionPipeline pipeline = new ExtractionPipeline(
+			ExtractionPipeline.defaultExtractors(this.objectMapper, this.userId),
+			this.stagedImport,
+			this.baseline
+		);
+		return new StreamingBackupParser(this.objectMapper).parse(inputStream, pipeline);
 	}
 
-	private void processS3FileMetadata(String nodeId, InputS3FileMetadata s3FileMeta) {
-		NodeS3File nodeS3File = new NodeS3File();
-		nodeS3File.setId(UUID.randomUUID().toString());
-		nodeS3File.setNodeId(nodeId);
-		nodeS3File.setFile(s3FileMeta.isFile() != null && s3FileMeta.isFile());
-		nodeS3File.setFileName(s3FileMeta.fileName());
-		nodeS3File.setFileType(s3FileMeta.fileType());
-		nodeS3File.setObjectFolder(s3FileMeta.objectFolder());
-		if (s3FileMeta.isAnimatedGIF() != null) {
-			nodeS3File.setAnimatedGIF(s3FileMeta.isAnimatedGIF());
-		}
-		if (s3FileMeta.imageOriginalWidth() != null) {
-			nodeS3File.setImageOriginalWidth(s3FileMeta.imageOriginalWidth());
-		}
-		if (s3FileMeta.imageOriginalHeight() != null) {
-			nodeS3File.setImageOriginalHeight(s3FileMeta.imageOriginalHeight());
-		}
-		if (s3FileMeta.imageOriginalPixels() != null) {
-			nodeS3File.setImageOriginalPixels(s3FileMeta.imageOriginalPixels());
-		}
-		this.nodeS3Files.add(nodeS3File);
+	private int extractInParallel(InputStream inputStream, ForkJoinPool pool) throws IOException {
+		ParallelExtractionPipeline pipeline = new ParallelExtractionPipeline(
+			() -> ExtractionPipeline.defaultExtractors(this.objectMapper, this.userId),
+			this.stagedImport,
+			this.baseline,
+			pool
+		);
+		int itemCount = new StreamingBackupParser(this.objectMapper).parse(inputStream, pipeline);
+		pipeline.finish();
+		return itemCount;
 	}
 
-	private void processVirtualRootIds(String nodeId, Map<String, Boolean> virtualRootIds) {
-		for (String virtualRootId : virtualRootIds.keySet()) {
-			VirtualRootMapping mapping = new VirtualRootMapping();
-			mapping.setNodeId(nodeId);
-			mapping.setVirtualRootId(virtualRootId);
-			this.virtualRootMappings.add(mapping);
+	private void commitBackupFile() {
+		try {
+			if (this.changedNodeIds.isEmpty()) {
+				LOGGER.info("Nothing changed in {}, only advancing the high watermark", this.backupSource.getName());
+				this.advanceHighWatermark();
+			} else {
+				this.mergeIntoDatabase();
+			}
+		} finally {
+			this.metrics.addStagedBytes(this.userId, -this.stagedBytes);
 		}
 	}
 
@@ -399,132 +449,192 @@ public final class WorkflowyDataConverter {
 		}
 	}
 
-	private void mergeIntoDatabase(Instant backupInstant) {
-		long time = backupInstant.toEpochMilli();
+	/**
+	 * Merges the rows owned by the user's nodes while holding the read lock, so several users can merge at once, and
+	 * inserts and terminates tags in shared steps before and after.
+	 */
+	private void mergeIntoDatabase() {
+		this.runSharedStep(Step.TAGS);
+
+		SHARED_ROWS_LOCK.readLock().lock();
+		try {
+			if (this.importOptions.isChunked()) {
+				this.mergeInChunks();
+			} else {
+				this.mergeInOneTransaction();
+			}
+		} finally {
+			SHARED_ROWS_LOCK.readLock().unlock();
+		}
+
+		this.runSharedStep(Step.ORPHANED_TAGS);
+	}
+
+	private void mergeInOneTransaction() {
+		long time = this.backupInstant.toEpochMilli();
+
+		this.metrics.runInTransaction(this.dataStore, this.userId, time, () -> {
+			this.ensureUserExists();
+
+			ContentChangeFeed changeFeed = this.newContentChangeFeed();
+			InitialLoad load = new InitialLoad(this.userId, this.stagedImport, this.metrics);
+			if (this.initialLoad && load.isNothingStored()) {
+				load.insertAll();
+				try (ImportMetrics.Phase ignored = this.metrics.time("change-feed", this.userId)) {
+					changeFeed.recordAllInserted();
+				}
+			} else {
+				this.newTargetedMerge().mergeOwned();
+				this.recordChangeFeed(changeFeed);
+			}
+
+			this.storeHighWatermark();
+		});
+
+		LOGGER.info("Completed merge for backup file: {}", this.backupSource.getName());
+	}
+
+	private void mergeInChunks() {
+		long time = this.backupInstant.toEpochMilli();
 
 		this.dataStore.runInTransaction((transaction) -> {
 				transaction.setSystemTime(time);
-
 				this.ensureUserExists();
+				return null;
+			});
 
-				LOGGER.info("Merging {} tags", this.tags.size());
-				TagList existingTags = TagFinder.findMany(TagFinder.all());
-				TagList updatedTags = new TagList();
-				updatedTags.addAll(this.tags.values());
-				TopLevelMergeOptions<Tag> tagMergeOptions = new TopLevelMergeOptions<>(TagFinder.getFinderInstance());
-				existingTags.merge(updatedTags, tagMergeOptions);
-
-				LOGGER.info("Merging {} node contents", this.nodeContents.size());
-				NodeContentList existingContents = NodeContentFinder.findMany(NodeContentFinder.all());
-				NodeContentList updatedContents = new NodeContentList();
-				updatedContents.addAll(this.nodeContents.values());
-				TopLevelMergeOptions<NodeContent> contentMergeOptions = new TopLevelMergeOptions<>(
-					NodeContentFinder.getFinderInstance()
-				);
-				existingContents.merge(updatedContents, contentMergeOptions);
-
-				LOGGER.info("Merging {} node metadatas", this.nodeMetadatas.size());
-				NodeMetadataList existingMetadatas = NodeMetadataFinder.findMany(NodeMetadataFinder.all());
-				NodeMetadataList updatedMetadatas = new NodeMetadataList();
-				updatedMetadatas.addAll(this.nodeMetadatas.values());
-				TopLevelMergeOptions<NodeMetadata> metadataMergeOptions = new TopLevelMergeOptions<>(
-					NodeMetadataFinder.getFinderInstance()
-				);
-				metadataMergeOptions.doNotCompare(
-					NodeMetadataFinder.createdById(),
-					NodeMetadataFinder.createdOn(),
-					NodeMetadataFinder.lastUpdatedById()
-				);
-				existingMetadatas.merge(updatedMetadatas, metadataMergeOptions);
-
-				LOGGER.info("Merging {} node-tag mappings", this.nodeTagMappings.size());
-				NodeTagMappingList existingMappings = NodeTagMappingFinder.findMany(NodeTagMappingFinder.all());
-				TopLevelMergeOptions<NodeTagMapping> mappingMergeOptions = new TopLevelMergeOptions<>(
-					NodeTagMappingFinder.getFinderInstance()
-				);
-				existingMappings.merge(this.nodeTagMappings, mappingMergeOptions);
+		ChunkedMerge chunkedMerge = new ChunkedMerge(
+			this.dataStore,
+			this.userId,
+			this.backupSource.getName(),
+			time,
+			this.stagedImport,
+			this.changedNodeIds,
+			this.importOptions.setBasedEntities(),
+			this.importOptions.transactionChunkSize(),
+			this.metrics
+		);
+		chunkedMerge.mergeAll(() -> {
+			this.recordChangeFeed(this.newContentChangeFeed());
+			this.storeHighWatermark();
+		});
 
-				LOGGER.info("Merging {} mirrors", this.mirrors.size());
-				MirrorList existingMirrors = MirrorFinder.findMany(MirrorFinder.all());
-				TopLevelMergeOptions<Mirror> mirrorMergeOptions = new TopLevelMergeOptions<>(
-					MirrorFinder.getFinderInstance()
-				);
-				existingMirrors.merge(this.mirrors, mirrorMergeOptions);
+		LOGGER.info("Completed chunked merge for backup file: {}", this.backupSource.getName());
+	}
 
-				LOGGER.info("Merging {} node dates", this.nodeDates.size());
-				NodeDateList existingDates = NodeDateFinder.findMany(NodeDateFinder.all());
-				TopLevelMergeOptions<NodeDate> dateMergeOptions = new TopLevelMergeOptions<>(
-					NodeDateFinder.getFinderInstance()
-				);
-				existingDates.merge(this.nodeDates, dateMergeOptions);
+	/**
+	 * Runs a step over rows shared by all users in a transaction of its own, holding the write lock so no merge of
+	 * another user is in flight.
+	 *
+	 * <p>Users are imported concurrently at different backup dates, so the transaction uses the latest system time any
+	 * user has written shared rows with, to keep their history in order. Tags are still inserted from this backup's
+	 * time, the system time of the user's mappings, so no mapping references a tag before it exists.
+	 */
+	private void runSharedStep(Step step) {
+		SHARED_ROWS_LOCK.writeLock().lock();
+		try {
+			this.dataStore.runInTransaction((transaction) -> {
+					DataImportTimestamp sharedTimestamp = findTimestamp(SHARED_ROWS_TIMESTAMP_NAME);
+					Instant systemTime = sharedTimestamp == null
+						|| this.backupInstant.isAfter(sharedTimestamp.getTimestamp().toInstant())
+						? this.backupInstant
+						: sharedTimestamp.getTimestamp().toInstant();
+					transaction.setSystemTime(systemTime.toEpochMilli());
+					this.newTargetedMerge().merge(step, Timestamp.from(this.backupInstant));
+					storeTimestamp(SHARED_ROWS_TIMESTAMP_NAME, systemTime, null);
+					return null;
+				});
+		} finally {
+			SHARED_ROWS_LOCK.writeLock().unlock();
+		}
+	}
 
-				LOGGER.info("Merging {} node S3 files", this.nodeS3Files.size());
-				NodeS3FileList existingS3Files = NodeS3FileFinder.findMany(NodeS3FileFinder.all());
-				TopLevelMergeOptions<NodeS3File> s3FileMergeOptions = new TopLevelMergeOptions<>(
-					NodeS3FileFinder.getFinderInstance()
-				);
-				existingS3Files.merge(this.nodeS3Files, s3FileMergeOptions);
+	private TargetedMerge newTargetedMerge() {
+		return new TargetedMerge(
+			this.userId,
+			this.stagedImport,
+			this.changedNodeIds,
+			this.importOptions.setBasedEntities(),
+			this.metrics
+		);
+	}
 
-				LOGGER.info("Merging {} virtual root mappings", this.virtualRootMappings.size());
-				VirtualRootMappingList existingVirtualRoots = VirtualRootMappingFinder.findMany(
-					VirtualRootMappingFinder.all()
-				);
-				TopLevelMergeOptions<VirtualRootMapping> virtualRootMergeOptions = new TopLevelMergeOptions<>(
-					VirtualRootMappingFinder.getFinderInstance()
-				);
-				existingVirtualRoots.merge(this.virtualRootMappings, virtualRootMergeOptions);
+	private ContentChangeFeed newContentChangeFeed() {
+		return new ContentChangeFeed(this.userId, this.stagedImport, this.changedNodeIds, this.backupInstant);
+	}
 
-				WorkflowyDataConverter.storeHighWatermark(backupInstant);
+	private void recordChangeFeed(ContentChangeFeed changeFeed) {
+		try (ImportMetrics.Phase ignored = this.metrics.time("change-feed", this.userId)) {
+			changeFeed.record();
+		}
+	}
 
+	private void advanceHighWatermark() {
+		this.dataStore.runInTransaction((transaction) -> {
+				transaction.setSystemTime(this.backupInstant.toEpochMilli());
+				this.storeHighWatermark();
 				return null;
 			});
-
-		LOGGER.info("Completed merge for backup file: {}", this.backupFile.getName());
 	}
 
-	private static Instant getHighWatermark() {
-		Operation workflowyCriteria = DataImportTimestampFinder.name().eq("workflowy");
-		DataImportTimestamp workflowyTimestamp = DataImportTimestampFinder.findOne(workflowyCriteria);
+	/**
+	 * The user's high watermark, or the one from before watermarks were kept per user.
+	 */
+	@Nullable
+	private static DataImportTimestamp findHighWatermark(String userId) {
+		DataImportTimestamp userTimestamp = findTimestamp(HIGH_WATERMARK_PREFIX + userId);
+		return userTimestamp == null ? findTimestamp(LEGACY_HIGH_WATERMARK_NAME) : userTimestamp;
+	}
 
-		Instant highWatermark = Optional.ofNullable(workflowyTimestamp)
-			.map(DataImportTimestamp::getTimestamp)
-			.map(Timestamp::toInstant)
-			.orElse(Instant.MIN);
+	@Nullable
+	private static DataImportTimestamp findTimestamp(String name) {
+		return DataImportTimestampFinder.findOne(DataImportTimestampFinder.name().eq(name));
+	}
 
-		LOGGER.info("High watermark: {}", highWatermark);
-		return highWatermark;
+	private void storeHighWatermark() {
+		storeTimestamp(HIGH_WATERMARK_PREFIX + this.userId, this.backupInstant, this.fileDigest);
+		LOGGER.info("Stored high watermark of {}: {}", this.userId, this.backupInstant);
 	}
 
-	private static void storeHighWatermark(@Nonnull Instant instant) {
-		Timestamp highWatermark = Timestamp.from(instant);
-		Operation workflowyCriteria = DataImportTimestampFinder.name().eq("workflowy");
-		DataImportTimestamp workflowyTimestamp = DataImportTimestampFinder.findOne(workflowyCriteria);
+	private static void storeTimestamp(@Nonnull String name, @Nonnull Instant instant, @Nullable String digest) {
+		Timestamp timestamp = Timestamp.from(instant);
+		DataImportTimestamp storedTimestamp = findTimestamp(name);
 
-		if (workflowyTimestamp == null) {
+		if (storedTimestamp == null) {
 			DataImportTimestamp newTimestamp = new DataImportTimestamp();
-			newTimestamp.setName("workflowy");
-			newTimestamp.setTimestamp(highWatermark);
+			newTimestamp.setName(name);
+			newTimestamp.setTimestamp(timestamp);
+			newTimestamp.setDigest(digest);
 			newTimestamp.insert();
 		} else {
-			workflowyTimestamp.setTimestamp(highWatermark);
+			storedTimestamp.setTimestamp(timestamp);
+			storedTimestamp.setDigest(digest);
 		}
+	}
 
-		LOGGER.info("Stored high watermark: {}", instant);
+	private static String computeDigest(BackupSource backupSource) throws IOException {
+		MessageDigest messageDigest = newMessageDigest();
+		try (InputStream inputStream = new DigestInputStream(backupSource.open(), messageDigest)) {
+			inputStream.transferTo(OutputStream.nullOutputStream());
+		}
+		return HexFormat.of().formatHex(messageDigest.digest());
 	}
 
-	private static ImmutableList<File> getBackupFiles(Path backupsPath) {
-		File[] files = backupsPath.toFile().listFiles((pathname) -> pathname.getName().endsWith(".workflowy.backup"));
-		Objects.requireNonNull(files, backupsPath::toString);
-		return ArrayAdapter.adapt(files).toSortedListBy(File::getName).toImmutable();
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
 	}
 
-	private static boolean isAfterHighWatermark(File file, Instant highWatermark) {
-		Instant fileTimestamp = getFileTimestamp(file);
+	private static boolean isAfterHighWatermark(BackupSource backupSource, Instant highWatermark) {
+		Instant fileTimestamp = getFileTimestamp(backupSource);
 		return fileTimestamp.isAfter(highWatermark);
 	}
 
-	private static Instant getFileTimestamp(File file) {
-		String fileName = file.getName();
+	private static Instant getFileTimestamp(BackupSource backupSource) {
+		String fileName = backupSource.getName();
 		Matcher matcher = FILE_DATE_PATTERN.matcher(fileName);
 		if (matcher.find()) {
 			LocalDate date = LocalDate.parse(matcher.group(1), DateTimeFormatter.ISO_LOCAL_DATE);
@@ -533,19 +643,24 @@ public final class WorkflowyDataConverter {
 		return Instant.MIN;
 	}
 
-	private static Timestamp convertWorkflowyTimestamp(Long workflowyTimestamp) {
-		if (workflowyTimestamp == null) {
-			return null;
+	/**
+	 * Digests the decompressed archive entry as it is parsed, so it has the same digest as the same backup stored as a
+	 * file. The parser closes the stream once it has read the outline, so closing first reads the rest, such as
+	 * trailing whitespace, into the digest.
+	 */
+	private static final class DrainingDigestInputStream extends DigestInputStream {
+
+		private DrainingDigestInputStream(InputStream inputStream, MessageDigest messageDigest) {
+			super(inputStream, messageDigest);
 		}
-		long epochSeconds = workflowyTimestamp + WORKFLOWY_EPOCH_OFFSET;
-		return Timestamp.from(Instant.ofEpochSecond(epochSeconds));
-	}
 
-	private static Timestamp parseCalendarDate(Object dateValue) {
-		if (dateValue instanceof Number number) {
-			long epochSeconds = number.longValue();
-			return Timestamp.from(Instant.ofEpochSecond(epochSeconds));
+		@Override
+		public void close() throws IOException {
+			try {
+				this.transferTo(OutputStream.nullOutputStream());
+			} finally {
+				super.close();
+			}
 		}
-		return null;
 	}
 }
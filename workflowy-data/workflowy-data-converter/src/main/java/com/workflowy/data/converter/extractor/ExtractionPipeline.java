@@ -0,0 +1,81 @@
+package com.workflowy.data.converter.extractor;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.converter.BackupItemVisitor;
+import com.workflowy.data.converter.ImportBaseline;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+
+/**
+ * Runs every {@link ItemExtractor} against each visited item, so the backup tree is traversed only once no matter how
+ * many entity types are extracted from it.
+ *
+ * <p>Also records the row hash of every item. Items whose row hash matches the {@link ImportBaseline} are
+ * only shown to extractors that ask for unchanged items, so unchanged nodes are never staged.
+ */
+public final class ExtractionPipeline implements BackupItemVisitor {
+
+	private final ImmutableList<ItemExtractor> extractors;
+	private final StagedImport stagedImport;
+	private final NodeHashRecorder nodeHashRecorder;
+
+	public ExtractionPipeline(
+		@Nonnull ImmutableList<ItemExtractor> extractors,
+		@Nonnull StagedImport stagedImport,
+		@Nonnull ImportBaseline baseline
+	) {
+		this.extractors = Objects.requireNonNull(extractors);
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.nodeHashRecorder = new NodeHashRecorder(stagedImport, baseline);
+	}
+
+	/**
+	 * The extractors for every entity type the importer writes.
+	 */
+	public static ImmutableList<ItemExtractor> defaultExtractors(
+		@Nonnull ObjectMapper objectMapper,
+		@Nonnull String userId
+	) {
+		return Lists.immutable.with(
+			new NodeContentExtractor(),
+			new NodeMetadataExtractor(objectMapper, userId),
+			new TagExtractor(),
+			new MirrorExtractor(),
+			new NodeDateExtractor(),
+			new NodeS3FileExtractor(),
+			new VirtualRootExtractor()
+		);
+	}
+
+	@Override
+	public void visitItem(@Nonnull InputItem inputItem, @Nullable String parentId, int priority) {
+		boolean unchanged = this.nodeHashRecorder.record(inputItem, parentId, priority);
+		extract(this.extractors, inputItem, parentId, priority, unchanged, this.stagedImport);
+	}
+
+	static void extract(
+		ImmutableList<ItemExtractor> extractors,
+		InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		boolean unchanged,
+		StagedImport stagedImport
+	) {
+		for (ItemExtractor extractor : extractors) {
+			if (!unchanged || extractor.extractsUnchangedItems()) {
+				extractor.extract(inputItem, parentId, priority, stagedImport);
+			}
+		}
+	}
+
+	public StagedImport getStagedImport() {
+		return this.stagedImport;
+	}
+}
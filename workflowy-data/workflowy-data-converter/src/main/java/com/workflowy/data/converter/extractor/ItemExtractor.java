@@ -0,0 +1,30 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+
+/**
+ * Turns one backup item into the staged rows of a single entity type.
+ *
+ * <p>Extractors are run by an {@link ExtractionPipeline}, which visits every item exactly once and skips items that
+ * did not change since the previous import.
+ */
+@FunctionalInterface
+public interface ItemExtractor {
+	void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	);
+
+	/**
+	 * Whether this extractor must also see unchanged items, because the rows it stages can be owned by other nodes.
+	 */
+	default boolean extractsUnchangedItems() {
+		return false;
+	}
+}
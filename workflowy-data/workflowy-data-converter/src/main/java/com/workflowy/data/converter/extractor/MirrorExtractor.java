@@ -0,0 +1,78 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.Mirror;
+import com.workflowy.data.converter.ImportIds;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputBacklinkMetadata;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import com.workflowy.data.pojo.InputMirrorMetadata;
+
+/**
+ * Extracts {@link Mirror}s from both {@code metadata.mirror} and {@code metadata.backlink}.
+ *
+ * <p>Mirror ids are derived from the root, node and backlink flag, so a link reported by both sources is staged once.
+ *
+ * <p>A mirror is merged when either of its ends changed, so mirrors are staged from unchanged items too.
+ */
+public final class MirrorExtractor implements ItemExtractor {
+
+	@Override
+	public boolean extractsUnchangedItems() {
+		return true;
+	}
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		InputMetadata metadata = inputItem.metadata();
+		if (metadata == null) {
+			return;
+		}
+
+		if (metadata.hasMirror()) {
+			this.extractMirrors(inputItem.id(), metadata.mirror(), stagedImport);
+		}
+
+		if (metadata.hasBacklink()) {
+			this.extractBacklink(metadata.backlink(), stagedImport);
+		}
+	}
+
+	private void extractMirrors(String nodeId, InputMirrorMetadata mirrorMeta, StagedImport stagedImport) {
+		for (String sourceId : mirrorMeta.getMirrorSourceIds()) {
+			this.stageMirror(sourceId, nodeId, false, stagedImport);
+		}
+
+		for (String sourceId : mirrorMeta.getBacklinkMirrorIds()) {
+			this.stageMirror(sourceId, nodeId, true, stagedImport);
+		}
+	}
+
+	private void extractBacklink(InputBacklinkMetadata backlinkMeta, StagedImport stagedImport) {
+		if (backlinkMeta.sourceId() != null && backlinkMeta.targetId() != null) {
+			this.stageMirror(backlinkMeta.sourceId(), backlinkMeta.targetId(), true, stagedImport);
+		}
+	}
+
+	private void stageMirror(String mirrorRootId, String mirrorNodeId, boolean backlink, StagedImport stagedImport) {
+		String id = ImportIds.mirrorId(mirrorRootId, mirrorNodeId, backlink);
+		stagedImport
+			.getMirrors()
+			.getIfAbsentPut(id, () -> {
+				Mirror mirror = new Mirror();
+				mirror.setId(id);
+				mirror.setMirrorRootId(mirrorRootId);
+				mirror.setMirrorNodeId(mirrorNodeId);
+				mirror.setBacklink(backlink);
+				return mirror;
+			});
+	}
+}
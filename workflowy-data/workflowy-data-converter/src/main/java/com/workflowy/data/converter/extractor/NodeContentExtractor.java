@@ -0,0 +1,23 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.converter.StagedNodes;
+import com.workflowy.data.pojo.InputItem;
+
+public final class NodeContentExtractor implements ItemExtractor {
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		StagedNodes nodes = stagedImport.getNodes();
+		int row = nodes.stage(inputItem.id());
+		nodes.setContent(row, parentId, inputItem.name() != null ? inputItem.name() : "", inputItem.note());
+	}
+}
@@ -0,0 +1,61 @@
+package com.workflowy.data.converter.extractor;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeDate;
+import com.workflowy.data.converter.ImportIds;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputCalendarMetadata;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+
+public final class NodeDateExtractor implements ItemExtractor {
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		InputMetadata metadata = inputItem.metadata();
+		if (metadata == null || !metadata.hasCalendar()) {
+			return;
+		}
+
+		InputCalendarMetadata calendarMeta = metadata.calendar();
+		if (calendarMeta.date() == null) {
+			return;
+		}
+
+		Timestamp dateValue = parseCalendarDate(calendarMeta.date());
+		if (dateValue == null) {
+			return;
+		}
+
+		NodeDate nodeDate = new NodeDate();
+		nodeDate.setId(ImportIds.nodeDateId(inputItem.id()));
+		nodeDate.setNodeId(inputItem.id());
+		nodeDate.setDateValue(dateValue);
+		nodeDate.setRoot(calendarMeta.isRoot());
+		nodeDate.setLevel(calendarMeta.level());
+		nodeDate.setDateId(calendarMeta.dateId());
+		nodeDate.setTimestamp(calendarMeta.timestamp());
+		if (calendarMeta.value() != null) {
+			nodeDate.setValue(String.valueOf(calendarMeta.value()));
+		}
+		stagedImport.getNodeDates().add(nodeDate);
+	}
+
+	private static Timestamp parseCalendarDate(Object dateValue) {
+		if (dateValue instanceof Number number) {
+			long epochSeconds = number.longValue();
+			return Timestamp.from(Instant.ofEpochSecond(epochSeconds));
+		}
+		return null;
+	}
+}
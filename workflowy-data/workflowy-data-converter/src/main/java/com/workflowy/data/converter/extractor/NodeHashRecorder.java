@@ -0,0 +1,35 @@
+package com.workflowy.data.converter.extractor;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.converter.ImportBaseline;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+
+/**
+ * Records the row hash of each visited item and compares it with the {@link ImportBaseline}.
+ */
+final class NodeHashRecorder {
+
+	private final StagedImport stagedImport;
+	private final ImportBaseline baseline;
+
+	NodeHashRecorder(@Nonnull StagedImport stagedImport, @Nonnull ImportBaseline baseline) {
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.baseline = Objects.requireNonNull(baseline);
+	}
+
+	/**
+	 * @return whether the item is unchanged since the baseline
+	 */
+	boolean record(@Nonnull InputItem inputItem, @Nullable String parentId, int priority) {
+		String nodeId = inputItem.id();
+		long rowHash = NodeHashes.rowHash(inputItem, parentId, priority);
+		this.stagedImport.getRowHashes().put(nodeId, rowHash);
+
+		return this.baseline.isUnchanged(nodeId, rowHash);
+	}
+}
@@ -0,0 +1,194 @@
+package com.workflowy.data.converter.extractor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.pojo.InputAiMetadata;
+import com.workflowy.data.pojo.InputBacklinkMetadata;
+import com.workflowy.data.pojo.InputCalendarMetadata;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import com.workflowy.data.pojo.InputMirrorMetadata;
+import com.workflowy.data.pojo.InputS3FileMetadata;
+
+/**
+ * 64-bit FNV-1a hashes of backup items, used to tell which nodes changed since the previous import.
+ *
+ * <p>A row hash covers every field the extractors read from one item. Row hashes are stored and compared across runs,
+ * so every field, metadata included, is fed in explicitly rather than through {@code hashCode()}, whose algorithm is
+ * unspecified and only 32 bits wide. Untyped JSON values are hashed by structure, with object members in key order.
+ */
+public final class NodeHashes {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private NodeHashes() {}
+
+	public static long rowHash(@Nonnull InputItem inputItem, @Nullable String parentId, int priority) {
+		long hash = FNV_OFFSET_BASIS;
+		hash = mix(hash, inputItem.id());
+		hash = mix(hash, parentId);
+		hash = mix(hash, priority);
+		hash = mix(hash, inputItem.name());
+		hash = mix(hash, inputItem.note());
+		hash = mix(hash, inputItem.createdTimestamp());
+		hash = mix(hash, inputItem.lastModifiedTimestamp());
+		hash = mix(hash, inputItem.completedTimestamp());
+		hash = mixMetadata(hash, inputItem.metadata());
+		return hash;
+	}
+
+	private static long mixMetadata(long hash, @Nullable InputMetadata metadata) {
+		if (metadata == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, 0L);
+		result = mixMirror(result, metadata.mirror());
+		result = mixBacklink(result, metadata.backlink());
+		result = mixCalendar(result, metadata.calendar());
+		result = mixS3File(result, metadata.s3File());
+		result = mixAi(result, metadata.ai());
+		result = mix(result, metadata.originalId());
+		result = mix(result, metadata.isVirtualRoot());
+		result = mix(result, metadata.isReferencesRoot());
+		result = mix(result, metadata.layoutMode());
+		result = mixJson(result, metadata.virtualRootIds());
+		result = mixJson(result, metadata.changes());
+		return result;
+	}
+
+	private static long mixMirror(long hash, @Nullable InputMirrorMetadata mirror) {
+		if (mirror == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, 0L);
+		result = mix(result, mirror.originalId());
+		result = mix(result, mirror.isMirrorRoot());
+		result = mixJson(result, mirror.mirrorRootIds());
+		result = mixJson(result, mirror.backlinkMirrorRootIds());
+		return result;
+	}
+
+	private static long mixBacklink(long hash, @Nullable InputBacklinkMetadata backlink) {
+		if (backlink == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, 0L);
+		result = mix(result, backlink.sourceId());
+		result = mix(result, backlink.targetId());
+		return result;
+	}
+
+	private static long mixCalendar(long hash, @Nullable InputCalendarMetadata calendar) {
+		if (calendar == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, 0L);
+		result = mixJson(result, calendar.date());
+		result = mix(result, calendar.isRoot());
+		result = mix(result, calendar.level());
+		result = mixJson(result, calendar.levels());
+		result = mixJson(result, calendar.value());
+		result = mix(result, calendar.dateId());
+		result = mix(result, calendar.timestamp());
+		result = mixJson(result, calendar.foundDates());
+		return result;
+	}
+
+	private static long mixS3File(long hash, @Nullable InputS3FileMetadata s3File) {
+		if (s3File == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, 0L);
+		result = mix(result, s3File.isFile());
+		result = mix(result, s3File.fileName());
+		result = mix(result, s3File.fileType());
+		result = mix(result, s3File.objectFolder());
+		result = mix(result, s3File.isAnimatedGIF());
+		result = mix(result, s3File.imageOriginalWidth());
+		result = mix(result, s3File.imageOriginalHeight());
+		result = mix(result, s3File.imageOriginalPixels());
+		return result;
+	}
+
+	private static long mixAi(long hash, @Nullable InputAiMetadata ai) {
+		return ai == null ? mix(hash, -1L) : mix(mix(hash, 0L), ai.inChat());
+	}
+
+	/**
+	 * Hashes a value bound from untyped JSON: null, a string, a boolean, a number, a list or a map. Each kind mixes in
+	 * its own tag first, so that, say, the string {@code "1"} and the number {@code 1} differ.
+	 */
+	private static long mixJson(long hash, @Nullable Object value) {
+		if (value == null) {
+			return mix(hash, -1L);
+		}
+		if (value instanceof String string) {
+			return mix(mix(hash, 1L), string);
+		}
+		if (value instanceof Boolean bool) {
+			return mix(mix(hash, 2L), bool ? 1L : 0L);
+		}
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return mix(mix(hash, 3L), ((Number) value).longValue());
+		}
+		if (value instanceof Number number) {
+			return mix(mix(hash, 4L), number.toString());
+		}
+		if (value instanceof List<?> list) {
+			long result = mix(mix(hash, 5L), list.size());
+			for (Object element : list) {
+				result = mixJson(result, element);
+			}
+			return result;
+		}
+		if (value instanceof Map<?, ?> map) {
+			List<Object> keys = new ArrayList<>(map.keySet());
+			keys.sort(Comparator.comparing(String::valueOf));
+			long result = mix(mix(hash, 6L), map.size());
+			for (Object key : keys) {
+				result = mix(result, String.valueOf(key));
+				result = mixJson(result, map.get(key));
+			}
+			return result;
+		}
+		throw new IllegalArgumentException("Unexpected JSON value of type " + value.getClass().getName());
+	}
+
+	private static long mix(long hash, @Nullable String value) {
+		if (value == null) {
+			return mix(hash, -1L);
+		}
+		long result = mix(hash, value.length());
+		for (int i = 0; i < value.length(); i++) {
+			result = (result ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return result;
+	}
+
+	private static long mix(long hash, @Nullable Boolean value) {
+		return value == null ? mix(hash, -1L) : mix(hash, value ? 1L : 0L);
+	}
+
+	private static long mix(long hash, @Nullable Integer value) {
+		return value == null ? mix(hash, -1L) : mix(hash, value.longValue());
+	}
+
+	private static long mix(long hash, @Nullable Long value) {
+		return value == null ? mix(hash, -1L) : mix(hash, value.longValue());
+	}
+
+	private static long mix(long hash, long value) {
+		long result = hash;
+		for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+			result = (result ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,80 @@
+package com.workflowy.data.converter.extractor;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.converter.StagedNodes;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import org.eclipse.collections.impl.utility.MapIterate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class NodeMetadataExtractor implements ItemExtractor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(NodeMetadataExtractor.class);
+
+	private final ObjectMapper objectMapper;
+	private final String userId;
+
+	public NodeMetadataExtractor(@Nonnull ObjectMapper objectMapper, @Nonnull String userId) {
+		this.objectMapper = Objects.requireNonNull(objectMapper);
+		this.userId = Objects.requireNonNull(userId);
+	}
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		StagedNodes nodes = stagedImport.getNodes();
+		int row = nodes.stage(inputItem.id());
+		nodes.setMetadata(
+			row,
+			priority,
+			inputItem.completedTimestamp(),
+			inputItem.lastModifiedTimestamp(),
+			inputItem.createdTimestamp(),
+			this.userId
+		);
+
+		InputMetadata metadata = inputItem.metadata();
+		if (metadata != null) {
+			nodes.setLayoutMode(row, metadata.layoutMode());
+			nodes.setVirtualRoot(row, Boolean.TRUE.equals(metadata.isVirtualRoot()));
+			nodes.setReferencesRoot(row, Boolean.TRUE.equals(metadata.isReferencesRoot()));
+
+			if (metadata.ai() != null) {
+				nodes.setInChat(row, metadata.ai().inChat());
+			}
+
+			if (metadata.mirror() != null) {
+				if (metadata.mirror().isMirrorRoot() != null) {
+					nodes.setMirrorRoot(row, metadata.mirror().isMirrorRoot());
+				}
+				if (metadata.mirror().originalId() != null) {
+					nodes.setOriginalId(row, metadata.mirror().originalId());
+				}
+			}
+
+			// metadata.originalId takes precedence if both are present
+			if (metadata.originalId() != null) {
+				nodes.setOriginalId(row, metadata.originalId());
+			}
+
+			if (MapIterate.notEmpty(metadata.changes())) {
+				try {
+					nodes.setChanges(row, this.objectMapper.writeValueAsString(metadata.changes()));
+				} catch (Exception e) {
+					LOGGER.warn("Failed to serialize changes for node {}: {}", inputItem.id(), e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeS3File;
+import com.workflowy.data.converter.ImportIds;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import com.workflowy.data.pojo.InputS3FileMetadata;
+
+public final class NodeS3FileExtractor implements ItemExtractor {
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		InputMetadata metadata = inputItem.metadata();
+		if (metadata == null || metadata.s3File() == null) {
+			return;
+		}
+
+		InputS3FileMetadata s3FileMeta = metadata.s3File();
+
+		NodeS3File nodeS3File = new NodeS3File();
+		nodeS3File.setId(ImportIds.nodeS3FileId(inputItem.id()));
+		nodeS3File.setNodeId(inputItem.id());
+		nodeS3File.setFile(s3FileMeta.isFile() != null && s3FileMeta.isFile());
+		nodeS3File.setFileName(s3FileMeta.fileName());
+		nodeS3File.setFileType(s3FileMeta.fileType());
+		nodeS3File.setObjectFolder(s3FileMeta.objectFolder());
+		if (s3FileMeta.isAnimatedGIF() != null) {
+			nodeS3File.setAnimatedGIF(s3FileMeta.isAnimatedGIF());
+		}
+		if (s3FileMeta.imageOriginalWidth() != null) {
+			nodeS3File.setImageOriginalWidth(s3FileMeta.imageOriginalWidth());
+		}
+		if (s3FileMeta.imageOriginalHeight() != null) {
+			nodeS3File.setImageOriginalHeight(s3FileMeta.imageOriginalHeight());
+		}
+		if (s3FileMeta.imageOriginalPixels() != null) {
+			nodeS3File.setImageOriginalPixels(s3FileMeta.imageOriginalPixels());
+		}
+		stagedImport.getNodeS3Files().add(nodeS3File);
+	}
+}
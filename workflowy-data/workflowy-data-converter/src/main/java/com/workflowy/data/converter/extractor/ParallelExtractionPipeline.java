@@ -0,0 +1,116 @@
+package com.workflowy.data.converter.extractor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.data.converter.BackupItemVisitor;
+import com.workflowy.data.converter.ImportBaseline;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * An {@link ExtractionPipeline} that runs the extractors on a {@link ForkJoinPool} while the parser keeps reading.
+ *
+ * <p>Row hashes are still recorded on the parsing thread, straight into the staged import. Visited items are cut
+ * into work units of {@link #UNIT_SIZE} consecutive items regardless of tree shape, so a backup with one huge
+ * top-level subtree still spreads over all workers. Each unit stages into its own {@link StagedImport} with its own
+ * extractors, so no staging map is shared between threads.
+ *
+ * <p>Units are combined in visiting order with {@link StagedImport#addAll}, so the staged rows, their order and the
+ * first-wins tags and mirrors are the same as with the sequential pipeline. At most two units per worker are in
+ * flight: once that many are, the parser combines the oldest before submitting another, so the visited items and
+ * unit imports held in memory stay bounded however far the parser runs ahead.
+ */
+public final class ParallelExtractionPipeline implements BackupItemVisitor {
+
+	static final int UNIT_SIZE = 4096;
+
+	private final Supplier<ImmutableList<ItemExtractor>> extractorsFactory;
+	private final StagedImport stagedImport;
+	private final NodeHashRecorder nodeHashRecorder;
+	private final ForkJoinPool pool;
+
+	private final int maxUnitsInFlight;
+
+	private final Deque<ForkJoinTask<StagedImport>> units = new ArrayDeque<>();
+	private MutableList<VisitedItem> pendingItems = Lists.mutable.empty();
+
+	/**
+	 * @param extractorsFactory called once per work unit, because extractors may keep per-call state
+	 */
+	public ParallelExtractionPipeline(
+		@Nonnull Supplier<ImmutableList<ItemExtractor>> extractorsFactory,
+		@Nonnull StagedImport stagedImport,
+		@Nonnull ImportBaseline baseline,
+		@Nonnull ForkJoinPool pool
+	) {
+		this.extractorsFactory = Objects.requireNonNull(extractorsFactory);
+		this.stagedImport = Objects.requireNonNull(stagedImport);
+		this.nodeHashRecorder = new NodeHashRecorder(stagedImport, baseline);
+		this.pool = Objects.requireNonNull(pool);
+		this.maxUnitsInFlight = 2 * pool.getParallelism();
+	}
+
+	@Override
+	public void visitItem(@Nonnull InputItem inputItem, @Nullable String parentId, int priority) {
+		boolean unchanged = this.nodeHashRecorder.record(inputItem, parentId, priority);
+		this.pendingItems.add(new VisitedItem(inputItem, parentId, priority, unchanged));
+		if (this.pendingItems.size() == UNIT_SIZE) {
+			this.submitPendingItems();
+		}
+	}
+
+	/**
+	 * Waits for every work unit and combines their rows into the staged import, rethrowing the first failure.
+	 */
+	public StagedImport finish() {
+		if (this.pendingItems.notEmpty()) {
+			this.submitPendingItems();
+		}
+		while (!this.units.isEmpty()) {
+			this.combineOldestUnit();
+		}
+		return this.stagedImport;
+	}
+
+	private void submitPendingItems() {
+		while (this.units.size() >= this.maxUnitsInFlight) {
+			this.combineOldestUnit();
+		}
+		MutableList<VisitedItem> unitItems = this.pendingItems;
+		this.pendingItems = Lists.mutable.empty();
+		this.units.addLast(this.pool.submit(() -> this.extractUnit(unitItems)));
+	}
+
+	private void combineOldestUnit() {
+		this.stagedImport.addAll(this.units.removeFirst().join());
+	}
+
+	private StagedImport extractUnit(MutableList<VisitedItem> unitItems) {
+		ImmutableList<ItemExtractor> extractors = this.extractorsFactory.get();
+		StagedImport unitImport = new StagedImport();
+		for (VisitedItem item : unitItems) {
+			ExtractionPipeline.extract(
+				extractors,
+				item.inputItem(),
+				item.parentId(),
+				item.priority(),
+				item.unchanged(),
+				unitImport
+			);
+		}
+		return unitImport;
+	}
+
+	private record VisitedItem(InputItem inputItem, @Nullable String parentId, int priority, boolean unchanged) {}
+}
@@ -0,0 +1,45 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeTagMapping;
+import com.workflowy.Tag;
+import com.workflowy.data.converter.HashtagExtractor;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+import org.eclipse.collections.api.list.ListIterable;
+
+/**
+ * Stages a {@link Tag} and a {@link NodeTagMapping} for each hashtag in an item's name or note.
+ */
+public final class TagExtractor implements ItemExtractor {
+
+	private final HashtagExtractor hashtagExtractor = new HashtagExtractor();
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		ListIterable<String> extractedTags = this.hashtagExtractor.scan(inputItem.name(), inputItem.note());
+
+		for (String tagName : extractedTags) {
+			stagedImport
+				.getTags()
+				.computeIfAbsent(tagName, (t) -> {
+					Tag newTag = new Tag();
+					newTag.setName(t);
+					newTag.setColor(null);
+					return newTag;
+				});
+
+			NodeTagMapping mapping = new NodeTagMapping();
+			mapping.setNodeId(inputItem.id());
+			mapping.setTagName(tagName);
+			stagedImport.getNodeTagMappings().add(mapping);
+		}
+	}
+}
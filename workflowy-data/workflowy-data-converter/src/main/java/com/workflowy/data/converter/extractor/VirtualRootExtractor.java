@@ -0,0 +1,33 @@
+package com.workflowy.data.converter.extractor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.VirtualRootMapping;
+import com.workflowy.data.converter.StagedImport;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import org.eclipse.collections.impl.utility.MapIterate;
+
+public final class VirtualRootExtractor implements ItemExtractor {
+
+	@Override
+	public void extract(
+		@Nonnull InputItem inputItem,
+		@Nullable String parentId,
+		int priority,
+		@Nonnull StagedImport stagedImport
+	) {
+		InputMetadata metadata = inputItem.metadata();
+		if (metadata == null || MapIterate.isEmpty(metadata.virtualRootIds())) {
+			return;
+		}
+
+		for (String virtualRootId : metadata.virtualRootIds().keySet()) {
+			VirtualRootMapping mapping = new VirtualRootMapping();
+			mapping.setNodeId(inputItem.id());
+			mapping.setVirtualRootId(virtualRootId);
+			stagedImport.getVirtualRootMappings().add(mapping);
+		}
+	}
+}
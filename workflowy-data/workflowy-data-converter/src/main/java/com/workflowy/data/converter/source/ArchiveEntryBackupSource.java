@@ -0,0 +1,102 @@
+package com.workflowy.data.converter.source;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+/**
+ * A backup stored as an entry of a zip or tar archive, optionally compressed itself.
+ *
+ * <p>A zip entry is opened directly. A tar archive has no index, so opening an entry reads past the entries before it;
+ * in an uncompressed tar those are skipped without reading their content. {@link SequentialBackupReader} opens many
+ * entries of one tar archive in a single pass.
+ *
+ * @param archiveCompression the compression of the whole tar archive, always {@link Compression#NONE} for a zip
+ * @param entryCompression   the compression of the entry itself
+ */
+record ArchiveEntryBackupSource(
+	@Nonnull Path archive,
+	@Nonnull Compression archiveCompression,
+	@Nonnull String entryName,
+	@Nonnull Compression entryCompression
+) implements BackupSource {
+
+	ArchiveEntryBackupSource {
+		Objects.requireNonNull(archive);
+		Objects.requireNonNull(archiveCompression);
+		Objects.requireNonNull(entryName);
+		Objects.requireNonNull(entryCompression);
+	}
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return this.entryCompression.stripSuffix(BackupSources.baseName(this.entryName));
+	}
+
+	@Nonnull
+	@Override
+	public InputStream open() throws IOException {
+		return this.isTarEntry() ? this.openTarEntry() : this.openZipEntry();
+	}
+
+	@Override
+	public boolean isArchiveEntry() {
+		return true;
+	}
+
+	boolean isTarEntry() {
+		return !BackupSources.isZip(this.archive);
+	}
+
+	private InputStream openZipEntry() throws IOException {
+		ZipFile zipFile = new ZipFile(this.archive.toFile());
+		try {
+			ZipEntry entry = zipFile.getEntry(this.entryName);
+			if (entry == null) {
+				throw new IOException("Expected entry " + this.entryName + " in " + this.archive);
+			}
+			InputStream entryStream = new FilterInputStream(zipFile.getInputStream(entry)) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						zipFile.close();
+					}
+				}
+			};
+			return this.entryCompression.decompress(new BufferedInputStream(entryStream));
+		} catch (IOException | RuntimeException e) {
+			zipFile.close();
+			throw e;
+		}
+	}
+
+	private InputStream openTarEntry() throws IOException {
+		TarArchiveInputStream tarStream = BackupSources.openTar(this.archive, this.archiveCompression);
+		try {
+			if (!BackupSources.skipToEntry(tarStream, this.entryName)) {
+				throw new IOException("Expected entry " + this.entryName + " in " + this.archive);
+			}
+			return this.entryCompression.decompress(tarStream);
+		} catch (IOException | RuntimeException e) {
+			tarStream.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.archive + "!/" + this.entryName;
+	}
+}
@@ -0,0 +1,33 @@
+package com.workflowy.data.converter.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * One Workflowy backup to import, stored as a plain or compressed file or as an entry of an archive.
+ */
+public interface BackupSource {
+
+	/**
+	 * The backup's file name without directories or compression suffix, such as
+	 * {@code (user@example.com).2024-01-31.workflowy.backup}, which names its user and date.
+	 */
+	@Nonnull
+	String getName();
+
+	/**
+	 * Opens the decompressed backup JSON. Each call streams it again from storage.
+	 */
+	@Nonnull
+	InputStream open() throws IOException;
+
+	/**
+	 * Whether the backup is an entry of an archive, which {@link SequentialBackupReader} reads in one pass with the
+	 * entries around it rather than reopening it.
+	 */
+	default boolean isArchiveEntry() {
+		return false;
+	}
+}
@@ -0,0 +1,157 @@
+package com.workflowy.data.converter.source;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * Finds the Workflowy backups in a directory.
+ *
+ * <p>A backup is a {@code .workflowy.backup} file, optionally compressed as {@code .gz} or {@code .zst}. Backups are
+ * also read from the entries of {@code .zip} archives and of {@code .tar} archives, which may themselves be compressed
+ * as {@code .tar.gz}, {@code .tgz} or {@code .tar.zst}. Everything is decompressed while it streams, without temporary
+ * files.
+ */
+public final class BackupSources {
+
+	private static final String BACKUP_SUFFIX = ".workflowy.backup";
+
+	private BackupSources() {}
+
+	/**
+	 * @return the backups in the directory and its archives, sorted by {@link BackupSource#getName()}
+	 */
+	public static ImmutableList<BackupSource> list(@Nonnull Path directory) {
+		try (Stream<Path> files = Files.list(directory)) {
+			return of(files.filter(Files::isRegularFile).toList());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to list backup files in " + directory, e);
+		}
+	}
+
+	/**
+	 * @return the backups among the files and in their archives, sorted by {@link BackupSource#getName()}
+	 */
+	public static ImmutableList<BackupSource> of(@Nonnull Iterable<Path> files) {
+		MutableList<BackupSource> sources = Lists.mutable.empty();
+		for (Path file : files) {
+			try {
+				addSources(file, sources);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Failed to read backup files in " + file, e);
+			}
+		}
+		return sources.sortThisBy(BackupSource::getName).toImmutable();
+	}
+
+	/**
+	 * Whether {@link #list} reads backups from a file with this name.
+	 */
+	public static boolean isBackupOrArchive(@Nonnull String fileName) {
+		String uncompressedName = Compression.of(fileName).stripSuffix(fileName);
+		return uncompressedName.endsWith(BACKUP_SUFFIX)
+			|| uncompressedName.endsWith(".tar")
+			|| fileName.endsWith(".tgz")
+			|| fileName.endsWith(".zip");
+	}
+
+	private static void addSources(Path file, MutableList<BackupSource> sources) throws IOException {
+		String fileName = file.getFileName().toString();
+		Compression compression = Compression.of(fileName);
+		String uncompressedName = compression.stripSuffix(fileName);
+		if (uncompressedName.endsWith(BACKUP_SUFFIX)) {
+			sources.add(new FileBackupSource(file, compression));
+		} else if (isZip(file)) {
+			addZipEntries(file, sources);
+		} else if (uncompressedName.endsWith(".tar")) {
+			addTarEntries(file, compression, sources);
+		} else if (fileName.endsWith(".tgz")) {
+			addTarEntries(file, Compression.GZIP, sources);
+		}
+	}
+
+	private static void addZipEntries(Path archive, MutableList<BackupSource> sources) throws IOException {
+		try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory()) {
+					addEntry(archive, Compression.NONE, entry.getName(), sources);
+				}
+			}
+		}
+	}
+
+	private static void addTarEntries(
+		Path archive,
+		Compression archiveCompression,
+		MutableList<BackupSource> sources
+	) throws IOException {
+		try (TarArchiveInputStream tarStream = openTar(archive, archiveCompression)) {
+			for (TarArchiveEntry entry = tarStream.getNextEntry(); entry != null; entry = tarStream.getNextEntry()) {
+				if (entry.isFile()) {
+					addEntry(archive, archiveCompression, entry.getName(), sources);
+				}
+			}
+		}
+	}
+
+	private static void addEntry(
+		Path archive,
+		Compression archiveCompression,
+		String entryName,
+		MutableList<BackupSource> sources
+	) {
+		Compression entryCompression = Compression.of(entryName);
+		if (entryCompression.stripSuffix(entryName).endsWith(BACKUP_SUFFIX)) {
+			sources.add(new ArchiveEntryBackupSource(archive, archiveCompression, entryName, entryCompression));
+		}
+	}
+
+	static TarArchiveInputStream openTar(Path archive, Compression archiveCompression) throws IOException {
+		InputStream archiveStream = new BufferedInputStream(Files.newInputStream(archive));
+		try {
+			return new TarArchiveInputStream(archiveCompression.decompress(archiveStream));
+		} catch (IOException | RuntimeException e) {
+			archiveStream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads past the entries before {@code entryName}, leaving the stream at the start of its content.
+	 *
+	 * @return whether the entry was found before the end of the archive
+	 */
+	static boolean skipToEntry(TarArchiveInputStream tarStream, String entryName) throws IOException {
+		for (TarArchiveEntry entry = tarStream.getNextEntry(); entry != null; entry = tarStream.getNextEntry()) {
+			if (entry.getName().equals(entryName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static boolean isZip(Path file) {
+		return file.getFileName().toString().endsWith(".zip");
+	}
+
+	static String baseName(String entryName) {
+		return entryName.substring(entryName.lastIndexOf('/') + 1);
+	}
+}
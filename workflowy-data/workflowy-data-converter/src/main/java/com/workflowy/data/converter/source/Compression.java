@@ -0,0 +1,51 @@
+package com.workflowy.data.converter.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.annotation.Nonnull;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * The compression of a backup file or archive, recognized by its file name suffix.
+ */
+enum Compression {
+	NONE(""),
+	GZIP(".gz"),
+	ZSTD(".zst");
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String suffix;
+
+	Compression(String suffix) {
+		this.suffix = suffix;
+	}
+
+	static Compression of(@Nonnull String fileName) {
+		if (fileName.endsWith(GZIP.suffix)) {
+			return GZIP;
+		}
+		if (fileName.endsWith(ZSTD.suffix)) {
+			return ZSTD;
+		}
+		return NONE;
+	}
+
+	String stripSuffix(@Nonnull String fileName) {
+		return fileName.substring(0, fileName.length() - this.suffix.length());
+	}
+
+	/**
+	 * Wraps the stream so it reads decompressed bytes. Closing the result closes {@code inputStream}.
+	 */
+	InputStream decompress(@Nonnull InputStream inputStream) throws IOException {
+		return switch (this) {
+			case NONE -> inputStream;
+			case GZIP -> new GZIPInputStream(inputStream, BUFFER_SIZE);
+			case ZSTD -> new ZstdInputStream(inputStream);
+		};
+	}
+}
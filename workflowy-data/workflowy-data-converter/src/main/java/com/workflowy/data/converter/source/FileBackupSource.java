@@ -0,0 +1,38 @@
+package com.workflowy.data.converter.source;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A backup stored as its own file, optionally compressed.
+ */
+record FileBackupSource(@Nonnull Path file, @Nonnull Compression compression) implements BackupSource {
+
+	FileBackupSource {
+		Objects.requireNonNull(file);
+		Objects.requireNonNull(compression);
+	}
+
+	@Nonnull
+	@Override
+	public String getName() {
+		return this.compression.stripSuffix(this.file.getFileName().toString());
+	}
+
+	@Nonnull
+	@Override
+	public InputStream open() throws IOException {
+		return this.compression.decompress(new BufferedInputStream(Files.newInputStream(this.file)));
+	}
+
+	@Override
+	public String toString() {
+		return this.file.toString();
+	}
+}
@@ -0,0 +1,79 @@
+package com.workflowy.data.converter.source;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+/**
+ * Opens backups one after another, reading a tar archive in a single pass while its entries are opened in archive
+ * order.
+ *
+ * <p>{@link BackupSource#open()} rescans a tar archive from its start for every entry, which for a compressed archive
+ * means decompressing every entry before it again. This reader instead keeps the last tar archive open after the entry
+ * it returned, and continues from there when the next entry comes later in the same archive. It only rescans the
+ * archive when an entry comes earlier.
+ *
+ * <p>Each stream must be closed before the next one is opened. Not thread-safe.
+ */
+public final class SequentialBackupReader implements AutoCloseable {
+
+	@Nullable
+	private Path tarArchive;
+	@Nullable
+	private TarArchiveInputStream tarStream;
+
+	/**
+	 * Opens the decompressed backup JSON, like {@link BackupSource#open()}.
+	 */
+	@Nonnull
+	public InputStream open(@Nonnull BackupSource backupSource) throws IOException {
+		if (!(backupSource instanceof ArchiveEntryBackupSource entrySource) || !entrySource.isTarEntry()) {
+			return backupSource.open();
+		}
+
+		TarArchiveInputStream entryStream = this.seek(entrySource);
+		return entrySource.entryCompression().decompress(new FilterInputStream(entryStream) {
+			@Override
+			public void close() {
+				// Leaves the archive open for the entries after this one
+			}
+		});
+	}
+
+	private TarArchiveInputStream seek(ArchiveEntryBackupSource entrySource) throws IOException {
+		if (this.tarStream != null && entrySource.archive().equals(this.tarArchive)
+			&& BackupSources.skipToEntry(this.tarStream, entrySource.entryName())) {
+			return this.tarStream;
+		}
+
+		this.close();
+		this.tarStream = BackupSources.openTar(entrySource.archive(), entrySource.archiveCompression());
+		this.tarArchive = entrySource.archive();
+		if (!BackupSources.skipToEntry(this.tarStream, entrySource.entryName())) {
+			throw new IOException("Expected entry " + entrySource.entryName() + " in " + entrySource.archive());
+		}
+		return this.tarStream;
+	}
+
+	@Override
+	public void close() {
+		if (this.tarStream == null) {
+			return;
+		}
+		try {
+			this.tarStream.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to close " + this.tarArchive, e);
+		} finally {
+			this.tarStream = null;
+			this.tarArchive = null;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package com.workflowy.data.converter.watch;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.workflowy.data.converter.ImportOptions;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.ValidationMethod;
+import org.eclipse.collections.api.factory.Sets;
+
+/**
+ * Configures {@link WatchingImporter}, which imports backups as they land in a directory while the server runs.
+ */
+public class ImportWatchConfiguration {
+
+	private boolean enabled;
+
+	@Nullable
+	private String backupsPath;
+
+	@NotNull
+	private Duration debounce = Duration.seconds(10);
+
+	@NotNull
+	private Duration pollInterval = Duration.minutes(1);
+
+	@Min(1)
+	private int userConcurrency = 1;
+
+	@Min(1)
+	private int extractionThreads = 1;
+
+	@NotNull
+	private List<String> setBasedMerge = List.of();
+
+	@Nullable
+	@Min(1)
+	private Integer transactionChunkSize;
+
+	@JsonProperty("enabled")
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	@JsonProperty("enabled")
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@JsonProperty("backupsPath")
+	@Nullable
+	public String getBackupsPath() {
+		return this.backupsPath;
+	}
+
+	@JsonProperty("backupsPath")
+	public void setBackupsPath(@Nullable String backupsPath) {
+		this.backupsPath = backupsPath;
+	}
+
+	/**
+	 * How long a file's size and modification time must stay the same before it is imported.
+	 */
+	@JsonProperty("debounce")
+	@NotNull
+	public Duration getDebounce() {
+		return this.debounce;
+	}
+
+	@JsonProperty("debounce")
+	public void setDebounce(@NotNull Duration debounce) {
+		this.debounce = debounce;
+	}
+
+	/**
+	 * How often the directory is listed even without file system events, which some mounts never deliver.
+	 */
+	@JsonProperty("pollInterval")
+	@NotNull
+	public Duration getPollInterval() {
+		return this.pollInterval;
+	}
+
+	@JsonProperty("pollInterval")
+	public void setPollInterval(@NotNull Duration pollInterval) {
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * How many users' backups are imported at the same time, each user's in date order.
+	 */
+	@JsonProperty("userConcurrency")
+	public int getUserConcurrency() {
+		return this.userConcurrency;
+	}
+
+	@JsonProperty("userConcurrency")
+	public void setUserConcurrency(int userConcurrency) {
+		this.userConcurrency = userConcurrency;
+	}
+
+	@JsonProperty("extractionThreads")
+	public int getExtractionThreads() {
+		return this.extractionThreads;
+	}
+
+	@JsonProperty("extractionThreads")
+	public void setExtractionThreads(int extractionThreads) {
+		this.extractionThreads = extractionThreads;
+	}
+
+	@JsonProperty("setBasedMerge")
+	@NotNull
+	public List<String> getSetBasedMerge() {
+		return this.setBasedMerge;
+	}
+
+	@JsonProperty("setBasedMerge")
+	public void setSetBasedMerge(@NotNull List<String> setBasedMerge) {
+		this.setBasedMerge = setBasedMerge;
+	}
+
+	@JsonProperty("transactionChunkSize")
+	@Nullable
+	public Integer getTransactionChunkSize() {
+		return this.transactionChunkSize;
+	}
+
+	@JsonProperty("transactionChunkSize")
+	public void setTransactionChunkSize(@Nullable Integer transactionChunkSize) {
+		this.transactionChunkSize = transactionChunkSize;
+	}
+
+	@JsonIgnore
+	@ValidationMethod(message = "backupsPath is required when the import watch is enabled")
+	public boolean isBackupsPathSetWhenEnabled() {
+		return !this.enabled || this.backupsPath != null && !this.backupsPath.isBlank();
+	}
+
+	public ImportOptions toImportOptions() {
+		return new ImportOptions(
+			this.userConcurrency,
+			this.extractionThreads,
+			Sets.immutable.withAll(this.setBasedMerge),
+			this.transactionChunkSize
+		);
+	}
+}
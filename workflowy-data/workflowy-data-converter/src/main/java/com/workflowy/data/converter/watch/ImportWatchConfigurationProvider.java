@@ -0,0 +1,8 @@
+package com.workflowy.data.converter.watch;
+
+import javax.annotation.Nonnull;
+
+public interface ImportWatchConfigurationProvider {
+	@Nonnull
+	ImportWatchConfiguration getImportWatchConfiguration();
+}
@@ -0,0 +1,83 @@
+package com.workflowy.data.converter.watch;
+
+import java.nio.file.Path;
+
+import javax.annotation.Nonnull;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MapIterable;
+import org.eclipse.collections.api.map.MutableMap;
+
+/**
+ * Tracks the files of a watched directory until they stop changing.
+ *
+ * <p>A file settles once a listing finds the same size and modification time as it had at least the debounce period
+ * earlier, so a backup that is still being written or copied is not imported half way.
+ */
+final class SettledFiles {
+
+	private final long debounceNanos;
+	private final MutableMap<Path, FileState> knownStates = Maps.mutable.empty();
+	private final MutableMap<Path, PendingFile> pendingFiles = Maps.mutable.empty();
+
+	SettledFiles(long debounceNanos) {
+		this.debounceNanos = debounceNanos;
+	}
+
+	/**
+	 * Compares a new listing of the directory with the previous one.
+	 *
+	 * @return the files that settled since the previous listing
+	 */
+	ImmutableList<SettledFile> update(@Nonnull MapIterable<Path, FileState> listing, long nowNanos) {
+		this.knownStates.removeIf((path, state) -> !listing.containsKey(path));
+		this.pendingFiles.removeIf((path, pendingFile) -> !listing.containsKey(path));
+
+		listing.forEachKeyValue((path, state) -> {
+			if (!state.equals(this.knownStates.put(path, state))) {
+				PendingFile pendingFile = this.pendingFiles.get(path);
+				long firstSeenNanos = pendingFile == null ? nowNanos : pendingFile.firstSeenNanos();
+				this.pendingFiles.put(path, new PendingFile(nowNanos, firstSeenNanos));
+			}
+		});
+
+		MutableList<SettledFile> settledFiles = Lists.mutable.empty();
+		this.pendingFiles.forEachKeyValue((path, pendingFile) -> {
+			if (nowNanos - pendingFile.changedNanos() >= this.debounceNanos) {
+				settledFiles.add(new SettledFile(path, pendingFile.firstSeenNanos()));
+			}
+		});
+		settledFiles.forEach((settledFile) -> this.pendingFiles.remove(settledFile.path()));
+		return settledFiles.toImmutable();
+	}
+
+	/**
+	 * The number of files that changed and have not settled yet.
+	 */
+	int getPendingCount() {
+		return this.pendingFiles.size();
+	}
+
+	/**
+	 * @return the nanoseconds until the next pending file could settle, or -1 if none is pending
+	 */
+	long getNanosUntilNextSettle(long nowNanos) {
+		if (this.pendingFiles.isEmpty()) {
+			return -1;
+		}
+		long earliestChange = this.pendingFiles.valuesView().collectLong(PendingFile::changedNanos).min();
+		return Math.max(0, earliestChange + this.debounceNanos - nowNanos);
+	}
+
+	record FileState(long size, long lastModifiedMillis) {}
+
+	/**
+	 * @param firstSeenNanos when the file was first seen changing, to measure how long it took to import
+	 */
+	record SettledFile(@Nonnull Path path, long firstSeenNanos) {}
+
+	private record PendingFile(long changedNanos, long firstSeenNanos) {}
+}
@@ -0,0 +1,276 @@
+package com.workflowy.data.converter.watch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.converter.ImportMetrics;
+import com.workflowy.data.converter.ImportOptions;
+import com.workflowy.data.converter.WorkflowyDataConverter;
+import com.workflowy.data.converter.source.BackupSource;
+import com.workflowy.data.converter.source.BackupSources;
+import com.workflowy.data.converter.watch.SettledFiles.FileState;
+import com.workflowy.data.converter.watch.SettledFiles.SettledFile;
+import cool.klass.data.store.DataStore;
+import io.dropwizard.lifecycle.Managed;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Imports backups as they land in a directory, inside the running server instead of a separate import command.
+ *
+ * <p>The directory is listed on one thread, which also runs the imports, so imports never overlap. A listing runs on
+ * every file system event from a {@link WatchService}, every {@code pollInterval} for mounts that deliver no events,
+ * and when a changed file is due to settle. Once a backup or archive settles (see {@link SettledFiles}), the backups
+ * in the settled files that are after the high watermark are imported with {@link WorkflowyDataConverter#convert}.
+ * Files still being written are left alone. Settled files whose import failed are retried with the next ones that
+ * settle, or on a later listing once a backoff has passed, which doubles after each failure up to
+ * {@link #MAX_RETRY_DELAY}.
+ *
+ * <p>Registers the gauges {@code queue-depth}, the number of changed files waiting to settle, be imported or be
+ * retried, and
+ * {@code last-import-latency}, the milliseconds from first seeing a file change to the end of its import, along with
+ * the phase timers, row counters and gauges of {@link ImportMetrics}, so they can be scraped from the admin port.
+ */
+public final class WatchingImporter implements Managed {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WatchingImporter.class);
+
+	private static final Duration MAX_RETRY_DELAY = Duration.ofHours(1);
+
+	private final Path backupsPath;
+	private final long pollIntervalMillis;
+	private final ObjectMapper objectMapper;
+	private final DataStore dataStore;
+	private final ImportOptions importOptions;
+	private final SettledFiles settledFiles;
+
+	private final ImportMetrics importMetrics;
+	private final Timer importTimer;
+	private final Counter importFailures;
+	private volatile int queueDepth;
+	private volatile long lastImportLatencyMillis = -1;
+
+	private final AtomicBoolean scanRequested = new AtomicBoolean();
+	private ScheduledExecutorService scheduler;
+	private WatchService watchService;
+	private Thread watchThread;
+
+	// Only touched on the scheduler thread
+	@Nullable
+	private ScheduledFuture<?> settleWakeUp;
+	private ImmutableList<SettledFile> failedFiles = Lists.immutable.empty();
+	private int failedAttempts;
+	private long nextRetryNanos;
+
+	public WatchingImporter(
+		@Nonnull ImportWatchConfiguration configuration,
+		@Nonnull ObjectMapper objectMapper,
+		@Nonnull DataStore dataStore,
+		@Nonnull MetricRegistry metricRegistry
+	) {
+		this.backupsPath = Paths.get(Objects.requireNonNull(configuration.getBackupsPath()));
+		this.pollIntervalMillis = configuration.getPollInterval().toMilliseconds();
+		this.objectMapper = Objects.requireNonNull(objectMapper);
+		this.dataStore = Objects.requireNonNull(dataStore);
+		this.importOptions = configuration.toImportOptions();
+		this.settledFiles = new SettledFiles(configuration.getDebounce().toNanoseconds());
+
+		this.importMetrics = new ImportMetrics(metricRegistry);
+		this.importTimer = metricRegistry.timer(MetricRegistry.name(WatchingImporter.class, "import"));
+		this.importFailures = metricRegistry.counter(MetricRegistry.name(WatchingImporter.class, "import-failures"));
+		metricRegistry.register(
+			MetricRegistry.name(WatchingImporter.class, "queue-depth"),
+			(Gauge<Integer>) () -> this.queueDepth
+		);
+		metricRegistry.register(
+			MetricRegistry.name(WatchingImporter.class, "last-import-latency"),
+			(Gauge<Long>) () -> this.lastImportLatencyMillis
+		);
+	}
+
+	@Override
+	public void start() throws IOException {
+		LOGGER.info("Watching {} for new backups", this.backupsPath);
+
+		this.watchService = this.backupsPath.getFileSystem().newWatchService();
+		this.backupsPath.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "workflowy-import-watch");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::scan, 0, this.pollIntervalMillis, TimeUnit.MILLISECONDS);
+
+		this.watchThread = new Thread(this::watch, "workflowy-import-watch-events");
+		this.watchThread.setDaemon(true);
+		this.watchThread.start();
+	}
+
+	/**
+	 * Interrupts a running import, which rolls back and is retried by the first listing after the next start.
+	 */
+	@Override
+	public void stop() throws Exception {
+		this.watchService.close();
+		this.watchThread.join();
+		this.scheduler.shutdownNow();
+		if (!this.scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+			LOGGER.warn("Import still running after waiting one minute to stop");
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey watchKey = this.watchService.take();
+				watchKey.pollEvents();
+				this.requestScan();
+				if (!watchKey.reset()) {
+					LOGGER.warn("{} can no longer be watched, only polling it from now on", this.backupsPath);
+					return;
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			LOGGER.debug("Stopped watching {}", this.backupsPath);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Coalesces bursts of file system events into one listing.
+	 */
+	private void requestScan() {
+		if (this.scanRequested.compareAndSet(false, true)) {
+			this.scheduler.execute(this::scan);
+		}
+	}
+
+	private void scan() {
+		this.scanRequested.set(false);
+		try {
+			long now = System.nanoTime();
+			ImmutableList<SettledFile> settled = this.settledFiles.update(this.listBackupFiles(), now);
+			boolean retryDue = this.failedFiles.notEmpty() && now - this.nextRetryNanos >= 0;
+			this.queueDepth = this.settledFiles.getPendingCount() + settled.size() + this.failedFiles.size();
+			if (settled.notEmpty() || retryDue) {
+				this.importSettled(settled);
+			}
+			this.queueDepth = this.settledFiles.getPendingCount() + this.failedFiles.size();
+			this.scheduleSettleWakeUp();
+		} catch (RuntimeException e) {
+			// A scheduled task that throws is never run again
+			LOGGER.error("Failed to scan {}", this.backupsPath, e);
+		}
+	}
+
+	private MutableMap<Path, FileState> listBackupFiles() {
+		MutableMap<Path, FileState> listing = Maps.mutable.empty();
+		try (Stream<Path> files = Files.list(this.backupsPath)) {
+			for (Path file : files.toList()) {
+				if (!BackupSources.isBackupOrArchive(file.getFileName().toString())) {
+					continue;
+				}
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					if (attributes.isRegularFile()) {
+						listing.put(file, new FileState(attributes.size(), attributes.lastModifiedTime().toMillis()));
+					}
+				} catch (NoSuchFileException e) {
+					LOGGER.debug("{} was removed while listing", file);
+				}
+			}
+		} catch (IOException e) {
+			// An empty listing would make every file look new again once listing works
+			throw new UncheckedIOException("Failed to list " + this.backupsPath, e);
+		}
+		return listing;
+	}
+
+	private void importSettled(ImmutableList<SettledFile> settled) {
+		ImmutableList<SettledFile> toImport = this.failedFiles
+			.newWithAll(settled)
+			.distinctBy(SettledFile::path)
+			.select((settledFile) -> Files.isRegularFile(settledFile.path()));
+		this.failedFiles = Lists.immutable.empty();
+		if (toImport.isEmpty()) {
+			return;
+		}
+		ImmutableList<Path> paths = toImport.collect(SettledFile::path);
+		LOGGER.info("Importing {}", paths);
+		try (Timer.Context ignored = this.importTimer.time()) {
+			ImmutableList<BackupSource> backupSources = BackupSources.of(paths);
+			WorkflowyDataConverter.convert(
+				backupSources,
+				this.objectMapper,
+				this.dataStore,
+				Integer.MAX_VALUE,
+				this.importOptions,
+				this.importMetrics
+			);
+		} catch (RuntimeException e) {
+			this.importFailures.inc();
+			this.failedFiles = toImport;
+			Duration retryDelay = this.nextRetryDelay();
+			this.nextRetryNanos = System.nanoTime() + retryDelay.toNanos();
+			LOGGER.error("Failed to import {}, retrying in {} or when another file settles", paths, retryDelay, e);
+			return;
+		}
+		this.failedAttempts = 0;
+		long firstSeenNanos = toImport.collectLong(SettledFile::firstSeenNanos).min();
+		this.lastImportLatencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstSeenNanos);
+	}
+
+	/**
+	 * One poll interval after the first failure, doubling with each failure after it.
+	 */
+	private Duration nextRetryDelay() {
+		int doublings = Math.min(this.failedAttempts, 20);
+		this.failedAttempts++;
+		Duration retryDelay = Duration.ofMillis(this.pollIntervalMillis).multipliedBy(1L << doublings);
+		return retryDelay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : retryDelay;
+	}
+
+	private void scheduleSettleWakeUp() {
+		if (this.settleWakeUp != null) {
+			this.settleWakeUp.cancel(false);
+		}
+		long delayNanos = this.settledFiles.getNanosUntilNextSettle(System.nanoTime());
+		this.settleWakeUp = delayNanos < 0
+			? null
+			: this.scheduler.schedule(this::requestScan, delayNanos, TimeUnit.NANOSECONDS);
+	}
+}
@@ -0,0 +1,180 @@
+package com.workflowy.data.converter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.fw.common.mithra.MithraManagerProvider;
+import com.gs.fw.common.mithra.test.ConnectionManagerForTests;
+import com.gs.fw.common.mithra.test.MithraTestResource;
+import com.workflowy.NodeContentChange;
+import com.workflowy.NodeContentChangeFinder;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentChangeFeedTest {
+
+	private static final String RUNTIME_CONFIGURATION =
+		"reladomo-runtime-configuration/TestReladomoRuntimeConfiguration.xml";
+	private static final String USER_ID = "user@example.com";
+
+	private static final Instant DAY_1 = Instant.parse("2024-01-01T00:00:00Z");
+	private static final Instant DAY_2 = Instant.parse("2024-01-02T00:00:00Z");
+	private static final Instant DAY_3 = Instant.parse("2024-01-03T00:00:00Z");
+
+	private final ImportBaseline baseline = ImportBaseline.empty();
+	private final ImportMetrics metrics = new ImportMetrics(new MetricRegistry());
+	private MithraTestResource testResource;
+
+	@BeforeEach
+	void setUp() {
+		this.testResource = new MithraTestResource(RUNTIME_CONFIGURATION);
+		this.testResource.createSingleDatabase(ConnectionManagerForTests.getInstanceForDbName("workflowy"));
+		this.testResource.setUp();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.testResource.tearDown();
+	}
+
+	@Test
+	void recordsOwnChangesAndDescendantsOfRenamedNodes() {
+		this.importOutline(DAY_1, true, List.of(
+			item("root", "Root", 0L, List.of(
+				item("parent", "Parent", 0L, List.of(
+					item("child", "Child", 0L, List.of(
+						item("grandchild", "Grandchild", 0L, List.of())
+					))
+				)),
+				item("other", "Other", 0L, List.of())
+			))
+		));
+		assertEquals(
+			changes(
+				"root", "INSERTED",
+				"parent", "INSERTED",
+				"child", "INSERTED",
+				"grandchild", "INSERTED",
+				"other", "INSERTED"
+			),
+			changesAt(DAY_1)
+		);
+
+		// Renames the parent, adds a node and only touches the last modified time of another
+		this.importOutline(DAY_2, false, List.of(
+			item("root", "Root", 0L, List.of(
+				item("parent", "Parent, renamed", 0L, List.of(
+					item("child", "Child", 0L, List.of(
+						item("grandchild", "Grandchild", 0L, List.of())
+					)),
+					item("added", "Added", 0L, List.of())
+				)),
+				item("other", "Other", 1L, List.of())
+			))
+		));
+		assertEquals(
+			changes(
+				"parent", "UPDATED",
+				"child", "ANCESTOR_CHANGED",
+				"grandchild", "ANCESTOR_CHANGED",
+				"added", "INSERTED"
+			),
+			changesAt(DAY_2)
+		);
+
+		this.importOutline(DAY_3, false, List.of(
+			item("root", "Root", 0L, List.of(
+				item("parent", "Parent, renamed", 0L, List.of(
+					item("child", "Child", 0L, List.of(
+						item("grandchild", "Grandchild", 0L, List.of())
+					))
+				)),
+				item("other", "Other", 1L, List.of())
+			))
+		));
+		assertEquals(changes("added", "TERMINATED"), changesAt(DAY_3));
+	}
+
+	private void importOutline(Instant importTimestamp, boolean initialLoad, List<InputItem> outline) {
+		StagedImport stagedImport = new StagedImport();
+		InputItemWalker.walk(
+			outline,
+			new ExtractionPipeline(
+				ExtractionPipeline.defaultExtractors(new ObjectMapper(), USER_ID),
+				stagedImport,
+				this.baseline
+			)
+		);
+		MutableSet<String> changedNodeIds = this.baseline.getChangedNodeIds(stagedImport.getRowHashes());
+		this.baseline.advanceTo(importTimestamp.toString(), stagedImport.getRowHashes());
+
+		MithraManagerProvider.getMithraManager().executeTransactionalCommand((transaction) -> {
+			transaction.setProcessingStartTime(importTimestamp.toEpochMilli());
+			ContentChangeFeed changeFeed = new ContentChangeFeed(
+				USER_ID,
+				stagedImport,
+				changedNodeIds,
+				importTimestamp
+			);
+			if (initialLoad) {
+				new InitialLoad(USER_ID, stagedImport, this.metrics).insertAll();
+				changeFeed.recordAllInserted();
+			} else {
+				new TargetedMerge(USER_ID, stagedImport, changedNodeIds, Sets.immutable.empty(), this.metrics)
+					.mergeAll();
+				changeFeed.record();
+			}
+			return null;
+		});
+	}
+
+	private static MutableMap<String, String> changes(String... seedsAndKinds) {
+		MutableMap<String, String> changes = Maps.mutable.empty();
+		for (int i = 0; i < seedsAndKinds.length; i += 2) {
+			changes.put(nodeId(seedsAndKinds[i]), seedsAndKinds[i + 1]);
+		}
+		return changes;
+	}
+
+	private static MutableMap<String, String> changesAt(Instant importTimestamp) {
+		MutableMap<String, String> changes = Maps.mutable.empty();
+		for (NodeContentChange change : NodeContentChangeFinder.findMany(
+			NodeContentChangeFinder.importTimestamp().eq(Timestamp.from(importTimestamp))
+		)) {
+			changes.put(change.getNodeId(), change.getKind());
+		}
+		return changes;
+	}
+
+	private static InputItem item(String seed, String name, long lastModified, List<InputItem> children) {
+		return new InputItem(
+			nodeId(seed),
+			name,
+			null,
+			400_000_000L,
+			400_000_000L + lastModified,
+			null,
+			InputMetadata.empty(),
+			children
+		);
+	}
+
+	private static String nodeId(String seed) {
+		return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString();
+	}
+}
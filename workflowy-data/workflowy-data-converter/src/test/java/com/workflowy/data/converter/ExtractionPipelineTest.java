@@ -0,0 +1,174 @@
+package com.workflowy.data.converter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.converter.extractor.ItemExtractor;
+import com.workflowy.data.converter.extractor.NodeContentExtractor;
+import com.workflowy.data.converter.extractor.NodeHashes;
+import com.workflowy.data.converter.extractor.ParallelExtractionPipeline;
+import com.workflowy.data.converter.extractor.TagExtractor;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionPipelineTest {
+
+	@Test
+	void skipsUnchangedItemsAgainstTheBaseline() {
+		ImportBaseline baseline = ImportBaseline.empty();
+
+		StagedImport firstImport = new StagedImport();
+		List<String> firstVisits = new ArrayList<>();
+		InputItemWalker.walk(outline("Leaf"), recordingPipeline(firstImport, baseline, firstVisits));
+		assertEquals(List.of("leaf", "child", "sibling", "root"), firstVisits);
+
+		baseline.advanceTo("first", firstImport.getRowHashes());
+
+		StagedImport secondImport = new StagedImport();
+		List<String> secondVisits = new ArrayList<>();
+		InputItemWalker.walk(outline("Leaf, edited"), recordingPipeline(secondImport, baseline, secondVisits));
+		assertEquals(List.of("leaf"), secondVisits);
+		assertEquals(Lists.mutable.with("leaf"), baseline.getChangedNodeIds(secondImport.getRowHashes()).toList());
+		assertEquals(firstImport.getRowHashes().get("root"), secondImport.getRowHashes().get("root"));
+	}
+
+	@Test
+	void rowHashCoversMetadataRegardlessOfMemberOrder() {
+		Map<String, Object> changes = new LinkedHashMap<>();
+		changes.put("a", 1);
+		changes.put("b", List.of("x", true));
+		Map<String, Object> reordered = new LinkedHashMap<>();
+		reordered.put("b", List.of("x", true));
+		reordered.put("a", 1);
+
+		long hash = NodeHashes.rowHash(metadataItem("h1", changes), null, 0);
+		assertEquals(hash, NodeHashes.rowHash(metadataItem("h1", reordered), null, 0));
+		assertNotEquals(hash, NodeHashes.rowHash(metadataItem("h2", changes), null, 0));
+		assertNotEquals(hash, NodeHashes.rowHash(metadataItem("h1", Map.<String, Object>of("a", "1")), null, 0));
+	}
+
+	@Test
+	void singlePassMatchesSeparatePasses() {
+		List<InputItem> outline = taggedOutline(2, 200);
+
+		StagedImport separatePasses = new StagedImport();
+		ImmutableList<ItemExtractor> contentPass = Lists.immutable.with(new NodeContentExtractor());
+		ImmutableList<ItemExtractor> tagPass = Lists.immutable.with(new TagExtractor());
+		InputItemWalker.walk(outline, new ExtractionPipeline(contentPass, separatePasses, ImportBaseline.empty()));
+		InputItemWalker.walk(outline, new ExtractionPipeline(tagPass, separatePasses, ImportBaseline.empty()));
+
+		StagedImport singlePass = new StagedImport();
+		ImmutableList<ItemExtractor> extractors = Lists.immutable.with(new NodeContentExtractor(), new TagExtractor());
+		InputItemWalker.walk(outline, new ExtractionPipeline(extractors, singlePass, ImportBaseline.empty()));
+
+		assertEquals(nodeIds(separatePasses), nodeIds(singlePass));
+		assertEquals(separatePasses.getTags().keysView().toList(), singlePass.getTags().keysView().toList());
+		assertEquals(tagMappingKeys(separatePasses), tagMappingKeys(singlePass));
+	}
+
+	@Test
+	void parallelExtractionMatchesSequentialExtraction() {
+		List<InputItem> outline = taggedOutline(3, 5_000);
+		ImmutableList<ItemExtractor> extractors = Lists.immutable.with(new NodeContentExtractor(), new TagExtractor());
+
+		StagedImport sequential = new StagedImport();
+		InputItemWalker.walk(outline, new ExtractionPipeline(extractors, sequential, ImportBaseline.empty()));
+
+		StagedImport parallel = new StagedImport();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelExtractionPipeline pipeline = new ParallelExtractionPipeline(
+				() -> Lists.immutable.with(new NodeContentExtractor(), new TagExtractor()),
+				parallel,
+				ImportBaseline.empty(),
+				pool
+			);
+			InputItemWalker.walk(outline, pipeline);
+			pipeline.finish();
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(nodeIds(sequential), nodeIds(parallel));
+		assertEquals(sequential.getTags().keysView().toList(), parallel.getTags().keysView().toList());
+		assertEquals(tagMappingKeys(sequential), tagMappingKeys(parallel));
+		assertEquals(sequential.getRowHashes(), parallel.getRowHashes());
+	}
+
+	private static List<String> nodeIds(StagedImport stagedImport) {
+		StagedNodes nodes = stagedImport.getNodes();
+		List<String> nodeIds = new ArrayList<>();
+		for (int row = 0; row < nodes.size(); row++) {
+			nodeIds.add(nodes.getNodeId(row));
+		}
+		return nodeIds;
+	}
+
+	private static List<String> tagMappingKeys(StagedImport stagedImport) {
+		return stagedImport
+			.getNodeTagMappings()
+			.stream()
+			.map((mapping) -> mapping.getNodeId() + "/" + mapping.getTagName())
+			.toList();
+	}
+
+	private static ExtractionPipeline recordingPipeline(
+		StagedImport stagedImport,
+		ImportBaseline baseline,
+		List<String> visits
+	) {
+		ItemExtractor recorder = (inputItem, parentId, priority, staged) -> visits.add(inputItem.id());
+		return new ExtractionPipeline(Lists.immutable.with(recorder), stagedImport, baseline);
+	}
+
+	private static List<InputItem> outline(String leafName) {
+		InputItem leaf = new InputItem("leaf", leafName, null, 1L, 2L, null, InputMetadata.empty(), List.of());
+		InputItem child = item("child", List.of(leaf));
+		InputItem sibling = item("sibling", List.of());
+		return List.of(item("root", List.of(child, sibling)));
+	}
+
+	private static List<InputItem> taggedOutline(int rootCount, int childrenPerRoot) {
+		List<InputItem> roots = new ArrayList<>();
+		for (int root = 0; root < rootCount; root++) {
+			List<InputItem> children = new ArrayList<>();
+			for (int child = 0; child < childrenPerRoot; child++) {
+				String id = "node-" + root + "-" + child;
+				String name = "Item " + child + " #tag" + (child % 97) + " @person" + (child % 13);
+				children.add(new InputItem(id, name, null, 1L, 2L, null, InputMetadata.empty(), List.of()));
+			}
+			roots.add(item("root-" + root, children));
+		}
+		return roots;
+	}
+
+	private static InputItem metadataItem(String layoutMode, Map<String, Object> changes) {
+		InputMetadata metadata = new InputMetadata(
+			null,
+			null,
+			null,
+			null,
+			null,
+			null,
+			null,
+			null,
+			layoutMode,
+			null,
+			changes
+		);
+		return new InputItem("item", "Item", null, 1L, 2L, null, metadata, List.of());
+	}
+
+	private static InputItem item(String id, List<InputItem> children) {
+		return new InputItem(id, id, null, 1L, 2L, null, InputMetadata.empty(), children);
+	}
+}
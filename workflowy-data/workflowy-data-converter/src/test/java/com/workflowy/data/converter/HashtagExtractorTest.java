@@ -0,0 +1,49 @@
+package com.workflowy.data.converter;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashtagExtractorTest {
+
+	@Test
+	void extractsLowercasedTagsOnceInOrder() {
+		assertEquals(
+			List.of("project", "alice", "to-do_2"),
+			HashtagExtractor.extractHashtags("#Project for @alice, #to-do_2 and #PROJECT again")
+		);
+	}
+
+	@Test
+	void matchesAsIfHtmlTagsWereRemoved() {
+		assertEquals(
+			List.of("bold", "link", "splitword"),
+			HashtagExtractor.extractHashtags(
+				"<b>#bold</b> <a href=\"https://example.com/#anchor\">#link</a> #split<i>word</i>"
+			)
+		);
+		assertEquals(List.of("open", "b"), HashtagExtractor.extractHashtags("#open < #b"));
+		assertEquals(List.of(), HashtagExtractor.extractHashtags("# @ ## <#hidden>"));
+		assertEquals(List.of(), HashtagExtractor.extractHashtags(null));
+	}
+
+	@Test
+	void scansNameAndNoteTogether() {
+		HashtagExtractor hashtagExtractor = new HashtagExtractor();
+		assertEquals(List.of("a", "b"), hashtagExtractor.scan("#a", "#A #b").toList());
+		assertEquals(List.of("c"), hashtagExtractor.scan(null, "#c").toList());
+	}
+
+	@Test
+	void growsPastTheInitialTableCapacity() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			text.append(" #tag").append(i).append(" #TAG").append(i);
+		}
+		List<String> hashtags = HashtagExtractor.extractHashtags(text.toString());
+		assertEquals(100, hashtags.size());
+		assertEquals("tag99", hashtags.get(99));
+	}
+}
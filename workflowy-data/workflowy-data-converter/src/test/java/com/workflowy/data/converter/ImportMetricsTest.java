@@ -0,0 +1,60 @@
+package com.workflowy.data.converter;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportMetricsTest {
+
+	private static final String USER_ID = "user@example.com";
+
+	private final MetricRegistry metricRegistry = new MetricRegistry();
+	private final ImportMetrics metrics = new ImportMetrics(this.metricRegistry);
+
+	@Test
+	void registersPhaseTimersAndRowCounters() {
+		for (int i = 0; i < 3; i++) {
+			try (ImportMetrics.Phase ignored = this.metrics.time("merge.NODE_CONTENT", USER_ID)) {
+				this.metrics.countRows("NodeContent", USER_ID, new RowCounts(2, 1, 0));
+			}
+		}
+		this.metrics.countRows("Tag", USER_ID, RowCounts.terminated(4));
+
+		String prefix = WorkflowyDataConverter.class.getName();
+		assertEquals(3, this.metricRegistry.timer(prefix + ".phase.merge.NODE_CONTENT").getCount());
+		assertEquals(6, this.metricRegistry.counter(prefix + ".rows.NodeContent.inserted").getCount());
+		assertEquals(3, this.metricRegistry.counter(prefix + ".rows.NodeContent.updated").getCount());
+		assertEquals(4, this.metricRegistry.counter(prefix + ".rows.Tag.terminated").getCount());
+
+		String summary = this.metrics.summary();
+		assertTrue(summary.contains("merge.NODE_CONTENT"), summary);
+		assertTrue(summary.matches("(?s).*NodeContent +6 +3 +0.*"), summary);
+	}
+
+	@Test
+	void sumsGaugesOverUsersUntilCleared() {
+		this.metrics.setFilesRemaining(USER_ID, 3);
+		this.metrics.setFilesRemaining("other@example.com", 2);
+		this.metrics.addStagedBytes(USER_ID, 1000);
+		this.metrics.addStagedBytes(USER_ID, -400);
+
+		String prefix = WorkflowyDataConverter.class.getName();
+		assertEquals(5, this.metricRegistry.getGauges().get(prefix + ".files-remaining").getValue());
+		assertEquals(600L, this.metricRegistry.getGauges().get(prefix + ".staged-bytes").getValue());
+
+		this.metrics.clear(USER_ID);
+		assertEquals(2, this.metricRegistry.getGauges().get(prefix + ".files-remaining").getValue());
+		assertEquals(0L, this.metricRegistry.getGauges().get(prefix + ".staged-bytes").getValue());
+	}
+
+	@Test
+	void sharesARegistryWithALaterInstance() {
+		this.metrics.setFilesRemaining(USER_ID, 3);
+		ImportMetrics laterMetrics = new ImportMetrics(this.metricRegistry);
+		laterMetrics.setFilesRemaining(USER_ID, 1);
+
+		String prefix = WorkflowyDataConverter.class.getName();
+		assertEquals(1, this.metricRegistry.getGauges().get(prefix + ".files-remaining").getValue());
+	}
+}
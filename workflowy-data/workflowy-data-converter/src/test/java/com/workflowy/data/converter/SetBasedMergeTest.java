@@ -0,0 +1,171 @@
+package com.workflowy.data.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gs.fw.common.mithra.MithraList;
+import com.gs.fw.common.mithra.MithraManagerProvider;
+import com.gs.fw.common.mithra.attribute.AsOfAttribute;
+import com.gs.fw.common.mithra.attribute.Attribute;
+import com.gs.fw.common.mithra.finder.Operation;
+import com.gs.fw.common.mithra.finder.RelatedFinder;
+import com.gs.fw.common.mithra.test.ConnectionManagerForTests;
+import com.gs.fw.common.mithra.test.MithraTestResource;
+import com.workflowy.MirrorFinder;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeDateFinder;
+import com.workflowy.NodeImportHashFinder;
+import com.workflowy.NodeMetadataFinder;
+import com.workflowy.NodeS3FileFinder;
+import com.workflowy.NodeTagMappingFinder;
+import com.workflowy.TagFinder;
+import com.workflowy.VirtualRootMappingFinder;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.generator.SyntheticBackupWriter;
+import com.workflowy.data.generator.SyntheticOutlineOptions;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.set.ImmutableSet;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.list.fixed.ArrayAdapter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Imports the same synthetic backups once with Reladomo's merge and once with {@link SetBasedMerge} for every supported
+ * entity, and compares the full milestone history of every table.
+ */
+class SetBasedMergeTest {
+
+	private static final String RUNTIME_CONFIGURATION =
+		"reladomo-runtime-configuration/TestReladomoRuntimeConfiguration.xml";
+	private static final String USER_ID = "user@example.com";
+	private static final LocalDate FIRST_DATE = LocalDate.parse("2024-01-01");
+	private static final int DAYS = 5;
+
+	// Small, with daily rates high enough that every day updates, inserts and deletes nodes of every kind
+	private static final SyntheticOutlineOptions OPTIONS = new SyntheticOutlineOptions(
+		42L,
+		2_000,
+		6,
+		4.0,
+		0.3,
+		0.2,
+		100,
+		0.1,
+		50,
+		0.05,
+		0.05,
+		0.05,
+		0.05,
+		0.05,
+		0.02,
+		0.01
+	);
+
+	@Test
+	void setBasedMergeMatchesReladomoMerge() throws Exception {
+		ImmutableList<Backup> backups = writeBackups();
+
+		ImmutableSet<String> allEntities = SetBasedMerge.ALL.collect(SetBasedMerge::getEntityName).toImmutableSet();
+		MutableList<String> reladomoHistory = importAndSnapshot(backups, Sets.immutable.empty());
+		MutableList<String> setBasedHistory = importAndSnapshot(backups, allEntities);
+
+		assertEquals(reladomoHistory.size(), setBasedHistory.size());
+		assertEquals(reladomoHistory, setBasedHistory);
+	}
+
+	private static ImmutableList<Backup> writeBackups() throws IOException {
+		SyntheticBackupWriter writer = new SyntheticBackupWriter(OPTIONS, FIRST_DATE);
+		MutableList<Backup> backups = Lists.mutable.empty();
+		for (int day = 0; day < DAYS; day++) {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			writer.write(outputStream, day);
+			String fileName = FIRST_DATE.plusDays(day) + ".workflowy.backup";
+			backups.add(new Backup(fileName, outputStream.toByteArray()));
+		}
+		return backups.toImmutable();
+	}
+
+	private static MutableList<String> importAndSnapshot(
+		ListIterable<Backup> backups,
+		ImmutableSet<String> setBasedEntities
+	) throws Exception {
+		MithraTestResource testResource = new MithraTestResource(RUNTIME_CONFIGURATION);
+		testResource.createSingleDatabase(ConnectionManagerForTests.getInstanceForDbName("workflowy"));
+		testResource.setUp();
+		try {
+			ObjectMapper objectMapper = new ObjectMapper();
+			ImportBaseline baseline = ImportBaseline.empty();
+			Instant systemTime = Instant.parse("2024-01-01T00:00:00Z");
+			for (Backup backup : backups) {
+				StagedImport stagedImport = new StagedImport();
+				ExtractionPipeline pipeline = new ExtractionPipeline(
+					ExtractionPipeline.defaultExtractors(objectMapper, USER_ID),
+					stagedImport,
+					baseline
+				);
+				try (InputStream inputStream = new ByteArrayInputStream(backup.contents())) {
+					new StreamingBackupParser(objectMapper).parse(inputStream, pipeline);
+				}
+				MutableSet<String> changedNodeIds = baseline.getChangedNodeIds(stagedImport.getRowHashes());
+				baseline.advanceTo(backup.fileName(), stagedImport.getRowHashes());
+
+				long time = systemTime.toEpochMilli();
+				MithraManagerProvider.getMithraManager().executeTransactionalCommand((transaction) -> {
+					transaction.setProcessingStartTime(time);
+					new TargetedMerge(
+						USER_ID,
+						stagedImport,
+						changedNodeIds,
+						setBasedEntities,
+						new ImportMetrics(new MetricRegistry())
+					).mergeAll();
+					return null;
+				});
+				systemTime = systemTime.plus(1, ChronoUnit.DAYS);
+			}
+			return snapshot();
+		} finally {
+			testResource.tearDown();
+		}
+	}
+
+	private static MutableList<String> snapshot() {
+		MutableList<String> rows = Lists.mutable.empty();
+		snapshot(rows, "NodeContent", NodeContentFinder.getFinderInstance());
+		snapshot(rows, "NodeMetadata", NodeMetadataFinder.getFinderInstance());
+		snapshot(rows, "NodeTagMapping", NodeTagMappingFinder.getFinderInstance());
+		snapshot(rows, "Tag", TagFinder.getFinderInstance());
+		snapshot(rows, "Mirror", MirrorFinder.getFinderInstance());
+		snapshot(rows, "NodeDate", NodeDateFinder.getFinderInstance());
+		snapshot(rows, "NodeS3File", NodeS3FileFinder.getFinderInstance());
+		snapshot(rows, "VirtualRootMapping", VirtualRootMappingFinder.getFinderInstance());
+		snapshot(rows, "NodeImportHash", NodeImportHashFinder.getFinderInstance());
+		return rows.sortThis();
+	}
+
+	private static void snapshot(MutableList<String> rows, String entityName, RelatedFinder<?> finder) {
+		AsOfAttribute[] asOfAttributes = finder.getAsOfAttributes();
+		Operation operation = asOfAttributes == null ? finder.all() : asOfAttributes[0].equalsEdgePoint();
+		ImmutableList<Attribute> attributes = ArrayAdapter.adapt(finder.getPersistentAttributes()).toImmutable();
+		MithraList<?> history = finder.findMany(operation);
+		for (Object row : history) {
+			rows.add(attributes.collect((attribute) -> attribute.getAttributeName() + "=" + attribute.valueOf(row))
+				.makeString(entityName + "{", ", ", "}"));
+		}
+	}
+
+	private record Backup(String fileName, byte[] contents) {}
+}
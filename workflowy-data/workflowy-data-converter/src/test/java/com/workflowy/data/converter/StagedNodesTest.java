@@ -0,0 +1,185 @@
+package com.workflowy.data.converter;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.NodeContent;
+import com.workflowy.NodeMetadata;
+import com.workflowy.data.converter.extractor.ExtractionPipeline;
+import com.workflowy.data.converter.extractor.NodeContentExtractor;
+import com.workflowy.data.converter.extractor.NodeMetadataExtractor;
+import com.workflowy.data.pojo.InputItem;
+import com.workflowy.data.pojo.InputMetadata;
+import org.eclipse.collections.api.factory.Lists;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StagedNodesTest {
+
+	private static final String USER_ID = "user@example.com";
+	private static final Instant WORKFLOWY_EPOCH = Instant.parse("2010-01-01T00:00:00Z");
+
+	@Test
+	void materializesStagedRows() {
+		StagedNodes nodes = new StagedNodes();
+		int row = nodes.stage("child");
+		nodes.setContent(row, "parent", "Name", null);
+		nodes.setMetadata(row, 3, 10L, 20L, 5L, USER_ID);
+		nodes.setLayoutMode(row, "h1");
+		nodes.setInChat(row, true);
+		nodes.setOriginalId(row, "original");
+		assertEquals(row, nodes.stage("child"));
+		assertEquals(-1, nodes.indexOf("parent"));
+
+		NodeContent nodeContent = nodes.toNodeContent(row);
+		assertEquals("child", nodeContent.getId());
+		assertEquals("parent", nodeContent.getParentId());
+		assertEquals("Name", nodeContent.getName());
+		assertNull(nodeContent.getNote());
+
+		NodeMetadata nodeMetadata = nodes.toNodeMetadata(row);
+		assertEquals(3, nodeMetadata.getPriority());
+		assertTrue(nodeMetadata.isCompleted());
+		assertEquals(Timestamp.from(Instant.parse("2010-01-01T00:00:10Z")), nodeMetadata.getCompletedAt());
+		assertEquals(Timestamp.from(Instant.parse("2010-01-01T00:00:20Z")), nodeMetadata.getLastModified());
+		assertEquals(USER_ID, nodeMetadata.getCreatedById());
+		assertEquals("h1", nodeMetadata.getLayoutMode());
+		assertTrue(nodeMetadata.isInChat());
+		assertEquals("original", nodeMetadata.getOriginalId());
+
+		nodes.setMetadata(row, 4, null, 20L, 5L, USER_ID);
+		NodeMetadata restaged = nodes.toNodeMetadata(row);
+		assertFalse(restaged.isCompleted());
+		assertNull(restaged.getCompletedAt());
+		assertNull(restaged.getLayoutMode());
+		assertNull(restaged.getOriginalId());
+	}
+
+	@Test
+	void keepsTimestampsBeyondAnInt() {
+		long after2078 = Integer.MAX_VALUE + 1L;
+		long minValue = Integer.MIN_VALUE;
+		StagedNodes nodes = new StagedNodes();
+		int row = nodes.stage("node");
+		nodes.setMetadata(row, 0, after2078, minValue, minValue + 1, USER_ID);
+
+		StagedNodes copy = new StagedNodes();
+		copy.addAll(nodes);
+		for (NodeMetadata nodeMetadata : List.of(nodes.toNodeMetadata(row), copy.toNodeMetadata(0))) {
+			assertEquals(epochSecond(after2078), nodeMetadata.getCompletedAt());
+			assertEquals(epochSecond(minValue), nodeMetadata.getLastModified());
+			assertEquals(epochSecond(minValue + 1), nodeMetadata.getCreatedOn());
+		}
+
+		nodes.setMetadata(row, 0, null, 20L, 5L, USER_ID);
+		assertNull(nodes.toNodeMetadata(row).getCompletedAt());
+		assertEquals(epochSecond(20L), nodes.toNodeMetadata(row).getLastModified());
+	}
+
+	@Test
+	void addAllKeepsFirstPositionAndLatestValues() {
+		StagedNodes earlier = new StagedNodes();
+		earlier.setContent(earlier.stage("a"), null, "a", null);
+		earlier.setContent(earlier.stage("b"), null, "b", null);
+
+		StagedNodes later = new StagedNodes();
+		later.setContent(later.stage("c"), null, "c", null);
+		later.setContent(later.stage("a"), "c", "a, moved", null);
+		later.setMetadata(later.indexOf("a"), 0, null, null, null, USER_ID);
+
+		earlier.addAll(later);
+		assertEquals(3, earlier.size());
+		assertEquals("a", earlier.getNodeId(0));
+		assertEquals("c", earlier.getNodeId(2));
+		assertEquals("a, moved", earlier.toNodeContent(0).getName());
+		assertTrue(earlier.hasMetadata(0));
+		assertFalse(earlier.hasMetadata(1));
+	}
+
+	/**
+	 * Compares the heap retained by the columns with the {@code LinkedHashMap}s of Reladomo objects the converter staged
+	 * before, leaving out the parsed input that both share, such as ids, names and notes.
+	 */
+	@Test
+	void usesAFifthOfTheHeapOfStagedReladomoObjects() {
+		List<InputItem> outline = syntheticOutline(20_000);
+		StagedImport stagedImport = new StagedImport();
+		InputItemWalker.walk(
+			outline,
+			new ExtractionPipeline(
+				Lists.immutable.with(
+					new NodeContentExtractor(),
+					new NodeMetadataExtractor(new ObjectMapper(), USER_ID)
+				),
+				stagedImport,
+				ImportBaseline.empty()
+			)
+		);
+		StagedNodes nodes = stagedImport.getNodes();
+
+		Map<String, NodeContent> nodeContents = new LinkedHashMap<>();
+		Map<String, NodeMetadata> nodeMetadatas = new LinkedHashMap<>();
+		for (int row = 0; row < nodes.size(); row++) {
+			nodeContents.put(nodes.getNodeId(row), nodes.toNodeContent(row));
+			nodeMetadatas.put(nodes.getNodeId(row), nodes.toNodeMetadata(row));
+		}
+
+		GraphLayout input = GraphLayout.parseInstance(outline, USER_ID);
+		long columnBytes = GraphLayout.parseInstance(nodes).subtract(input).totalSize();
+		long objectBytes = GraphLayout.parseInstance(nodeContents, nodeMetadatas).subtract(input).totalSize();
+		assertTrue(objectBytes >= 5 * columnBytes, () -> objectBytes + " bytes vs " + columnBytes + " bytes");
+	}
+
+	private static List<InputItem> syntheticOutline(int itemCount) {
+		Random random = new Random(42);
+		List<InputItem> roots = new ArrayList<>();
+		List<InputItem> children = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			long created = 400_000_000L + random.nextInt(100_000_000);
+			Long completed = random.nextInt(3) == 0 ? created + random.nextInt(1_000_000) : null;
+			InputItem item = new InputItem(
+				nodeId("item-" + i),
+				"Item " + i,
+				random.nextInt(10) == 0 ? "A note for item " + i : null,
+				created,
+				created + random.nextInt(1_000_000),
+				completed,
+				InputMetadata.empty(),
+				List.of()
+			);
+			children.add(item);
+			if (children.size() == 50) {
+				roots.add(new InputItem(
+					nodeId("group-" + roots.size()),
+					"Group " + roots.size(),
+					null,
+					400_000_000L,
+					400_000_000L,
+					null,
+					InputMetadata.empty(),
+					children
+				));
+				children = new ArrayList<>();
+			}
+		}
+		return roots;
+	}
+
+	private static String nodeId(String seed) {
+		return UUID.nameUUIDFromBytes(seed.getBytes(StandardCharsets.UTF_8)).toString();
+	}
+
+	private static Timestamp epochSecond(long workflowyTimestamp) {
+		return Timestamp.from(WORKFLOWY_EPOCH.plusSeconds(workflowyTimestamp));
+	}
+}
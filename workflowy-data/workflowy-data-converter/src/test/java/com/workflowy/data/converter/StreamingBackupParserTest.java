@@ -0,0 +1,125 @@
+package com.workflowy.data.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.pojo.InputItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingBackupParserTest {
+
+	private static final String BACKUP_JSON = """
+		[
+		  {
+		    "id": "root-1",
+		    "nm": "Root #one",
+		    "ct": 100,
+		    "lm": 200,
+		    "metadata": {"layoutMode": "h1", "mirror": {"mirrorRootIds": {"root-2": true}}},
+		    "ch": [
+		      {"id": "child-1", "nm": "First", "cp": 300, "metadata": {}},
+		      {
+		        "id": "child-2",
+		        "nm": "Second",
+		        "no": "A note",
+		        "metadata": {},
+		        "ch": [{"id": "grandchild-1", "nm": "Deep", "metadata": {}, "ch": null}]
+		      }
+		    ]
+		  },
+		  {"id": "root-2", "nm": "Root two", "metadata": {}, "ch": []}
+		]
+		""";
+
+	@Test
+	void visitsItemsDepthFirstWithParentsAndPriorities() throws Exception {
+		List<Visit> visits = new ArrayList<>();
+		StreamingBackupParser parser = new StreamingBackupParser(new ObjectMapper());
+
+		int itemCount = parser.parse(
+			new ByteArrayInputStream(BACKUP_JSON.getBytes(StandardCharsets.UTF_8)),
+			(inputItem, parentId, priority) -> visits.add(new Visit(inputItem, parentId, priority))
+		);
+
+		assertEquals(5, itemCount);
+		assertEquals(
+			List.of("child-1", "grandchild-1", "child-2", "root-1", "root-2"),
+			visits.stream().map((visit) -> visit.inputItem().id()).toList()
+		);
+
+		Visit child1 = visits.get(0);
+		assertEquals("root-1", child1.parentId());
+		assertEquals(0, child1.priority());
+		assertTrue(child1.inputItem().isCompleted());
+
+		Visit grandchild = visits.get(1);
+		assertEquals("child-2", grandchild.parentId());
+		assertEquals(0, grandchild.priority());
+
+		Visit child2 = visits.get(2);
+		assertEquals("root-1", child2.parentId());
+		assertEquals(1, child2.priority());
+		assertEquals("A note", child2.inputItem().note());
+		assertFalse(child2.inputItem().hasChildren());
+
+		Visit root1 = visits.get(3);
+		assertNull(root1.parentId());
+		assertEquals(0, root1.priority());
+		assertEquals("Root #one", root1.inputItem().name());
+		assertEquals(100L, root1.inputItem().createdTimestamp());
+		assertEquals(200L, root1.inputItem().lastModifiedTimestamp());
+		assertEquals("h1", root1.inputItem().metadata().layoutMode());
+		assertEquals(Set.of("root-2"), root1.inputItem().metadata().mirror().getMirrorSourceIds());
+
+		Visit root2 = visits.get(4);
+		assertNull(root2.parentId());
+		assertEquals(1, root2.priority());
+	}
+
+	@Test
+	void acceptsChildrenBeforeId() throws Exception {
+		String json = """
+			[{"ch": [{"ch": [{"id": "grandchild"}], "id": "child"}, {"id": "sibling"}], "id": "parent", "nm": "y"}]
+			""";
+		List<Visit> visits = new ArrayList<>();
+		StreamingBackupParser parser = new StreamingBackupParser(new ObjectMapper());
+
+		int itemCount = parser.parse(
+			new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+			(inputItem, parentId, priority) -> visits.add(new Visit(inputItem, parentId, priority))
+		);
+
+		assertEquals(4, itemCount);
+		assertEquals(
+			List.of("grandchild", "child", "sibling", "parent"),
+			visits.stream().map((visit) -> visit.inputItem().id()).toList()
+		);
+		assertEquals("child", visits.get(0).parentId());
+		assertEquals("parent", visits.get(1).parentId());
+		assertEquals("parent", visits.get(2).parentId());
+		assertEquals(1, visits.get(2).priority());
+		assertNull(visits.get(3).parentId());
+	}
+
+	@Test
+	void rejectsNonNumericTimestamps() {
+		String json = """
+			[{"id": "item", "nm": "x", "lm": "yesterday"}]
+			""";
+		StreamingBackupParser parser = new StreamingBackupParser(new ObjectMapper());
+
+		assertThrows(
+			IOException.class,
+			() -> parser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), (item, parent, p) -> {})
+		);
+	}
+
+	private record Visit(InputItem inputItem, String parentId, int priority) {}
+}
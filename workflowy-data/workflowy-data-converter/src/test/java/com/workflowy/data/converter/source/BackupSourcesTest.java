@@ -0,0 +1,131 @@
+package com.workflowy.data.converter.source;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupSourcesTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsPlainCompressedAndArchivedBackups() throws IOException {
+		Files.writeString(this.directory.resolve(backupName("01")), "01");
+		try (OutputStream outputStream = new GZIPOutputStream(this.create(backupName("02") + ".gz"))) {
+			outputStream.write(bytes("02"));
+		}
+		try (OutputStream outputStream = new ZstdOutputStream(this.create(backupName("03") + ".zst"))) {
+			outputStream.write(bytes("03"));
+		}
+		try (ZipOutputStream zipStream = new ZipOutputStream(this.create("bundle.zip"))) {
+			zipStream.putNextEntry(new ZipEntry("nested/" + backupName("04")));
+			zipStream.write(bytes("04"));
+			zipStream.closeEntry();
+			zipStream.putNextEntry(new ZipEntry("readme.txt"));
+			zipStream.closeEntry();
+		}
+		try (TarArchiveOutputStream tarStream = new TarArchiveOutputStream(
+			new GZIPOutputStream(this.create("bundle.tar.gz"))
+		)) {
+			addTarEntry(tarStream, backupName("05") + ".gz", gzip(bytes("05")));
+			addTarEntry(tarStream, backupName("06"), bytes("06"));
+		}
+		Files.writeString(this.directory.resolve("notes.txt"), "not a backup");
+
+		ImmutableList<BackupSource> sources = BackupSources.list(this.directory);
+
+		assertEquals(
+			List.of("01", "02", "03", "04", "05", "06").stream().map(BackupSourcesTest::backupName).toList(),
+			sources.collect(BackupSource::getName).castToList()
+		);
+		for (BackupSource source : sources) {
+			try (InputStream inputStream = source.open()) {
+				String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+				assertEquals(backupName(content), source.getName());
+			}
+		}
+	}
+
+	@Test
+	void readsOnlyTheGivenFiles() throws IOException {
+		Files.writeString(this.directory.resolve(backupName("02")), "02");
+		Files.writeString(this.directory.resolve(backupName("01")), "01");
+		Files.writeString(this.directory.resolve(backupName("03")), "03");
+
+		ImmutableList<BackupSource> sources = BackupSources.of(List.of(
+			this.directory.resolve(backupName("02")),
+			this.directory.resolve(backupName("01"))
+		));
+
+		assertEquals(List.of(backupName("01"), backupName("02")), sources.collect(BackupSource::getName).castToList());
+	}
+
+	@Test
+	void sequentialReaderReadsTarEntriesInAnyOrder() throws IOException {
+		try (TarArchiveOutputStream tarStream = new TarArchiveOutputStream(
+			new GZIPOutputStream(this.create("bundle.tgz"))
+		)) {
+			addTarEntry(tarStream, backupName("01"), bytes("01"));
+			addTarEntry(tarStream, backupName("02") + ".gz", gzip(bytes("02")));
+			addTarEntry(tarStream, backupName("03"), bytes("03"));
+		}
+		Files.writeString(this.directory.resolve(backupName("04")), "04");
+		ImmutableList<BackupSource> sources = BackupSources.list(this.directory);
+
+		try (SequentialBackupReader backupReader = new SequentialBackupReader()) {
+			for (int index : new int[] {0, 1, 3, 2, 0}) {
+				BackupSource source = sources.get(index);
+				try (InputStream inputStream = backupReader.open(source)) {
+					String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+					assertEquals(backupName(content), source.getName());
+				}
+			}
+		}
+	}
+
+	private OutputStream create(String fileName) throws IOException {
+		return Files.newOutputStream(this.directory.resolve(fileName));
+	}
+
+	private static void addTarEntry(TarArchiveOutputStream tarStream, String name, byte[] content) throws IOException {
+		TarArchiveEntry entry = new TarArchiveEntry(name);
+		entry.setSize(content.length);
+		tarStream.putArchiveEntry(entry);
+		tarStream.write(content);
+		tarStream.closeArchiveEntry();
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (OutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+			gzipStream.write(content);
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static String backupName(String day) {
+		return "(user@example.com).2024-01-" + day + ".workflowy.backup";
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,52 @@
+package com.workflowy.data.converter.watch;
+
+import java.nio.file.Path;
+
+import com.workflowy.data.converter.watch.SettledFiles.FileState;
+import com.workflowy.data.converter.watch.SettledFiles.SettledFile;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SettledFilesTest {
+
+	private static final long DEBOUNCE = 10;
+	private static final Path BACKUP = Path.of("(user@example.com).2024-01-31.workflowy.backup");
+
+	@Test
+	void settlesOnceAFileStopsGrowing() {
+		SettledFiles settledFiles = new SettledFiles(DEBOUNCE);
+
+		assertTrue(settledFiles.update(Maps.immutable.with(BACKUP, new FileState(100, 1)), 0).isEmpty());
+		assertEquals(10, settledFiles.getNanosUntilNextSettle(0));
+
+		// Still being written
+		assertTrue(settledFiles.update(Maps.immutable.with(BACKUP, new FileState(200, 2)), 10).isEmpty());
+		assertEquals(1, settledFiles.getPendingCount());
+
+		assertTrue(settledFiles.update(Maps.immutable.with(BACKUP, new FileState(200, 2)), 15).isEmpty());
+		assertEquals(
+			Lists.immutable.with(new SettledFile(BACKUP, 0)),
+			settledFiles.update(Maps.immutable.with(BACKUP, new FileState(200, 2)), 20)
+		);
+		assertEquals(0, settledFiles.getPendingCount());
+		assertEquals(-1, settledFiles.getNanosUntilNextSettle(20));
+
+		// Unchanged files settle only once
+		assertTrue(settledFiles.update(Maps.immutable.with(BACKUP, new FileState(200, 2)), 40).isEmpty());
+	}
+
+	@Test
+	void forgetsRemovedFiles() {
+		SettledFiles settledFiles = new SettledFiles(DEBOUNCE);
+		settledFiles.update(Maps.immutable.with(BACKUP, new FileState(100, 1)), 0);
+
+		assertTrue(settledFiles.update(Maps.immutable.empty(), 5).isEmpty());
+		assertEquals(0, settledFiles.getPendingCount());
+
+		assertTrue(settledFiles.update(Maps.immutable.with(BACKUP, new FileState(100, 1)), 20).isEmpty());
+		assertEquals(1, settledFiles.getPendingCount());
+	}
+}
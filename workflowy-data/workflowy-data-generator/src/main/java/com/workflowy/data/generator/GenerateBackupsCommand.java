@@ -0,0 +1,191 @@
+package com.workflowy.data.generator;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+import io.dropwizard.cli.Command;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.impl.Arguments;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes daily synthetic backups for scale and load tests of the importer, the embeddings and the read APIs.
+ */
+public class GenerateBackupsCommand extends Command {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GenerateBackupsCommand.class);
+
+	public GenerateBackupsCommand() {
+		super("generate-backups", "Write synthetic Workflowy backup files, one per day.");
+	}
+
+	@Override
+	public void configure(Subparser subparser) {
+		SyntheticOutlineOptions defaults = SyntheticOutlineOptions.defaults(0, 1);
+
+		subparser
+			.addArgument("--output-path")
+			.type(String.class)
+			.required(true)
+			.help("Directory to write the backup files to.");
+
+		subparser
+			.addArgument("--user-id")
+			.type(String.class)
+			.setDefault("user@example.com")
+			.help("User whose backups the file names claim to be (default: user@example.com).");
+
+		subparser
+			.addArgument("--first-date")
+			.type(String.class)
+			.setDefault("2024-01-01")
+			.help("Date of the first backup, as yyyy-MM-dd (default: 2024-01-01).");
+
+		subparser
+			.addArgument("--days")
+			.type(Integer.class)
+			.setDefault(1)
+			.help("Number of daily backups to write (default: 1).");
+
+		subparser
+			.addArgument("--gzip")
+			.action(Arguments.storeTrue())
+			.setDefault(false)
+			.help("Compress each backup with gzip.");
+
+		subparser
+			.addArgument("--seed")
+			.type(Long.class)
+			.setDefault(0L)
+			.help("Seed of every random choice, so the same arguments write the same files (default: 0).");
+
+		subparser
+			.addArgument("--node-count")
+			.type(Integer.class)
+			.required(true)
+			.help("Number of nodes in the first backup.");
+
+		subparser
+			.addArgument("--max-depth")
+			.type(Integer.class)
+			.setDefault(defaults.maxDepth())
+			.help("Deepest level of the outline (default: %(default)s).");
+
+		subparser
+			.addArgument("--mean-fan-out")
+			.type(Double.class)
+			.setDefault(defaults.meanFanOut())
+			.help("Mean number of children of nodes with children, geometrically distributed (default: %(default)s).");
+
+		subparser
+			.addArgument("--completed-rate")
+			.type(Double.class)
+			.setDefault(defaults.completedRate())
+			.help("Fraction of completed nodes (default: %(default)s).");
+
+		subparser
+			.addArgument("--note-rate")
+			.type(Double.class)
+			.setDefault(defaults.noteRate())
+			.help("Fraction of nodes with a note (default: %(default)s).");
+
+		subparser
+			.addArgument("--mean-note-length")
+			.type(Integer.class)
+			.setDefault(defaults.meanNoteLength())
+			.help("Mean note length in characters, exponentially distributed (default: %(default)s).");
+
+		subparser
+			.addArgument("--hashtag-density")
+			.type(Double.class)
+			.setDefault(defaults.hashtagDensity())
+			.help("Fraction of words that are hashtags (default: %(default)s).");
+
+		subparser
+			.addArgument("--tag-count")
+			.type(Integer.class)
+			.setDefault(defaults.tagCount())
+			.help("Number of distinct hashtags (default: %(default)s).");
+
+		subparser
+			.addArgument("--mirror-rate")
+			.type(Double.class)
+			.setDefault(defaults.mirrorRate())
+			.help("Fraction of nodes mirroring another node (default: %(default)s).");
+
+		subparser
+			.addArgument("--backlink-rate")
+			.type(Double.class)
+			.setDefault(defaults.backlinkRate())
+			.help("Fraction of nodes with a backlink (default: %(default)s).");
+
+		subparser
+			.addArgument("--calendar-rate")
+			.type(Double.class)
+			.setDefault(defaults.calendarRate())
+			.help("Fraction of calendar date nodes (default: %(default)s).");
+
+		subparser
+			.addArgument("--s3-file-rate")
+			.type(Double.class)
+			.setDefault(defaults.s3FileRate())
+			.help("Fraction of uploaded image nodes (default: %(default)s).");
+
+		subparser
+			.addArgument("--daily-update-rate")
+			.type(Double.class)
+			.setDefault(defaults.dailyUpdateRate())
+			.help("Fraction of nodes edited each day (default: %(default)s).");
+
+		subparser
+			.addArgument("--daily-insert-rate")
+			.type(Double.class)
+			.setDefault(defaults.dailyInsertRate())
+			.help("Fraction of nodes gaining a new child each day (default: %(default)s).");
+
+		subparser
+			.addArgument("--daily-delete-rate")
+			.type(Double.class)
+			.setDefault(defaults.dailyDeleteRate())
+			.help("Fraction of nodes deleted with their descendants each day (default: %(default)s).");
+	}
+
+	@Override
+	public void run(Bootstrap<?> bootstrap, Namespace namespace) throws Exception {
+		LOGGER.info("Running {}.", this.getClass().getSimpleName());
+
+		SyntheticOutlineOptions options = new SyntheticOutlineOptions(
+			namespace.getLong("seed"),
+			namespace.getInt("node_count"),
+			namespace.getInt("max_depth"),
+			namespace.getDouble("mean_fan_out"),
+			namespace.getDouble("completed_rate"),
+			namespace.getDouble("note_rate"),
+			namespace.getInt("mean_note_length"),
+			namespace.getDouble("hashtag_density"),
+			namespace.getInt("tag_count"),
+			namespace.getDouble("mirror_rate"),
+			namespace.getDouble("backlink_rate"),
+			namespace.getDouble("calendar_rate"),
+			namespace.getDouble("s3_file_rate"),
+			namespace.getDouble("daily_update_rate"),
+			namespace.getDouble("daily_insert_rate"),
+			namespace.getDouble("daily_delete_rate")
+		);
+		LOGGER.info("options = {}", options);
+
+		SyntheticBackups.writeSeries(
+			options,
+			Paths.get(namespace.getString("output_path")),
+			namespace.getString("user_id"),
+			LocalDate.parse(namespace.getString("first_date")),
+			namespace.getInt("days"),
+			namespace.getBoolean("gzip")
+		);
+
+		LOGGER.info("Completing {}.", this.getClass().getSimpleName());
+	}
+}
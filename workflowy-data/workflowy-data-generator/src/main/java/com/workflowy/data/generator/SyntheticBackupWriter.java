@@ -0,0 +1,391 @@
+package com.workflowy.data.generator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Streams synthetic Workflowy backups in the format of {@code com.workflowy.data.pojo.InputItem}, one day at a time.
+ *
+ * <p>Nothing is held per node, so files of any size are written in memory bounded by the depth of the outline. Every
+ * random choice about a node is drawn from a stream seeded by the option's seed and the node's position in the outline,
+ * so the outline of one day can be written without the days before it, and consecutive days differ only where a
+ * daily update, insert or delete picked a node.
+ *
+ * <p>The {@code nodeCount} nodes of the first day are laid out by giving each node a budget of descendants and
+ * splitting what its own node leaves over randomly between a geometric number of children. Budget that cannot be
+ * spent below {@code maxDepth} goes to the next sibling, and in the end to extra top-level nodes, so the first day has
+ * exactly {@code nodeCount} nodes. Inserted nodes are leaves appended after a node's other children, so they can be
+ * one level below {@code maxDepth}, and deleted nodes take their descendants with them.
+ */
+public final class SyntheticBackupWriter {
+
+	private static final long WORKFLOWY_EPOCH_OFFSET = 1262304000L;
+	private static final long SECONDS_PER_DAY = 86_400L;
+	private static final long HISTORY_SECONDS = 5 * 365 * SECONDS_PER_DAY;
+
+	// The number of recently written nodes that mirrors and backlinks pick from
+	private static final int RECENT_NODE_COUNT = 1024;
+	private static final int MEAN_NAME_LENGTH = 30;
+
+	private static final String[] WORDS = {
+		"the", "review", "meeting", "notes", "project", "plan", "call", "draft", "email", "follow", "up", "on",
+		"ideas", "for", "next", "week", "budget", "design", "read", "book", "list", "ship", "fix", "bug", "in",
+		"release", "write", "summary", "of", "research", "groceries", "and", "travel", "goals", "team", "sync",
+	};
+
+	// Salts separating the random streams of one node
+	private static final long STRUCTURE = 1;
+	private static final long ATTRIBUTES = 2;
+	private static final long UPDATES = 3;
+	private static final long INSERTS = 4;
+	private static final long DELETES = 5;
+	private static final long ID = 6;
+	private static final long CONTENT = 1L << 32;
+	private static final long CHILD = 2L << 32;
+	private static final long INSERTED_CHILD = 3L << 32;
+
+	private final SyntheticOutlineOptions options;
+	private final LocalDate firstDate;
+	private final long firstDaySeconds;
+	private final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+	/**
+	 * @param firstDate the date of day 0, which only dates the nodes' timestamps
+	 */
+	public SyntheticBackupWriter(@Nonnull SyntheticOutlineOptions options, @Nonnull LocalDate firstDate) {
+		this.options = Objects.requireNonNull(options);
+		this.firstDate = Objects.requireNonNull(firstDate);
+		long firstDayEpochSeconds = firstDate.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+		this.firstDaySeconds = firstDayEpochSeconds - WORKFLOWY_EPOCH_OFFSET;
+		if (this.firstDaySeconds <= HISTORY_SECONDS) {
+			throw new IllegalArgumentException("Expected a first date after 2015 but got " + firstDate);
+		}
+	}
+
+	/**
+	 * Writes the backup of {@code day} days after the first date, leaving {@code outputStream} open.
+	 *
+	 * @return the number of nodes written
+	 */
+	public long write(@Nonnull OutputStream outputStream, int day) throws IOException {
+		if (day < 0) {
+			throw new IllegalArgumentException("Expected a day of at least 0 but got " + day);
+		}
+		try (JsonGenerator generator = this.jsonFactory.createGenerator(outputStream)) {
+			OutlineWalk walk = new OutlineWalk(generator, day);
+			generator.writeStartArray();
+			walk.writeChildren(this.options.seed(), this.options.nodeCount(), 1, true);
+			generator.writeEndArray();
+			return walk.writtenCount;
+		}
+	}
+
+	private final class OutlineWalk {
+
+		private final JsonGenerator generator;
+		private final int day;
+		private final String[] recentNodeIds = new String[RECENT_NODE_COUNT];
+		private long visitedCount;
+		private long writtenCount;
+
+		private OutlineWalk(JsonGenerator generator, int day) {
+			this.generator = generator;
+			this.day = day;
+		}
+
+		/**
+		 * @return the part of {@code budget} left over because of the depth limit
+		 */
+		private int writeChildren(long parentKey, int budget, int depth, boolean alive) throws IOException {
+			SplittableRandom random = random(parentKey, STRUCTURE);
+			double meanFanOut = SyntheticBackupWriter.this.options.meanFanOut();
+			int childCount = (int) Math.min(budget, 1 + geometric(random, 1 / meanFanOut));
+			int[] childBudgets = split(random, budget, childCount);
+
+			int leftOver = 0;
+			int ordinal = 0;
+			for (; ordinal < childCount; ordinal++) {
+				long childKey = mix(parentKey, CHILD + ordinal);
+				leftOver = this.writeNode(childKey, childBudgets[ordinal] + leftOver, depth, alive);
+			}
+			while (depth == 1 && leftOver > 0) {
+				leftOver = this.writeNode(mix(parentKey, CHILD + ordinal++), leftOver, depth, alive);
+			}
+			return leftOver;
+		}
+
+		/**
+		 * Visits a node of the first day's outline and its descendants. Deleted nodes are visited without being
+		 * written, so the nodes visited after them make the same random choices on every day.
+		 */
+		private int writeNode(long key, int budget, int depth, boolean parentAlive) throws IOException {
+			SyntheticOutlineOptions options = SyntheticBackupWriter.this.options;
+			boolean alive = parentAlive && firstEventDay(random(key, DELETES), options.dailyDeleteRate()) > this.day;
+			String nodeId = nodeId(key);
+			if (alive) {
+				this.writeFields(key, nodeId);
+			}
+			this.recentNodeIds[(int) (this.visitedCount++ % RECENT_NODE_COUNT)] = nodeId;
+
+			int childBudget = budget - 1;
+			boolean hasChildren = childBudget > 0 && depth < options.maxDepth();
+			SplittableRandom inserts = random(key, INSERTS);
+			int insertDay = firstEventDay(inserts, options.dailyInsertRate());
+
+			boolean writesChildren = alive && (hasChildren || insertDay <= this.day);
+			if (writesChildren) {
+				this.generator.writeArrayFieldStart("ch");
+			}
+			int leftOver = hasChildren ? this.writeChildren(key, childBudget, depth + 1, alive) : childBudget;
+			if (alive) {
+				for (int ordinal = 0; insertDay <= this.day; ordinal++) {
+					this.writeInsertedNode(mix(key, INSERTED_CHILD + ordinal), insertDay);
+					insertDay = nextEventDay(inserts, options.dailyInsertRate(), insertDay);
+				}
+			}
+			if (writesChildren) {
+				this.generator.writeEndArray();
+			}
+			if (alive) {
+				this.generator.writeEndObject();
+			}
+			return leftOver;
+		}
+
+		private void writeFields(long key, String nodeId) throws IOException {
+			SyntheticOutlineOptions options = SyntheticBackupWriter.this.options;
+			SplittableRandom random = random(key, ATTRIBUTES);
+			long firstDaySeconds = SyntheticBackupWriter.this.firstDaySeconds;
+			long created = firstDaySeconds - 1 - random.nextLong(HISTORY_SECONDS);
+			long lastModified = created + random.nextLong(firstDaySeconds - created);
+			boolean completed = random.nextDouble() < options.completedRate();
+			boolean calendar = random.nextDouble() < options.calendarRate();
+			LocalDate calendarDate = calendar ? this.pickCalendarDate(random) : null;
+			boolean s3File = random.nextDouble() < options.s3FileRate();
+			String mirrorTarget = random.nextDouble() < options.mirrorRate() ? this.pickRecentNodeId(random) : null;
+			String backlinkSource = random.nextDouble() < options.backlinkRate() ? this.pickRecentNodeId(random) : null;
+
+			SplittableRandom updates = random(key, UPDATES);
+			int updateDay = lastEventDay(updates, options.dailyUpdateRate(), this.day);
+			if (updateDay > 0) {
+				lastModified = this.secondsDuring(updateDay, updates);
+			}
+
+			this.generator.writeStartObject();
+			this.generator.writeStringField("id", nodeId);
+			if (calendarDate != null) {
+				this.generator.writeStringField("nm", calendarDate.toString());
+			} else {
+				this.writeText(random(key, CONTENT + updateDay));
+			}
+			this.generator.writeNumberField("ct", created);
+			this.generator.writeNumberField("lm", lastModified);
+			if (completed) {
+				this.generator.writeNumberField("cp", lastModified);
+			}
+
+			this.generator.writeObjectFieldStart("metadata");
+			if (mirrorTarget != null) {
+				this.generator.writeObjectFieldStart("mirror");
+				this.generator.writeStringField("originalId", mirrorTarget);
+				this.generator.writeObjectFieldStart("mirrorRootIds");
+				this.generator.writeBooleanField(mirrorTarget, true);
+				this.generator.writeEndObject();
+				this.generator.writeEndObject();
+			}
+			if (backlinkSource != null) {
+				this.generator.writeObjectFieldStart("backlink");
+				this.generator.writeStringField("sourceID", backlinkSource);
+				this.generator.writeStringField("targetID", nodeId);
+				this.generator.writeEndObject();
+			}
+			if (calendarDate != null) {
+				this.writeCalendar(calendarDate);
+			}
+			if (s3File) {
+				this.writeS3File(random);
+			}
+			this.generator.writeEndObject();
+			this.writtenCount++;
+		}
+
+		private void writeInsertedNode(long key, int insertDay) throws IOException {
+			SplittableRandom random = random(key, ATTRIBUTES);
+			long created = this.secondsDuring(insertDay, random);
+			this.generator.writeStartObject();
+			this.generator.writeStringField("id", nodeId(key));
+			this.writeText(random(key, CONTENT));
+			this.generator.writeNumberField("ct", created);
+			this.generator.writeNumberField("lm", created);
+			this.generator.writeObjectFieldStart("metadata");
+			this.generator.writeEndObject();
+			this.generator.writeEndObject();
+			this.writtenCount++;
+		}
+
+		private void writeText(SplittableRandom random) throws IOException {
+			SyntheticOutlineOptions options = SyntheticBackupWriter.this.options;
+			this.generator.writeStringField("nm", words(random, exponential(random, MEAN_NAME_LENGTH)));
+			if (random.nextDouble() < options.noteRate()) {
+				this.generator.writeStringField("no", words(random, exponential(random, options.meanNoteLength())));
+			}
+		}
+
+		private LocalDate pickCalendarDate(SplittableRandom random) {
+			long daysBefore = random.nextLong(HISTORY_SECONDS / SECONDS_PER_DAY);
+			return SyntheticBackupWriter.this.firstDate.minusDays(daysBefore);
+		}
+
+		private void writeCalendar(LocalDate date) throws IOException {
+			long epochSeconds = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+			this.generator.writeObjectFieldStart("calendar");
+			this.generator.writeNumberField("date", epochSeconds);
+			this.generator.writeBooleanField("root", false);
+			this.generator.writeStringField("level", "day");
+			this.generator.writeStringField("dateId", date.toString());
+			this.generator.writeNumberField("timestamp", epochSeconds);
+			this.generator.writeEndObject();
+		}
+
+		private void writeS3File(SplittableRandom random) throws IOException {
+			int width = 200 + random.nextInt(3800);
+			int height = 200 + random.nextInt(3800);
+			this.generator.writeObjectFieldStart("s3File");
+			this.generator.writeBooleanField("isFile", true);
+			this.generator.writeStringField("fileName", "IMG_" + random.nextInt(10_000) + ".jpg");
+			this.generator.writeStringField("fileType", "image/jpeg");
+			this.generator.writeStringField("objectFolder", new UUID(random.nextLong(), random.nextLong()).toString());
+			this.generator.writeBooleanField("isAnimatedGIF", false);
+			this.generator.writeNumberField("imageOriginalWidth", width);
+			this.generator.writeNumberField("imageOriginalHeight", height);
+			this.generator.writeNumberField("imageOriginalPixels", width * height);
+			this.generator.writeEndObject();
+		}
+
+		@Nullable
+		private String pickRecentNodeId(SplittableRandom random) {
+			int recentCount = (int) Math.min(this.visitedCount, RECENT_NODE_COUNT);
+			return recentCount == 0 ? null : this.recentNodeIds[random.nextInt(recentCount)];
+		}
+
+		/**
+		 * Picks a time during the day before the backup of {@code day}, when the change it made happened.
+		 */
+		private long secondsDuring(int day, SplittableRandom random) {
+			long dayStart = SyntheticBackupWriter.this.firstDaySeconds + (day - 1) * SECONDS_PER_DAY;
+			return dayStart + random.nextLong(SECONDS_PER_DAY);
+		}
+	}
+
+	private String words(SplittableRandom random, int length) {
+		StringBuilder text = new StringBuilder(length + 16);
+		while (text.length() < length) {
+			if (!text.isEmpty()) {
+				text.append(' ');
+			}
+			if (random.nextDouble() < this.options.hashtagDensity()) {
+				// Squaring skews the choice toward the first tags
+				double skewed = random.nextDouble();
+				text.append("#tag").append((int) (this.options.tagCount() * skewed * skewed));
+			} else {
+				text.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Splits {@code budget} between {@code parts} parts of at least 1, in proportion to exponentially distributed
+	 * weights.
+	 */
+	private static int[] split(SplittableRandom random, int budget, int parts) {
+		double[] weights = new double[parts];
+		double totalWeight = 0;
+		for (int i = 0; i < parts; i++) {
+			weights[i] = -Math.log(1 - random.nextDouble());
+			totalWeight += weights[i];
+		}
+
+		int spare = budget - parts;
+		int[] budgets = new int[parts];
+		double cumulativeWeight = 0;
+		int assigned = 0;
+		for (int i = 0; i < parts; i++) {
+			cumulativeWeight += weights[i];
+			int assignedAfter = i == parts - 1 ? spare : (int) (spare * (cumulativeWeight / totalWeight));
+			budgets[i] = 1 + assignedAfter - assigned;
+			assigned = assignedAfter;
+		}
+		return budgets;
+	}
+
+	/**
+	 * @return the first day after day 0 on which an event of the given daily rate happens
+	 */
+	private static int firstEventDay(SplittableRandom random, double dailyRate) {
+		return nextEventDay(random, dailyRate, 0);
+	}
+
+	private static int nextEventDay(SplittableRandom random, double dailyRate, int day) {
+		if (dailyRate == 0) {
+			return Integer.MAX_VALUE;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, day + 1 + geometric(random, dailyRate));
+	}
+
+	/**
+	 * @return the last day up to {@code day} on which an event of the given daily rate happened, or 0 if none did
+	 */
+	private static int lastEventDay(SplittableRandom random, double dailyRate, int day) {
+		int lastDay = 0;
+		for (int next = firstEventDay(random, dailyRate); next <= day; next = nextEventDay(random, dailyRate, next)) {
+			lastDay = next;
+		}
+		return lastDay;
+	}
+
+	/**
+	 * @return the number of failures before the first success of trials that succeed with {@code probability}
+	 */
+	private static long geometric(SplittableRandom random, double probability) {
+		if (probability >= 1) {
+			return 0;
+		}
+		return (long) Math.min(Integer.MAX_VALUE, Math.log(1 - random.nextDouble()) / Math.log(1 - probability));
+	}
+
+	private static int exponential(SplittableRandom random, int mean) {
+		return (int) Math.ceil(-mean * Math.log(1 - random.nextDouble()));
+	}
+
+	private static String nodeId(long key) {
+		long mostSignificantBits = mix(key, ID) & ~0xF000L | 0x4000L;
+		long leastSignificantBits = mix(key, ID + 1) & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+		return new UUID(mostSignificantBits, leastSignificantBits).toString();
+	}
+
+	private static SplittableRandom random(long key, long salt) {
+		return new SplittableRandom(mix(key, salt));
+	}
+
+	/**
+	 * Combines two values into a well-distributed key, with the finalizer of MurmurHash3.
+	 */
+	private static long mix(long key, long value) {
+		long hash = key ^ (value * 0x9E3779B97F4A7C15L);
+		hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ (hash >>> 33)) * 0xC4CEB93FE1A85EC5L;
+		return hash ^ (hash >>> 33);
+	}
+}
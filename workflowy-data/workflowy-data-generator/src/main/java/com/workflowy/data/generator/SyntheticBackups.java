@@ -0,0 +1,70 @@
+package com.workflowy.data.generator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nonnull;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a series of daily synthetic backups named like real ones, so the importer picks up the user and date.
+ */
+public final class SyntheticBackups {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticBackups.class);
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private SyntheticBackups() {}
+
+	/**
+	 * Writes one backup per day for {@code days} days starting at {@code firstDate}, gzipped if {@code gzip} is set.
+	 *
+	 * @return the written files in date order
+	 */
+	public static ImmutableList<Path> writeSeries(
+		@Nonnull SyntheticOutlineOptions options,
+		@Nonnull Path directory,
+		@Nonnull String userId,
+		@Nonnull LocalDate firstDate,
+		int days,
+		boolean gzip
+	) throws IOException {
+		Files.createDirectories(directory);
+		SyntheticBackupWriter writer = new SyntheticBackupWriter(options, firstDate);
+		MutableList<Path> files = Lists.mutable.empty();
+		for (int day = 0; day < days; day++) {
+			String fileName = "(" + userId + ")." + firstDate.plusDays(day) + ".workflowy.backup" + (gzip ? ".gz" : "");
+			Path file = directory.resolve(fileName);
+			long start = System.nanoTime();
+			long nodeCount;
+			try (OutputStream outputStream = open(file, gzip)) {
+				nodeCount = writer.write(outputStream, day);
+			}
+			LOGGER.info(
+				"Wrote {} nodes to {} ({} bytes) in {} ms",
+				nodeCount,
+				file,
+				Files.size(file),
+				(System.nanoTime() - start) / 1_000_000
+			);
+			files.add(file);
+		}
+		return files.toImmutable();
+	}
+
+	private static OutputStream open(Path file, boolean gzip) throws IOException {
+		OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+		return gzip ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+	}
+}
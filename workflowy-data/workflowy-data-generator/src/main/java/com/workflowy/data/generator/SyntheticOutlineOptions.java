@@ -0,0 +1,101 @@
+package com.workflowy.data.generator;
+
+/**
+ * The shape and contents of a synthetic outline, and how it changes from one day's backup to the next.
+ *
+ * <p>Rates are probabilities per node, and the daily rates are per node per day.
+ *
+ * @param seed             the seed every random choice derives from, so the same options always write the same files
+ * @param nodeCount        the number of nodes in the first day's backup
+ * @param maxDepth         the deepest level of the outline, where top-level nodes are at depth 1
+ * @param meanFanOut       the mean number of children of a node that has children, drawn from a geometric
+ *                         distribution
+ * @param completedRate    the probability that a node is completed
+ * @param noteRate         the probability that a node has a note
+ * @param meanNoteLength   the mean length of a note in characters, drawn from an exponential distribution
+ * @param hashtagDensity   the probability that a word of a name or note is a hashtag
+ * @param tagCount         the number of distinct hashtags, the first ones used more often than the last
+ * @param mirrorRate       the probability that a node mirrors a node written shortly before it
+ * @param backlinkRate     the probability that a node links back to a node written shortly before it
+ * @param calendarRate     the probability that a node is a calendar date
+ * @param s3FileRate       the probability that a node is an uploaded image
+ * @param dailyUpdateRate  the probability that a node's name and note are edited on a given day
+ * @param dailyInsertRate  the probability that a node gains a new last child on a given day
+ * @param dailyDeleteRate  the probability that a node and its descendants are deleted on a given day
+ */
+public record SyntheticOutlineOptions(
+	long seed,
+	int nodeCount,
+	int maxDepth,
+	double meanFanOut,
+	double completedRate,
+	double noteRate,
+	int meanNoteLength,
+	double hashtagDensity,
+	int tagCount,
+	double mirrorRate,
+	double backlinkRate,
+	double calendarRate,
+	double s3FileRate,
+	double dailyUpdateRate,
+	double dailyInsertRate,
+	double dailyDeleteRate
+) {
+	public SyntheticOutlineOptions {
+		if (nodeCount <= 0) {
+			throw new IllegalArgumentException("Expected a positive node count but got " + nodeCount);
+		}
+		if (maxDepth <= 0) {
+			throw new IllegalArgumentException("Expected a positive maximum depth but got " + maxDepth);
+		}
+		if (meanFanOut < 1) {
+			throw new IllegalArgumentException("Expected a mean fan-out of at least 1 but got " + meanFanOut);
+		}
+		if (meanNoteLength <= 0) {
+			throw new IllegalArgumentException("Expected a positive mean note length but got " + meanNoteLength);
+		}
+		if (tagCount <= 0) {
+			throw new IllegalArgumentException("Expected a positive tag count but got " + tagCount);
+		}
+		requireProbability("completed rate", completedRate);
+		requireProbability("note rate", noteRate);
+		requireProbability("hashtag density", hashtagDensity);
+		requireProbability("mirror rate", mirrorRate);
+		requireProbability("backlink rate", backlinkRate);
+		requireProbability("calendar rate", calendarRate);
+		requireProbability("S3 file rate", s3FileRate);
+		requireProbability("daily update rate", dailyUpdateRate);
+		requireProbability("daily insert rate", dailyInsertRate);
+		requireProbability("daily delete rate", dailyDeleteRate);
+	}
+
+	/**
+	 * Rough proportions of a long-lived personal outline.
+	 */
+	public static SyntheticOutlineOptions defaults(long seed, int nodeCount) {
+		return new SyntheticOutlineOptions(
+			seed,
+			nodeCount,
+			16,
+			6.0,
+			0.3,
+			0.1,
+			200,
+			0.02,
+			500,
+			0.005,
+			0.005,
+			0.01,
+			0.002,
+			0.002,
+			0.001,
+			0.0005
+		);
+	}
+
+	private static void requireProbability(String name, double value) {
+		if (!(value >= 0 && value <= 1)) {
+			throw new IllegalArgumentException("Expected the " + name + " to be between 0 and 1 but got " + value);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.workflowy.data.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.workflowy.data.pojo.InputItem;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.map.MutableMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticBackupWriterTest {
+
+	private static final LocalDate FIRST_DATE = LocalDate.parse("2024-01-01");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final SyntheticOutlineOptions options = new SyntheticOutlineOptions(
+		42L,
+		20_000,
+		6,
+		4.0,
+		0.3,
+		0.2,
+		100,
+		0.1,
+		50,
+		0.05,
+		0.05,
+		0.05,
+		0.05,
+		0.05,
+		0.05,
+		0.01
+	);
+	private final SyntheticBackupWriter writer = new SyntheticBackupWriter(this.options, FIRST_DATE);
+
+	@Test
+	void writesExactlyNodeCountItemsWithinMaxDepth() throws IOException {
+		List<InputItem> outline = this.read(this.write(0));
+		MutableMap<String, InputItem> items = Maps.mutable.empty();
+		int maxDepth = collect(outline, 1, items);
+
+		assertEquals(this.options.nodeCount(), items.size());
+		assertTrue(maxDepth <= this.options.maxDepth(), () -> "Depth " + maxDepth);
+		assertTrue(items.count((item) -> item.metadata().hasMirror()) > 0);
+		assertTrue(items.count((item) -> item.metadata().hasBacklink()) > 0);
+		assertTrue(items.count((item) -> item.metadata().hasCalendar()) > 0);
+		assertTrue(items.count((item) -> item.metadata().s3File() != null) > 0);
+		assertTrue(items.count((item) -> item.name().contains("#tag")) > 0);
+	}
+
+	@Test
+	void writesTheSameBackupForTheSameDay() throws IOException {
+		assertArrayEquals(this.write(1), this.write(1));
+	}
+
+	@Test
+	void changesAboutTheDailyRatesFromOneDayToTheNext() throws IOException {
+		MutableMap<String, InputItem> day1 = Maps.mutable.empty();
+		collect(this.read(this.write(1)), 1, day1);
+		MutableMap<String, InputItem> day2 = Maps.mutable.empty();
+		collect(this.read(this.write(2)), 1, day2);
+
+		int inserted = day2.count((item) -> !day1.containsKey(item.id()));
+		int deleted = day1.count((item) -> !day2.containsKey(item.id()));
+		int updated = day2.count((item) -> day1.containsKey(item.id())
+			&& !item.lastModifiedTimestamp().equals(day1.get(item.id()).lastModifiedTimestamp()));
+
+		assertTrue(inserted > 0 && inserted < day1.size() / 10, () -> inserted + " inserted");
+		assertTrue(deleted > 0 && deleted < day1.size() / 5, () -> deleted + " deleted");
+		assertTrue(updated > 0 && updated < day1.size() / 10, () -> updated + " updated");
+	}
+
+	private byte[] write(int day) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		this.writer.write(outputStream, day);
+		return outputStream.toByteArray();
+	}
+
+	private List<InputItem> read(byte[] backup) throws IOException {
+		return this.objectMapper.readValue(backup, new TypeReference<>() {});
+	}
+
+	private static int collect(List<InputItem> items, int depth, Map<String, InputItem> itemsById) {
+		int maxDepth = items.isEmpty() ? depth - 1 : depth;
+		for (InputItem item : items) {
+			assertNull(itemsById.put(item.id(), item), item.id());
+			maxDepth = Math.max(maxDepth, collect(item.children(), depth + 1, itemsById));
+		}
+		return maxDepth;
+	}
+}
@@ -4,12 +4,17 @@ import java.util.function.Consumer;
 
 import javax.annotation.Nonnull;
 
+import com.workflowy.data.converter.RekeyImportIdsCommand;
+import com.workflowy.data.converter.watch.ImportWatchConfiguration;
+import com.workflowy.data.converter.watch.WatchingImporter;
+import com.workflowy.data.generator.GenerateBackupsCommand;
 import com.workflowy.dropwizard.application.cli.CacheStatusCommand;
 import com.workflowy.dropwizard.application.cli.ListByIdCommand;
 import com.workflowy.dropwizard.application.cli.ListByPathCommand;
 import com.workflowy.dropwizard.application.cli.ReadNodeCommand;
 import com.workflowy.embedding.command.EmbedGenerateCommand;
 import com.workflowy.embedding.command.SearchCommand;
+import cool.klass.data.store.DataStore;
 import cool.klass.dropwizard.bundle.graphql.KlassGraphQLBundle;
 import cool.klass.serialization.jackson.module.meta.model.module.KlassMetaModelJacksonModule;
 import io.dropwizard.db.DataSourceFactory;
@@ -32,10 +37,28 @@ public class WorkflowyApplication extends AbstractWorkflowyApplication {
 		super.initialize(bootstrap);
 	}
 
+	@Override
+	public void run(@Nonnull WorkflowyConfiguration configuration, @Nonnull Environment environment) throws Exception {
+		super.run(configuration, environment);
+
+		ImportWatchConfiguration importWatch = configuration.getImportWatchConfiguration();
+		if (importWatch.isEnabled()) {
+			DataStore dataStore = configuration.getKlassFactory().getDataStoreFactory().createDataStore();
+			environment.lifecycle().manage(new WatchingImporter(
+				importWatch,
+				environment.getObjectMapper(),
+				dataStore,
+				environment.metrics()
+			));
+		}
+	}
+
 	@Override
 	protected void initializeCommands(@Nonnull Bootstrap<WorkflowyConfiguration> bootstrap) {
 		super.initializeCommands(bootstrap);
 		bootstrap.addCommand(new WorkflowyImportCommand(this));
+		bootstrap.addCommand(new RekeyImportIdsCommand<>(this));
+		bootstrap.addCommand(new GenerateBackupsCommand());
 		bootstrap.addCommand(new CacheStatusCommand(this));
 		bootstrap.addCommand(new ReadNodeCommand(this));
 		bootstrap.addCommand(new ListByIdCommand(this));
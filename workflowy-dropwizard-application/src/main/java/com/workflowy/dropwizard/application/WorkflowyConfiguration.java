@@ -5,6 +5,8 @@ import javax.validation.Valid;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.smoketurner.dropwizard.graphql.GraphQLFactory;
+import com.workflowy.data.converter.watch.ImportWatchConfiguration;
+import com.workflowy.data.converter.watch.ImportWatchConfigurationProvider;
 import com.workflowy.embedding.config.EmbeddingConfiguration;
 import com.workflowy.embedding.config.EmbeddingConfigurationProvider;
 import cool.klass.dropwizard.configuration.AbstractKlassConfiguration;
@@ -14,7 +16,11 @@ import io.liftwizard.servlet.config.singlepage.SinglePageRedirectFilterFactoryPr
 
 public class WorkflowyConfiguration
 	extends AbstractKlassConfiguration
-	implements GraphQLFactoryProvider, SinglePageRedirectFilterFactoryProvider, EmbeddingConfigurationProvider {
+	implements
+		GraphQLFactoryProvider,
+		SinglePageRedirectFilterFactoryProvider,
+		EmbeddingConfigurationProvider,
+		ImportWatchConfigurationProvider {
 
 	@Nonnull
 	private @Valid GraphQLFactory graphQL = new GraphQLFactory();
@@ -24,6 +30,9 @@ public class WorkflowyConfiguration
 	@Nonnull
 	private @Valid EmbeddingConfiguration embedding = new EmbeddingConfiguration();
 
+	@Nonnull
+	private @Valid ImportWatchConfiguration importWatch = new ImportWatchConfiguration();
+
 	@Override
 	@Nonnull
 	@JsonProperty("graphQL")
@@ -58,4 +67,16 @@ public class WorkflowyConfiguration
 	public void setEmbeddingConfiguration(@Nonnull EmbeddingConfiguration embedding) {
 		this.embedding = embedding;
 	}
+
+	@Override
+	@Nonnull
+	@JsonProperty("importWatch")
+	public ImportWatchConfiguration getImportWatchConfiguration() {
+		return this.importWatch;
+	}
+
+	@JsonProperty("importWatch")
+	public void setImportWatchConfiguration(@Nonnull ImportWatchConfiguration importWatch) {
+		this.importWatch = importWatch;
+	}
 }
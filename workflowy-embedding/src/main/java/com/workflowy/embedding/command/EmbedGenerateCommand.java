@@ -31,7 +31,7 @@ public class EmbedGenerateCommand<T extends AbstractKlassConfiguration & Embeddi
 	private final ContainerLifeCycle containerLifeCycle = new ContainerLifeCycle();
 
 	public EmbedGenerateCommand(Application<T> application) {
-		super(application, "embed-generate", "Generate embeddings for all nodes");
+		super(application, "embed-generate", "Generate embeddings for nodes changed since the last run");
 	}
 
 	@Override
@@ -47,14 +47,26 @@ public class EmbedGenerateCommand<T extends AbstractKlassConfiguration & Embeddi
 		subparser
 			.addArgument("--batch-size")
 			.type(Integer.class)
-			.setDefault(100)
-			.help("Number of nodes to process in each batch");
+			.setDefault(1000)
+			.help("Number of nodes grouped by length at a time, and of embeddings saved per commit (default: 1000).");
+
+		subparser
+			.addArgument("--token-budget")
+			.type(Integer.class)
+			.setDefault(16384)
+			.help("Most tokens in one inference, counting the padding of each text to the longest one "
+				+ "(default: 16384).");
+
+		subparser
+			.addArgument("--workers")
+			.type(Integer.class)
+			.help("Number of inferences run at once (default: the engine's predictor pool size).");
 
 		subparser
 			.addArgument("--force")
 			.action(Arguments.storeTrue())
 			.setDefault(false)
-			.help("Force regeneration of all embeddings");
+			.help("Regenerate embeddings for all nodes instead of only those changed since the last run");
 
 		subparser.addArgument("--db-path").type(String.class).help("Override path to the embeddings SQLite database");
 	}
@@ -72,6 +84,8 @@ public class EmbedGenerateCommand<T extends AbstractKlassConfiguration & Embeddi
 
 		String modelKey = namespace.getString("model");
 		int batchSize = namespace.getInt("batch_size");
+		int tokenBudget = namespace.getInt("token_budget");
+		Integer workers = namespace.getInt("workers");
 		boolean force = namespace.getBoolean("force");
 		String dbPath = namespace.getString("db_path");
 
@@ -84,6 +98,7 @@ public class EmbedGenerateCommand<T extends AbstractKlassConfiguration & Embeddi
 		LOGGER.info("Model: {}", model.getKey());
 		LOGGER.info("Database path: {}", dbPath);
 		LOGGER.info("Batch size: {}", batchSize);
+		LOGGER.info("Token budget: {}", tokenBudget);
 		LOGGER.info("Force: {}", force);
 
 		try (
@@ -91,17 +106,32 @@ public class EmbedGenerateCommand<T extends AbstractKlassConfiguration & Embeddi
 			EmbeddingEngine engine = EmbeddingEngineFactory.create(model, embeddingConfig)
 		) {
 			EmbeddingRepository repository = new EmbeddingRepository(sqliteConnection);
-			EmbeddingGenerator generator = new EmbeddingGenerator(engine, repository, batchSize, force);
+			int workerCount = workers == null ? engine.getParallelism() : workers;
+			LOGGER.info("Workers: {}", workerCount);
+			EmbeddingGenerator generator = new EmbeddingGenerator(
+				engine,
+				repository,
+				batchSize,
+				tokenBudget,
+				workerCount,
+				force
+			);
 
 			GenerationResult result = generator.generate((progress) ->
 				LOGGER.info(
-					"Progress: {}% ({}/{}) - Processed: {}, Skipped: {}, Errors: {}",
+					"Progress: {}% ({}/{}) - Processed: {}, Skipped: {}, Errors: {}, Padding efficiency: {}%, "
+						+ "Tokens/s: {}, Busy: texts {}%, inference {}%, writes {}%",
 					progress.percentage(),
 					progress.current(),
 					progress.total(),
 					progress.processed(),
 					progress.skipped(),
-					progress.errors()
+					progress.errors(),
+					Math.round(progress.paddingEfficiency() * 100),
+					Math.round(progress.tokensPerSecond()),
+					Math.round(progress.utilization().textBuilding() * 100),
+					Math.round(progress.utilization().inference() * 100),
+					Math.round(progress.utilization().writing() * 100)
 				)
 			);
 
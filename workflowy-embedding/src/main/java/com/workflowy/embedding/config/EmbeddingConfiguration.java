@@ -1,6 +1,7 @@
 package com.workflowy.embedding.config;
 
 import javax.annotation.Nullable;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -19,6 +20,16 @@ public class EmbeddingConfiguration {
 	@NotNull
 	private String modelCachePath = "./models";
 
+	// 0 derives the count from the available processors, see OnnxThreading
+	@Min(0)
+	private int onnxPredictors;
+
+	@Min(0)
+	private int onnxIntraOpThreads;
+
+	@Min(1)
+	private int onnxInterOpThreads = 1;
+
 	@JsonProperty("openaiApiKey")
 	@Nullable
 	public String getOpenaiApiKey() {
@@ -62,4 +73,34 @@ public class EmbeddingConfiguration {
 	public void setModelCachePath(@NotNull String modelCachePath) {
 		this.modelCachePath = modelCachePath;
 	}
+
+	@JsonProperty("onnxPredictors")
+	public int getOnnxPredictors() {
+		return this.onnxPredictors;
+	}
+
+	@JsonProperty("onnxPredictors")
+	public void setOnnxPredictors(int onnxPredictors) {
+		this.onnxPredictors = onnxPredictors;
+	}
+
+	@JsonProperty("onnxIntraOpThreads")
+	public int getOnnxIntraOpThreads() {
+		return this.onnxIntraOpThreads;
+	}
+
+	@JsonProperty("onnxIntraOpThreads")
+	public void setOnnxIntraOpThreads(int onnxIntraOpThreads) {
+		this.onnxIntraOpThreads = onnxIntraOpThreads;
+	}
+
+	@JsonProperty("onnxInterOpThreads")
+	public int getOnnxInterOpThreads() {
+		return this.onnxInterOpThreads;
+	}
+
+	@JsonProperty("onnxInterOpThreads")
+	public void setOnnxInterOpThreads(int onnxInterOpThreads) {
+		this.onnxInterOpThreads = onnxInterOpThreads;
+	}
 }
@@ -9,6 +9,21 @@ public interface EmbeddingEngine extends AutoCloseable {
 
 	List<float[]> generateEmbeddings(List<String> texts, boolean isQuery);
 
+	/**
+	 * The number of tokens the model reads from {@code text}, used to batch texts of similar length. The default
+	 * estimates four characters per token.
+	 */
+	default int countTokens(String text, boolean isQuery) {
+		return Math.min(this.getModel().getMaxSequenceLength(), (text.length() + 3) / 4);
+	}
+
+	/**
+	 * The number of calls the engine serves at once, and so the number of threads worth calling it from.
+	 */
+	default int getParallelism() {
+		return 1;
+	}
+
 	EmbeddingModel getModel();
 
 	@Override
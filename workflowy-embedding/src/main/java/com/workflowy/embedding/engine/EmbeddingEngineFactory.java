@@ -14,10 +14,24 @@ public final class EmbeddingEngineFactory {
 	private EmbeddingEngineFactory() {}
 
 	public static EmbeddingEngine create(EmbeddingModel model, EmbeddingConfiguration configuration) {
-		return create(model, configuration.getOpenaiApiKey(), configuration.getModelCachePath());
+		return create(
+			model,
+			configuration.getOpenaiApiKey(),
+			configuration.getModelCachePath(),
+			OnnxThreading.of(configuration)
+		);
 	}
 
 	public static EmbeddingEngine create(EmbeddingModel model, @Nullable String openaiApiKey, String modelCachePath) {
+		return create(model, openaiApiKey, modelCachePath, OnnxThreading.defaults());
+	}
+
+	public static EmbeddingEngine create(
+		EmbeddingModel model,
+		@Nullable String openaiApiKey,
+		String modelCachePath,
+		OnnxThreading onnxThreading
+	) {
 		if (model.isOpenAI()) {
 			if (openaiApiKey == null || openaiApiKey.isBlank()) {
 				throw new IllegalArgumentException(
@@ -28,8 +42,8 @@ public final class EmbeddingEngineFactory {
 			LOGGER.info("Creating OpenAI embedding engine for model: {}", model.getKey());
 			return new OpenAIEmbeddingEngine(model, openaiApiKey);
 		} else {
-			LOGGER.info("Creating ONNX embedding engine for model: {}", model.getKey());
-			return new OnnxEmbeddingEngine(model, modelCachePath);
+			LOGGER.info("Creating ONNX embedding engine for model: {} with {}", model.getKey(), onnxThreading);
+			return new OnnxEmbeddingEngine(model, modelCachePath, onnxThreading);
 		}
 	}
 }
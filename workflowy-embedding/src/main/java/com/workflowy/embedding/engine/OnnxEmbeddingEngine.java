@@ -3,7 +3,10 @@ package com.workflowy.embedding.engine;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import ai.djl.Application;
 import ai.djl.MalformedModelException;
@@ -13,33 +16,42 @@ import ai.djl.inference.Predictor;
 import ai.djl.ndarray.NDArray;
 import ai.djl.ndarray.NDList;
 import ai.djl.ndarray.NDManager;
+import ai.djl.ndarray.types.DataType;
 import ai.djl.repository.zoo.Criteria;
 import ai.djl.repository.zoo.ModelNotFoundException;
 import ai.djl.repository.zoo.ZooModel;
-import ai.djl.translate.Translator;
+import ai.djl.translate.NoBatchifyTranslator;
 import ai.djl.translate.TranslatorContext;
 import com.workflowy.embedding.model.EmbeddingModel;
-import org.eclipse.collections.api.factory.Lists;
-import org.eclipse.collections.api.list.MutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Embeds texts with a sentence-transformers model exported to ONNX, one inference per batch of texts.
+ *
+ * <p>Thread-safe. One model is shared by a pool of predictors, so up to {@link OnnxThreading#predictors()} threads
+ * run inferences at once and the rest wait for a predictor.
+ */
 public class OnnxEmbeddingEngine implements EmbeddingEngine {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(OnnxEmbeddingEngine.class);
 
 	private final EmbeddingModel model;
 	private final String modelCachePath;
-	private ZooModel<String, float[]> zooModel;
-	private Predictor<String, float[]> predictor;
+	private final OnnxThreading threading;
+	private final BlockingQueue<Predictor<String[], float[][]>> predictors;
+	private HuggingFaceTokenizer tokenizer;
+	private ZooModel<String[], float[][]> zooModel;
 
-	public OnnxEmbeddingEngine(EmbeddingModel model, String modelCachePath) {
+	public OnnxEmbeddingEngine(EmbeddingModel model, String modelCachePath, OnnxThreading threading) {
 		if (!model.isLocal()) {
 			throw new IllegalArgumentException("Model must be a local ONNX model: " + model);
 		}
 
 		this.model = model;
 		this.modelCachePath = modelCachePath;
+		this.threading = threading;
+		this.predictors = new ArrayBlockingQueue<>(threading.predictors());
 
 		this.initializeModel();
 	}
@@ -49,18 +61,29 @@ public class OnnxEmbeddingEngine implements EmbeddingEngine {
 			Path cachePath = Paths.get(this.modelCachePath);
 			System.setProperty("DJL_CACHE_DIR", cachePath.toString());
 
-			Criteria<String, float[]> criteria = Criteria.builder()
-				.setTypes(String.class, float[].class)
+			this.tokenizer = HuggingFaceTokenizer.builder()
+				.optTokenizerName(this.model.getModelName())
+				.optTruncation(true)
+				.optMaxLength(this.model.getMaxSequenceLength())
+				.optPadding(false)
+				.build();
+
+			Criteria<String[], float[][]> criteria = Criteria.builder()
+				.setTypes(String[].class, float[][].class)
 				.optApplication(Application.NLP.TEXT_EMBEDDING)
 				.optEngine("OnnxRuntime")
 				.optModelUrls("djl://ai.djl.huggingface.onnxruntime/" + this.model.getModelName())
-				.optTranslator(new SentenceTransformerTranslator(this.model))
+				.optTranslator(new SentenceTransformerTranslator(this.tokenizer))
+				.optOption("intraOpNumThreads", String.valueOf(this.threading.intraOpThreads()))
+				.optOption("interOpNumThreads", String.valueOf(this.threading.interOpThreads()))
 				.build();
 
 			this.zooModel = criteria.loadModel();
-			this.predictor = this.zooModel.newPredictor();
+			for (int i = 0; i < this.threading.predictors(); i++) {
+				this.predictors.add(this.zooModel.newPredictor());
+			}
 
-			LOGGER.info("ONNX model loaded: {}", this.model.getModelName());
+			LOGGER.info("ONNX model loaded: {} with {}", this.model.getModelName(), this.threading);
 		} catch (ModelNotFoundException | MalformedModelException | IOException e) {
 			throw new RuntimeException("Failed to load ONNX model: " + this.model.getModelName(), e);
 		}
@@ -68,22 +91,43 @@ public class OnnxEmbeddingEngine implements EmbeddingEngine {
 
 	@Override
 	public float[] generateEmbedding(String text, boolean isQuery) {
-		String prefixedText = this.applyPrefix(text, isQuery);
+		return this.generateEmbeddings(List.of(text), isQuery).get(0);
+	}
+
+	/**
+	 * Embeds all {@code texts} in one {@code [batch, length]} inference, padded to the longest text in the batch.
+	 */
+	@Override
+	public List<float[]> generateEmbeddings(List<String> texts, boolean isQuery) {
+		if (texts.isEmpty()) {
+			return List.of();
+		}
+
+		String[] prefixedTexts = texts.stream().map((text) -> this.applyPrefix(text, isQuery)).toArray(String[]::new);
+
+		Predictor<String[], float[][]> predictor;
+		try {
+			predictor = this.predictors.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted waiting for a predictor", e);
+		}
 
 		try {
-			return this.predictor.predict(prefixedText);
+			return List.of(predictor.predict(prefixedTexts));
 		} catch (Exception e) {
-			throw new RuntimeException("Failed to generate embedding", e);
+			throw new RuntimeException("Failed to generate embeddings", e);
+		} finally {
+			this.predictors.add(predictor);
 		}
 	}
 
+	/**
+	 * Tokenizes {@code text} the way {@link #generateEmbeddings} does, truncated to the model's maximum length.
+	 */
 	@Override
-	public List<float[]> generateEmbeddings(List<String> texts, boolean isQuery) {
-		MutableList<float[]> embeddings = Lists.mutable.empty();
-		for (String text : texts) {
-			embeddings.add(this.generateEmbedding(text, isQuery));
-		}
-		return embeddings;
+	public int countTokens(String text, boolean isQuery) {
+		return this.tokenizer.encode(this.applyPrefix(text, isQuery)).getIds().length;
 	}
 
 	private String applyPrefix(String text, boolean isQuery) {
@@ -91,6 +135,11 @@ public class OnnxEmbeddingEngine implements EmbeddingEngine {
 		return prefix + text;
 	}
 
+	@Override
+	public int getParallelism() {
+		return this.threading.predictors();
+	}
+
 	@Override
 	public EmbeddingModel getModel() {
 		return this.model;
@@ -98,55 +147,78 @@ public class OnnxEmbeddingEngine implements EmbeddingEngine {
 
 	@Override
 	public void close() {
-		if (this.predictor != null) {
-			this.predictor.close();
-		}
+		this.predictors.forEach(Predictor::close);
+		this.predictors.clear();
 		if (this.zooModel != null) {
 			this.zooModel.close();
 		}
+		if (this.tokenizer != null) {
+			this.tokenizer.close();
+		}
 	}
 
-	private static class SentenceTransformerTranslator implements Translator<String, float[]> {
+	/**
+	 * Tokenizes a batch of texts, truncated to the model's maximum sequence length and padded to the longest, and
+	 * mean-pools each row's last hidden state over its real tokens only.
+	 */
+	private static class SentenceTransformerTranslator implements NoBatchifyTranslator<String[], float[][]> {
 
-		private final EmbeddingModel model;
-		private HuggingFaceTokenizer tokenizer;
+		private static final String ATTENTION_MASK = "attentionMask";
 
-		public SentenceTransformerTranslator(EmbeddingModel model) {
-			this.model = model;
+		private final HuggingFaceTokenizer tokenizer;
+
+		public SentenceTransformerTranslator(HuggingFaceTokenizer tokenizer) {
+			this.tokenizer = tokenizer;
 		}
 
 		@Override
-		public void prepare(TranslatorContext ctx) {
-			try {
-				this.tokenizer = HuggingFaceTokenizer.newInstance(this.model.getModelName());
-			} catch (Exception e) {
-				throw new RuntimeException("Failed to load tokenizer", e);
+		public NDList processInput(TranslatorContext ctx, String[] inputs) {
+			Encoding[] encodings = this.tokenizer.batchEncode(inputs);
+
+			int maxLength = 0;
+			for (Encoding encoding : encodings) {
+				maxLength = Math.max(maxLength, encoding.getIds().length);
 			}
-		}
 
-		@Override
-		public NDList processInput(TranslatorContext ctx, String input) {
-			Encoding encoding = this.tokenizer.encode(input);
+			long[][] inputIds = new long[encodings.length][maxLength];
+			long[][] attentionMask = new long[encodings.length][maxLength];
+			for (int row = 0; row < encodings.length; row++) {
+				long[] ids = encodings[row].getIds();
+				long[] mask = encodings[row].getAttentionMask();
+				System.arraycopy(ids, 0, inputIds[row], 0, ids.length);
+				System.arraycopy(mask, 0, attentionMask[row], 0, mask.length);
+			}
 
 			NDManager manager = ctx.getNDManager();
-			long[] inputIds = encoding.getIds();
-			long[] attentionMask = encoding.getAttentionMask();
-
-			NDArray inputIdsArray = manager.create(new long[][] { inputIds });
-			NDArray attentionMaskArray = manager.create(new long[][] { attentionMask });
+			NDArray inputIdsArray = manager.create(inputIds);
+			NDArray attentionMaskArray = manager.create(attentionMask);
+			ctx.setAttachment(ATTENTION_MASK, attentionMaskArray);
 
 			return new NDList(inputIdsArray, attentionMaskArray);
 		}
 
 		@Override
-		public float[] processOutput(TranslatorContext ctx, NDList list) {
+		public float[][] processOutput(TranslatorContext ctx, NDList list) {
 			NDArray lastHiddenState = list.get(0);
-
-			NDArray meanPooled = lastHiddenState.mean(new int[] { 1 });
-
-			NDArray normalized = meanPooled.div(meanPooled.norm());
-
-			return normalized.toFloatArray();
+			NDArray attentionMask = (NDArray) ctx.getAttachment(ATTENTION_MASK);
+
+			// [batch, length, 1], so padding contributes neither to the sum nor to the token count
+			NDArray mask = attentionMask.toType(DataType.FLOAT32, false).expandDims(2);
+			NDArray summed = lastHiddenState.mul(mask).sum(new int[] { 1 });
+			NDArray tokenCounts = mask.sum(new int[] { 1 }).maximum(1e-9f);
+			NDArray meanPooled = summed.div(tokenCounts);
+
+			NDArray norms = meanPooled.norm(new int[] { 1 }, true).maximum(1e-12f);
+			NDArray normalized = meanPooled.div(norms);
+
+			int batchSize = (int) normalized.getShape().get(0);
+			int dimensions = (int) normalized.getShape().get(1);
+			float[] flattened = normalized.toFloatArray();
+			float[][] embeddings = new float[batchSize][];
+			for (int row = 0; row < batchSize; row++) {
+				embeddings[row] = Arrays.copyOfRange(flattened, row * dimensions, (row + 1) * dimensions);
+			}
+			return embeddings;
 		}
 	}
 }
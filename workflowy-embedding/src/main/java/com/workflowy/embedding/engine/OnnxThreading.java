@@ -0,0 +1,49 @@
+package com.workflowy.embedding.engine;
+
+import com.workflowy.embedding.config.EmbeddingConfiguration;
+
+/**
+ * How many predictors an {@link OnnxEmbeddingEngine} pools, and how many threads ONNX Runtime gives each inference.
+ *
+ * <p>{@code intraOpThreads} split one operator, such as a matrix multiplication, across cores. {@code interOpThreads}
+ * run independent operators of the graph at once, which a sentence-transformers graph barely has. Small batches stop
+ * scaling within an operator after a few cores, so by default the cores are shared by several predictors running
+ * inferences side by side: on 16 cores, 4 predictors of 4 intra-op threads each.
+ */
+public record OnnxThreading(int predictors, int intraOpThreads, int interOpThreads) {
+
+	private static final int DEFAULT_INTRA_OP_THREADS = 4;
+
+	public OnnxThreading {
+		if (predictors < 1 || intraOpThreads < 1 || interOpThreads < 1) {
+			throw new IllegalArgumentException(
+				"Predictors and thread counts must be positive: " + predictors + ", " + intraOpThreads + ", "
+				+ interOpThreads
+			);
+		}
+	}
+
+	/**
+	 * The configured counts, with each count of 0 derived from the available processors.
+	 */
+	public static OnnxThreading of(EmbeddingConfiguration configuration) {
+		return of(
+			configuration.getOnnxPredictors(),
+			configuration.getOnnxIntraOpThreads(),
+			configuration.getOnnxInterOpThreads()
+		);
+	}
+
+	public static OnnxThreading defaults() {
+		return of(0, 0, 1);
+	}
+
+	private static OnnxThreading of(int predictors, int intraOpThreads, int interOpThreads) {
+		int processors = Runtime.getRuntime().availableProcessors();
+		int resolvedPredictors = predictors > 0
+			? predictors
+			: Math.max(1, processors / (intraOpThreads > 0 ? intraOpThreads : DEFAULT_INTRA_OP_THREADS));
+		int resolvedIntraOpThreads = intraOpThreads > 0 ? intraOpThreads : Math.max(1, processors / resolvedPredictors);
+		return new OnnxThreading(resolvedPredictors, resolvedIntraOpThreads, interOpThreads);
+	}
+}
@@ -1,20 +1,32 @@
 package com.workflowy.embedding.generator;
 
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Instant;
-import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import com.gs.fw.common.mithra.finder.Operation;
+import com.workflowy.DataImportTimestamp;
+import com.workflowy.DataImportTimestampFinder;
+import com.workflowy.DataImportTimestampList;
 import com.workflowy.NodeContent;
+import com.workflowy.NodeContentChange;
+import com.workflowy.NodeContentChangeFinder;
+import com.workflowy.NodeContentChangeList;
 import com.workflowy.NodeContentFinder;
 import com.workflowy.NodeContentList;
 import com.workflowy.embedding.engine.EmbeddingEngine;
 import com.workflowy.embedding.model.EmbeddingModel;
-import com.workflowy.embedding.model.NodeEmbedding;
 import com.workflowy.embedding.repository.EmbeddingRepository;
+import org.eclipse.collections.api.RichIterable;
 import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.api.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,109 +34,209 @@ public class EmbeddingGenerator {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddingGenerator.class);
 
-	private static final Instant FAR_FUTURE = Instant.parse("9999-12-31T23:59:59Z");
+	// Maximum number of node ids in one in operation
+	private static final int CHUNK_SIZE = 1000;
+
+	// Prefix of the per-user import high watermarks written by the importer
+	private static final String HIGH_WATERMARK_PREFIX = "workflowy:";
 
 	private final EmbeddingEngine engine;
 	private final EmbeddingRepository repository;
-	private final PathBuilder pathBuilder;
 	private final int batchSize;
+	private final int tokenBudget;
+	private final int workers;
 	private final boolean force;
 
-	public EmbeddingGenerator(EmbeddingEngine engine, EmbeddingRepository repository, int batchSize, boolean force) {
+	/**
+	 * Builds the texts of {@code batchSize} nodes at a time and groups them by token length into inferences of at most
+	 * {@code tokenBudget} tokens, padding included, which {@code workers} threads run at once. Embeddings are saved at
+	 * least {@code batchSize} per commit. See {@link EmbeddingPipeline}.
+	 */
+	public EmbeddingGenerator(
+		EmbeddingEngine engine,
+		EmbeddingRepository repository,
+		int batchSize,
+		int tokenBudget,
+		int workers,
+		boolean force
+	) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Expected at least one worker, got " + workers);
+		}
 		this.engine = engine;
 		this.repository = repository;
-		this.pathBuilder = new PathBuilder();
 		this.batchSize = batchSize;
+		this.tokenBudget = tokenBudget;
+		this.workers = workers;
 		this.force = force;
 	}
 
+	/**
+	 * Embeds the nodes changed since the model's change feed watermarks, or every node without an embedding when there
+	 * are no watermarks yet or {@code force} is set. The watermarks only advance when every batch succeeded, so failed
+	 * nodes are retried by the next run.
+	 */
 	public GenerationResult generate(Consumer<ProgressUpdate> progressCallback) {
 		EmbeddingModel model = this.engine.getModel();
 
-		Set<String> existingNodeIds;
 		try {
-			existingNodeIds = this.force ? Set.of() : this.repository.getExistingNodeIds(model);
+			MutableMap<String, Instant> changeWatermarks = this.force
+				? Maps.mutable.empty()
+				: this.repository.getChangeWatermarks(model);
+			return changeWatermarks.isEmpty()
+				? this.generateAll(model, progressCallback)
+				: this.generateChanged(model, changeWatermarks, progressCallback);
 		} catch (SQLException e) {
-			throw new RuntimeException("Failed to get existing node IDs", e);
+			throw new RuntimeException("Failed to read or store the change feed watermarks", e);
 		}
+	}
 
-		NodeContentList allNodes = NodeContentFinder.findMany(NodeContentFinder.all());
-		int totalNodes = allNodes.size();
-		int skippedCount = 0;
-		int processedCount = 0;
-		int errorCount = 0;
-
-		MutableList<NodeContent> batch = Lists.mutable.withInitialCapacity(this.batchSize);
-
-		for (int i = 0; i < allNodes.size(); i++) {
-			NodeContent node = allNodes.get(i);
+	private GenerationResult generateAll(EmbeddingModel model, Consumer<ProgressUpdate> progressCallback)
+		throws SQLException {
+		// Read before the nodes, so changes imported during this run are embedded again by the next one
+		MutableMap<String, Instant> importHighWatermarks = getImportHighWatermarks();
 
-			if (!this.force && existingNodeIds.contains(node.getId())) {
-				skippedCount++;
-				continue;
-			}
+		Set<String> existingNodeIds = this.force ? Set.of() : this.repository.getExistingNodeIds(model);
 
-			batch.add(node);
-
-			if (batch.size() >= this.batchSize || i == allNodes.size() - 1) {
-				try {
-					this.processBatch(batch, model);
-					processedCount += batch.size();
-
-					if (progressCallback != null) {
-						progressCallback.accept(
-							new ProgressUpdate(
-								processedCount + skippedCount,
-								totalNodes,
-								processedCount,
-								skippedCount,
-								errorCount
-							)
-						);
-					}
-				} catch (Exception e) {
-					LOGGER.error("Error processing batch", e);
-					errorCount += batch.size();
-				}
-
-				batch.clear();
+		NodeContentList allNodes = NodeContentFinder.findMany(NodeContentFinder.all());
+		MutableList<NodeContent> pendingNodes = Lists.mutable.withInitialCapacity(allNodes.size());
+		for (NodeContent node : allNodes) {
+			if (!existingNodeIds.contains(node.getId())) {
+				pendingNodes.add(node);
 			}
 		}
 
-		return new GenerationResult(totalNodes, processedCount, skippedCount, errorCount);
+		// Every current node is loaded already, so the index needs no queries for ancestors
+		PathBuilder pathBuilder = new PathBuilder(NodeTreeIndex.load(allNodes));
+		int skippedCount = allNodes.size() - pendingNodes.size();
+		GenerationResult result = this.embed(
+			pendingNodes,
+			pathBuilder,
+			allNodes.size(),
+			skippedCount,
+			model,
+			progressCallback
+		);
+		if (result.errorCount() == 0) {
+			this.repository.saveChangeWatermarks(model, importHighWatermarks);
+		}
+		return result;
 	}
 
-	private void processBatch(List<NodeContent> nodes, EmbeddingModel model) throws SQLException {
-		List<String> texts = nodes
-			.stream()
-			.map((node) -> this.pathBuilder.buildEmbeddingText(node.getId()))
-			.toList();
-
-		List<float[]> embeddings = this.engine.generateEmbeddings(texts, false);
-
-		MutableList<NodeEmbedding> nodeEmbeddings = Lists.mutable.empty();
-		for (int i = 0; i < nodes.size(); i++) {
-			NodeContent node = nodes.get(i);
-			float[] embedding = embeddings.get(i);
-
-			NodeEmbedding nodeEmbedding = new NodeEmbedding(
-				node.getId(),
-				model.getKey(),
-				embedding,
-				Instant.now(),
-				FAR_FUTURE
+	/**
+	 * Re-embeds the nodes in the import change feed after each user's watermark, and terminates the embeddings of
+	 * those that no longer exist. Users are imported concurrently, so their imports only commit in timestamp order per
+	 * user, and a user without a watermark was first imported after the last full run.
+	 */
+	private GenerationResult generateChanged(
+		EmbeddingModel model,
+		MutableMap<String, Instant> changeWatermarks,
+		Consumer<ProgressUpdate> progressCallback
+	) throws SQLException {
+		Operation afterWatermarks = NodeContentChangeFinder.userId().notIn(changeWatermarks.keysView().toSet());
+		for (Pair<String, Instant> changeWatermark : changeWatermarks.keyValuesView()) {
+			Timestamp watermark = Timestamp.from(changeWatermark.getTwo());
+			afterWatermarks = afterWatermarks.or(
+				NodeContentChangeFinder.userId().eq(changeWatermark.getOne())
+					.and(NodeContentChangeFinder.importTimestamp().greaterThan(watermark))
 			);
-			nodeEmbeddings.add(nodeEmbedding);
 		}
+		NodeContentChangeList changes = NodeContentChangeFinder.findMany(afterWatermarks);
+
+		MutableSet<String> changedNodeIds = Sets.mutable.empty();
+		MutableMap<String, Instant> latestChanges = Maps.mutable.withMap(changeWatermarks);
+		for (NodeContentChange change : changes) {
+			changedNodeIds.add(change.getNodeId());
+			Instant importTimestamp = change.getImportTimestamp().toInstant();
+			latestChanges.merge(
+				change.getUserId(),
+				importTimestamp,
+				(latest, next) -> next.isAfter(latest) ? next : latest
+			);
+		}
+		LOGGER.info("{} nodes changed in imports after {}", changedNodeIds.size(), changeWatermarks);
+
+		MutableList<NodeContent> changedNodes = Lists.mutable.withInitialCapacity(changedNodeIds.size());
+		for (RichIterable<String> chunk : changedNodeIds.chunk(CHUNK_SIZE)) {
+			changedNodes.addAllIterable(NodeContentFinder.findMany(NodeContentFinder.id().in(chunk.toSet())));
+		}
+		MutableSet<String> terminatedNodeIds = changedNodeIds.difference(
+			changedNodes.collect(NodeContent::getId).toSet()
+		);
+		LOGGER.info("Terminating the embeddings of {} deleted nodes", terminatedNodeIds.size());
+		this.repository.terminateBatch(terminatedNodeIds, model);
+
+		GenerationResult result = this.embed(
+			changedNodes,
+			new PathBuilder(NodeTreeIndex.load(changedNodes)),
+			changedNodeIds.size(),
+			terminatedNodeIds.size(),
+			model,
+			progressCallback
+		);
+		if (result.errorCount() == 0) {
+			this.repository.saveChangeWatermarks(model, latestChanges);
+		}
+		return result;
+	}
 
-		this.repository.saveBatch(nodeEmbeddings);
+	private GenerationResult embed(
+		MutableList<NodeContent> nodes,
+		PathBuilder pathBuilder,
+		int totalNodes,
+		int skippedCount,
+		EmbeddingModel model,
+		Consumer<ProgressUpdate> progressCallback
+	) {
+		EmbeddingPipeline pipeline = new EmbeddingPipeline(
+			this.engine,
+			this.repository,
+			model,
+			this.batchSize,
+			this.tokenBudget,
+			this.workers
+		);
+		return pipeline.run(nodes, pathBuilder, totalNodes, skippedCount, progressCallback);
 	}
 
-	public record ProgressUpdate(int current, int total, int processed, int skipped, int errors) {
+	/**
+	 * Each user's import high watermark, named after the user since imports were kept per user.
+	 */
+	private static MutableMap<String, Instant> getImportHighWatermarks() {
+		MutableMap<String, Instant> importHighWatermarks = Maps.mutable.empty();
+		DataImportTimestampList userTimestamps = DataImportTimestampFinder.findMany(
+			DataImportTimestampFinder.name().startsWith(HIGH_WATERMARK_PREFIX)
+		);
+		for (DataImportTimestamp userTimestamp : userTimestamps) {
+			String userId = userTimestamp.getName().substring(HIGH_WATERMARK_PREFIX.length());
+			importHighWatermarks.put(userId, userTimestamp.getTimestamp().toInstant());
+		}
+		return importHighWatermarks;
+	}
+
+	/**
+	 * {@code paddingEfficiency} is the share of the padded inference inputs filled by real tokens, and
+	 * {@code tokensPerSecond} the real tokens embedded per second since embedding started.
+	 */
+	public record ProgressUpdate(
+		int current,
+		int total,
+		int processed,
+		int skipped,
+		int errors,
+		double paddingEfficiency,
+		double tokensPerSecond,
+		StageUtilization utilization
+	) {
 		public int percentage() {
 			return this.total > 0 ? (this.current * 100) / this.total : 0;
 		}
 	}
 
+	/**
+	 * The share of the elapsed time each pipeline stage spent working rather than waiting on the others.
+	 */
+	public record StageUtilization(double textBuilding, double inference, double writing) {}
+
 	public record GenerationResult(int totalNodes, int processedCount, int skippedCount, int errorCount) {}
 }
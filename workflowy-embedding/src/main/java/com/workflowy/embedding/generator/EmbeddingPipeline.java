@@ -0,0 +1,363 @@
+package com.workflowy.embedding.generator;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeContent;
+import com.workflowy.embedding.engine.EmbeddingEngine;
+import com.workflowy.embedding.generator.EmbeddingGenerator.GenerationResult;
+import com.workflowy.embedding.generator.EmbeddingGenerator.ProgressUpdate;
+import com.workflowy.embedding.generator.EmbeddingGenerator.StageUtilization;
+import com.workflowy.embedding.model.EmbeddingModel;
+import com.workflowy.embedding.model.NodeEmbedding;
+import com.workflowy.embedding.repository.EmbeddingRepository;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.MutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embeds nodes in three stages connected by bounded queues, so that building texts, inference and SQLite writes
+ * overlap instead of taking turns:
+ * <ol>
+ *   <li>one thread builds the texts of {@code batchSize} nodes at a time, counts their tokens and splits them into
+ *   inferences of at most {@code tokenBudget} tokens</li>
+ *   <li>{@code workers} threads run the inferences</li>
+ *   <li>the calling thread writes the embeddings, at least {@code batchSize} per transaction, and reports progress</li>
+ * </ol>
+ *
+ * <p>A full queue blocks the stage before it, so a slow stage holds back the others instead of piling up embeddings
+ * in memory. Every failure, whether building texts, embedding or saving, reaches the writer as a count of failed
+ * nodes, so the writer alone keeps the counts. A stage that dies of anything else still sends its end markers, so
+ * the stages after it never wait for it, and the writer rethrows its failure.
+ *
+ * <p>A stage's utilization is the share of the elapsed time its threads spent working rather than waiting on a queue.
+ */
+final class EmbeddingPipeline {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddingPipeline.class);
+
+	private static final Instant FAR_FUTURE = Instant.parse("9999-12-31T23:59:59Z");
+
+	// Sent once per worker down each queue, after the last inference
+	private static final Inference END_OF_INFERENCES = new Inference(List.of(), List.of(), new int[0]);
+	private static final Result END_OF_RESULTS = new Result(List.of(), null, 0, 0, 0);
+
+	private final EmbeddingEngine engine;
+	private final EmbeddingRepository repository;
+	private final EmbeddingModel model;
+	private final int batchSize;
+	private final int tokenBudget;
+	private final int workers;
+
+	private final BlockingQueue<Inference> inferences;
+	private final BlockingQueue<Result> results;
+
+	private final AtomicLong textBuildingNanos = new AtomicLong();
+	private final AtomicLong inferenceNanos = new AtomicLong();
+	private long writingNanos;
+
+	private final AtomicReference<Throwable> stageFailure = new AtomicReference<>();
+
+	EmbeddingPipeline(
+		EmbeddingEngine engine,
+		EmbeddingRepository repository,
+		EmbeddingModel model,
+		int batchSize,
+		int tokenBudget,
+		int workers
+	) {
+		this.engine = Objects.requireNonNull(engine);
+		this.repository = Objects.requireNonNull(repository);
+		this.model = Objects.requireNonNull(model);
+		this.batchSize = batchSize;
+		this.tokenBudget = tokenBudget;
+		this.workers = workers;
+		// Enough to keep every worker busy while the next stage catches up
+		this.inferences = new ArrayBlockingQueue<>(workers * 2);
+		this.results = new ArrayBlockingQueue<>(workers * 2);
+	}
+
+	GenerationResult run(
+		MutableList<NodeContent> nodes,
+		PathBuilder pathBuilder,
+		int totalNodes,
+		int skippedCount,
+		@Nullable Consumer<ProgressUpdate> progressCallback
+	) {
+		long start = System.nanoTime();
+		try (ExecutorService executor = Executors.newFixedThreadPool(this.workers + 1)) {
+			executor.execute(() -> this.buildTexts(nodes, pathBuilder));
+			for (int i = 0; i < this.workers; i++) {
+				executor.execute(this::embed);
+			}
+
+			try {
+				return this.write(start, totalNodes, skippedCount, progressCallback);
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted writing embeddings", e);
+			} catch (RuntimeException e) {
+				// Unblocks the stages waiting on the full queues, or on a stage that failed
+				executor.shutdownNow();
+				throw e;
+			}
+		}
+	}
+
+	private void buildTexts(MutableList<NodeContent> nodes, PathBuilder pathBuilder) {
+		try {
+			for (RichIterable<NodeContent> batch : nodes.chunk(this.batchSize)) {
+				long start = System.nanoTime();
+				MutableList<Inference> batchInferences;
+				try {
+					batchInferences = this.split(batch.toList(), pathBuilder);
+				} catch (RuntimeException e) {
+					LOGGER.error("Error building the texts of {} nodes", batch.size(), e);
+					this.textBuildingNanos.addAndGet(System.nanoTime() - start);
+					this.results.put(Result.failed(batch.size()));
+					continue;
+				}
+				this.textBuildingNanos.addAndGet(System.nanoTime() - start);
+
+				for (Inference inference : batchInferences) {
+					this.inferences.put(inference);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException | Error e) {
+			this.stageFailure.compareAndSet(null, e);
+			throw e;
+		} finally {
+			sendEndMarkers(this.inferences, END_OF_INFERENCES, this.workers);
+		}
+	}
+
+	private MutableList<Inference> split(List<NodeContent> nodes, PathBuilder pathBuilder) {
+		List<String> texts = nodes
+			.stream()
+			.map((node) -> pathBuilder.buildEmbeddingText(node.getId()))
+			.toList();
+		int[] tokenCounts = texts.stream().mapToInt((text) -> this.engine.countTokens(text, false)).toArray();
+
+		MutableList<Inference> batchInferences = Lists.mutable.empty();
+		for (int[] indexes : TokenBudgetBatches.split(tokenCounts, this.tokenBudget)) {
+			batchInferences.add(new Inference(
+				Arrays.stream(indexes).mapToObj((index) -> nodes.get(index).getId()).toList(),
+				Arrays.stream(indexes).mapToObj(texts::get).toList(),
+				Arrays.stream(indexes).map((index) -> tokenCounts[index]).toArray()
+			));
+		}
+		return batchInferences;
+	}
+
+	private void embed() {
+		try {
+			while (true) {
+				Inference inference = this.inferences.take();
+				if (inference == END_OF_INFERENCES) {
+					return;
+				}
+
+				long start = System.nanoTime();
+				Result result;
+				try {
+					List<float[]> embeddings = this.engine.generateEmbeddings(inference.texts(), false);
+					result = Result.embedded(inference, embeddings);
+				} catch (RuntimeException e) {
+					LOGGER.error("Error embedding {} nodes", inference.nodeIds().size(), e);
+					result = Result.failed(inference.nodeIds().size());
+				}
+				this.inferenceNanos.addAndGet(System.nanoTime() - start);
+				this.results.put(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException | Error e) {
+			this.stageFailure.compareAndSet(null, e);
+			throw e;
+		} finally {
+			sendEndMarkers(this.results, END_OF_RESULTS, 1);
+		}
+	}
+
+	/**
+	 * Sends the end markers in a stage's {@code finally}, so the next stage never waits for a stage that died.
+	 */
+	private static <T> void sendEndMarkers(BlockingQueue<T> queue, T endMarker, int count) {
+		try {
+			for (int i = 0; i < count; i++) {
+				queue.put(endMarker);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Saves the embedded nodes once at least {@code batchSize} are waiting, and the rest after the last inference.
+	 */
+	private GenerationResult write(
+		long start,
+		int totalNodes,
+		int skippedCount,
+		@Nullable Consumer<ProgressUpdate> progressCallback
+	) throws InterruptedException {
+		Progress progress = new Progress(start, totalNodes, skippedCount);
+		MutableList<NodeEmbedding> pending = Lists.mutable.empty();
+		MutableList<Result> taken = Lists.mutable.empty();
+		int endedWorkers = 0;
+
+		while (endedWorkers < this.workers) {
+			taken.add(this.results.take());
+			this.results.drainTo(taken);
+			Throwable failure = this.stageFailure.get();
+			if (failure != null) {
+				throw new RuntimeException("An embedding stage failed", failure);
+			}
+
+			long writeStart = System.nanoTime();
+			for (Result result : taken) {
+				if (result == END_OF_RESULTS) {
+					endedWorkers++;
+				} else if (result.embeddings() == null) {
+					progress.errorCount += result.failedCount();
+				} else {
+					progress.record(result);
+					for (int i = 0; i < result.nodeIds().size(); i++) {
+						pending.add(new NodeEmbedding(
+							result.nodeIds().get(i),
+							this.model.getKey(),
+							result.embeddings().get(i),
+							Instant.now(),
+							FAR_FUTURE
+						));
+					}
+				}
+			}
+			taken.clear();
+
+			boolean commit = pending.size() >= this.batchSize || (endedWorkers == this.workers && pending.notEmpty());
+			if (commit) {
+				this.save(pending, progress);
+				pending.clear();
+			}
+			this.writingNanos += System.nanoTime() - writeStart;
+
+			if (commit && progressCallback != null) {
+				progressCallback.accept(progress.toUpdate(this.utilization(start)));
+			}
+		}
+
+		if (progressCallback != null) {
+			progressCallback.accept(progress.toUpdate(this.utilization(start)));
+		}
+		return new GenerationResult(totalNodes, progress.processedCount, skippedCount, progress.errorCount);
+	}
+
+	private void save(MutableList<NodeEmbedding> nodeEmbeddings, Progress progress) {
+		try {
+			this.repository.saveBatch(nodeEmbeddings);
+			progress.processedCount += nodeEmbeddings.size();
+		} catch (SQLException e) {
+			LOGGER.error("Error saving {} embeddings", nodeEmbeddings.size(), e);
+			progress.errorCount += nodeEmbeddings.size();
+		}
+	}
+
+	private StageUtilization utilization(long start) {
+		double elapsedNanos = Math.max(1, System.nanoTime() - start);
+		return new StageUtilization(
+			this.textBuildingNanos.get() / elapsedNanos,
+			this.inferenceNanos.get() / (elapsedNanos * this.workers),
+			this.writingNanos / elapsedNanos
+		);
+	}
+
+	/**
+	 * The nodes of one inference, in the order of their texts.
+	 */
+	private record Inference(List<String> nodeIds, List<String> texts, int[] tokenCounts) {}
+
+	/**
+	 * The embeddings of an inference, or {@code null} embeddings and the number of nodes that failed.
+	 */
+	private record Result(
+		List<String> nodeIds,
+		@Nullable List<float[]> embeddings,
+		int failedCount,
+		long tokens,
+		long paddedTokens
+	) {
+
+		static Result embedded(Inference inference, List<float[]> embeddings) {
+			long tokens = 0;
+			int longest = 0;
+			for (int tokenCount : inference.tokenCounts()) {
+				tokens += tokenCount;
+				longest = Math.max(longest, tokenCount);
+			}
+			long paddedTokens = (long) longest * inference.tokenCounts().length;
+			return new Result(inference.nodeIds(), embeddings, 0, tokens, paddedTokens);
+		}
+
+		static Result failed(int failedCount) {
+			return new Result(List.of(), null, failedCount, 0, 0);
+		}
+	}
+
+	/**
+	 * The counts so far, kept by the writer alone, and the tokens embedded per second since the pipeline started.
+	 */
+	private static final class Progress {
+
+		private final long start;
+		private final int totalNodes;
+		private final int skippedCount;
+
+		private int processedCount;
+		private int errorCount;
+		private long tokens;
+		private long paddedTokens;
+
+		Progress(long start, int totalNodes, int skippedCount) {
+			this.start = start;
+			this.totalNodes = totalNodes;
+			this.skippedCount = skippedCount;
+		}
+
+		void record(Result result) {
+			this.tokens += result.tokens();
+			this.paddedTokens += result.paddedTokens();
+		}
+
+		ProgressUpdate toUpdate(StageUtilization utilization) {
+			long elapsedNanos = System.nanoTime() - this.start;
+			return new ProgressUpdate(
+				this.processedCount + this.skippedCount + this.errorCount,
+				this.totalNodes,
+				this.processedCount,
+				this.skippedCount,
+				this.errorCount,
+				this.paddedTokens == 0 ? 1.0 : (double) this.tokens / this.paddedTokens,
+				elapsedNanos == 0 ? 0.0 : this.tokens * 1e9 / elapsedNanos,
+				utilization
+			);
+		}
+	}
+}
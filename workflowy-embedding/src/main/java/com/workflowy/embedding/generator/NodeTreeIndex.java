@@ -0,0 +1,206 @@
+package com.workflowy.embedding.generator;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeContent;
+import com.workflowy.NodeContentFinder;
+import com.workflowy.NodeContentList;
+import com.workflowy.embedding.util.HtmlStripper;
+import org.eclipse.collections.api.RichIterable;
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.primitive.MutableObjectIntMap;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+
+/**
+ * The current nodes of an outline and their ancestors, loaded once so that paths are built without a query per
+ * ancestor.
+ *
+ * <p>Each node gets a row with its parent's row, its name with the HTML stripped, and its raw note. The path of a node
+ * with children is memoized on first use, so each node's path costs one concatenation onto its parent's. Leaves are
+ * never asked for twice, so their paths are not kept.
+ *
+ * <p>A parent that is not a current node ends the path, as does a node whose parent is missing from the database.
+ *
+ * <p>Not thread-safe.
+ */
+public final class NodeTreeIndex {
+
+	private static final String PATH_SEPARATOR = " > ";
+
+	// Maximum number of node ids in one in operation
+	private static final int CHUNK_SIZE = 1000;
+
+	private static final int NO_ROW = -1;
+
+	private final MutableObjectIntMap<String> rowsById = new ObjectIntHashMap<>();
+	private final MutableList<String> nodeIds = Lists.mutable.empty();
+	private final MutableList<String> parentIds = Lists.mutable.empty();
+	private final MutableList<String> names = Lists.mutable.empty();
+	private final MutableList<String> notes = Lists.mutable.empty();
+
+	// Filled in by resolve()
+	private int[] parentRows;
+	private boolean[] hasChildren;
+	private String[] paths;
+
+	private NodeTreeIndex() {}
+
+	/**
+	 * Indexes {@code nodes}, then loads their missing ancestors one level at a time.
+	 */
+	public static NodeTreeIndex load(@Nonnull Iterable<NodeContent> nodes) {
+		NodeTreeIndex index = new NodeTreeIndex();
+		index.addAll(nodes);
+		index.loadMissingAncestors();
+		index.resolve();
+		return index;
+	}
+
+	/**
+	 * Loads the nodes with the given ids and their ancestors. Ids of nodes that are not current are left out.
+	 */
+	public static NodeTreeIndex loadByIds(@Nonnull Iterable<String> nodeIds) {
+		NodeTreeIndex index = new NodeTreeIndex();
+		index.addAll(findByIds(Sets.mutable.withAll(nodeIds)));
+		index.loadMissingAncestors();
+		index.resolve();
+		return index;
+	}
+
+	/**
+	 * Indexes only {@code nodes}, without loading their ancestors, so a parent outside them ends the path.
+	 */
+	static NodeTreeIndex of(@Nonnull Iterable<NodeContent> nodes) {
+		NodeTreeIndex index = new NodeTreeIndex();
+		index.addAll(nodes);
+		index.resolve();
+		return index;
+	}
+
+	public boolean contains(@Nonnull String nodeId) {
+		return this.rowsById.containsKey(nodeId);
+	}
+
+	/**
+	 * The node's name without HTML, or the empty string for a node that is not indexed.
+	 */
+	public String getName(@Nonnull String nodeId) {
+		int row = this.rowsById.getIfAbsent(nodeId, NO_ROW);
+		return row == NO_ROW ? "" : this.names.get(row);
+	}
+
+	/**
+	 * The node's note as stored, HTML and all.
+	 */
+	@Nullable
+	public String getNote(@Nonnull String nodeId) {
+		int row = this.rowsById.getIfAbsent(nodeId, NO_ROW);
+		return row == NO_ROW ? null : this.notes.get(row);
+	}
+
+	/**
+	 * The names of the node and its ancestors from the root down, skipping empty names, joined by {@code " > "}.
+	 */
+	public String getFullPath(@Nonnull String nodeId) {
+		int row = this.rowsById.getIfAbsent(nodeId, NO_ROW);
+		return row == NO_ROW ? "" : this.getPath(row);
+	}
+
+	private void addAll(Iterable<NodeContent> nodes) {
+		for (NodeContent node : nodes) {
+			if (this.rowsById.containsKey(node.getId())) {
+				continue;
+			}
+			this.rowsById.put(node.getId(), this.nodeIds.size());
+			this.nodeIds.add(node.getId());
+			this.parentIds.add(node.getParentId());
+			this.names.add(HtmlStripper.stripHtmlTags(node.getName()));
+			this.notes.add(node.getNote());
+		}
+	}
+
+	private void loadMissingAncestors() {
+		int loadedRows = 0;
+		while (loadedRows < this.nodeIds.size()) {
+			MutableSet<String> missingParentIds = Sets.mutable.empty();
+			for (int row = loadedRows; row < this.nodeIds.size(); row++) {
+				String parentId = this.parentIds.get(row);
+				if (parentId != null && !this.rowsById.containsKey(parentId)) {
+					missingParentIds.add(parentId);
+				}
+			}
+			loadedRows = this.nodeIds.size();
+			this.addAll(findByIds(missingParentIds));
+		}
+	}
+
+	private static NodeContentList findByIds(MutableSet<String> nodeIds) {
+		NodeContentList nodes = new NodeContentList();
+		for (RichIterable<String> chunk : nodeIds.chunk(CHUNK_SIZE)) {
+			nodes.addAll(NodeContentFinder.findMany(NodeContentFinder.id().in(chunk.toSet())));
+		}
+		return nodes;
+	}
+
+	private void resolve() {
+		int size = this.nodeIds.size();
+		this.parentRows = new int[size];
+		this.hasChildren = new boolean[size];
+		this.paths = new String[size];
+		for (int row = 0; row < size; row++) {
+			String parentId = this.parentIds.get(row);
+			int parentRow = parentId == null ? NO_ROW : this.rowsById.getIfAbsent(parentId, NO_ROW);
+			this.parentRows[row] = parentRow;
+			if (parentRow != NO_ROW) {
+				this.hasChildren[parentRow] = true;
+			}
+		}
+	}
+
+	/**
+	 * Walks up to the nearest ancestor with a memoized path, then builds the paths back down without recursing, since
+	 * outlines can be deeper than the stack.
+	 */
+	private String getPath(int row) {
+		if (this.paths[row] != null) {
+			return this.paths[row];
+		}
+
+		int[] unresolved = new int[8];
+		int depth = 0;
+		int current = row;
+		while (current != NO_ROW && this.paths[current] == null) {
+			if (depth == this.parentRows.length) {
+				throw new IllegalStateException("Cycle in the parents of node " + this.nodeIds.get(row));
+			}
+			if (depth == unresolved.length) {
+				unresolved = Arrays.copyOf(unresolved, depth * 2);
+			}
+			unresolved[depth++] = current;
+			current = this.parentRows[current];
+		}
+
+		String path = current == NO_ROW ? "" : this.paths[current];
+		for (int i = depth - 1; i >= 0; i--) {
+			int pathRow = unresolved[i];
+			path = append(path, this.names.get(pathRow));
+			if (this.hasChildren[pathRow]) {
+				this.paths[pathRow] = path;
+			}
+		}
+		return path;
+	}
+
+	private static String append(String path, String name) {
+		if (name.isEmpty()) {
+			return path;
+		}
+		return path.isEmpty() ? name : path + PATH_SEPARATOR + name;
+	}
+}
@@ -1,49 +1,39 @@
 package com.workflowy.embedding.generator;
 
-import com.workflowy.NodeContent;
-import com.workflowy.NodeContentFinder;
-import com.workflowy.embedding.util.HtmlStripper;
-import org.eclipse.collections.api.factory.Lists;
-import org.eclipse.collections.api.list.MutableList;
+import java.util.Objects;
 
-public class PathBuilder {
+import javax.annotation.Nonnull;
 
-	public String buildFullPath(String nodeId) {
-		MutableList<String> path = Lists.mutable.empty();
-		String currentId = nodeId;
-
-		while (currentId != null) {
-			NodeContent node = NodeContentFinder.findOne(NodeContentFinder.id().eq(currentId));
+import com.workflowy.embedding.util.HtmlStripper;
 
-			if (node == null) {
-				break;
-			}
+/**
+ * Builds the text embedded for a node, its path followed by its name and note, from a {@link NodeTreeIndex} that
+ * holds the node and its ancestors.
+ */
+public class PathBuilder {
 
-			String name = HtmlStripper.stripHtmlTags(node.getName());
-			if (name != null && !name.isEmpty()) {
-				path.add(0, name);
-			}
+	private final NodeTreeIndex index;
 
-			currentId = node.getParentId();
-		}
+	public PathBuilder(@Nonnull NodeTreeIndex index) {
+		this.index = Objects.requireNonNull(index);
+	}
 
-		return String.join(" > ", path);
+	public String buildFullPath(String nodeId) {
+		return this.index.getFullPath(nodeId);
 	}
 
 	public String buildTextContent(String nodeId) {
-		NodeContent node = NodeContentFinder.findOne(NodeContentFinder.id().eq(nodeId));
-
-		if (node == null) {
+		if (!this.index.contains(nodeId)) {
 			return "";
 		}
 
-		String name = HtmlStripper.stripHtmlTags(node.getName());
-		String note = node.getNote() != null ? HtmlStripper.stripHtmlTags(node.getNote()) : "";
+		String name = this.index.getName(nodeId);
+		String note = HtmlStripper.stripHtmlTags(this.index.getNote(nodeId));
 
 		if (note.isEmpty()) {
-			return name != null ? name : "";
+			return name;
 		} else {
-			return (name != null ? name : "") + "\n\n" + note;
+			return name + "\n\n" + note;
 		}
 	}
 
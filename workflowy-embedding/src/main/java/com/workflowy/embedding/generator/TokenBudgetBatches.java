@@ -0,0 +1,46 @@
+package com.workflowy.embedding.generator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.MutableList;
+
+/**
+ * Groups texts of similar token length into batches that each pad to at most a token budget.
+ *
+ * <p>A batch is padded to its longest text, so it costs its size times that length. Sorting by length keeps texts of
+ * similar length together, and each batch grows until one more text would exceed the budget. A text longer than the
+ * budget gets a batch of its own.
+ */
+final class TokenBudgetBatches {
+
+	private TokenBudgetBatches() {}
+
+	/**
+	 * @return the indexes into {@code tokenCounts} of each batch, shortest texts first
+	 */
+	static ImmutableList<int[]> split(int[] tokenCounts, int tokenBudget) {
+		int[] byLength = IntStream.range(0, tokenCounts.length)
+			.boxed()
+			.sorted(Comparator.comparingInt((index) -> tokenCounts[index]))
+			.mapToInt(Integer::intValue)
+			.toArray();
+
+		MutableList<int[]> batches = Lists.mutable.empty();
+		int batchStart = 0;
+		for (int i = 0; i < byLength.length; i++) {
+			int batchLength = tokenCounts[byLength[i]];
+			if (i > batchStart && (long) (i - batchStart + 1) * batchLength > tokenBudget) {
+				batches.add(Arrays.copyOfRange(byLength, batchStart, i));
+				batchStart = i;
+			}
+		}
+		if (batchStart < byLength.length) {
+			batches.add(Arrays.copyOfRange(byLength, batchStart, byLength.length));
+		}
+		return batches.toImmutable();
+	}
+}
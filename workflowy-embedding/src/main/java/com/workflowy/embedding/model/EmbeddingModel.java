@@ -7,6 +7,7 @@ public enum EmbeddingModel {
 		"minilm",
 		"sentence-transformers/all-MiniLM-L6-v2",
 		384,
+		256,
 		0.7,
 		ModelType.LOCAL,
 		Optional.empty(),
@@ -17,6 +18,7 @@ public enum EmbeddingModel {
 		"mpnet",
 		"sentence-transformers/all-mpnet-base-v2",
 		768,
+		384,
 		0.8,
 		ModelType.LOCAL,
 		Optional.empty(),
@@ -27,6 +29,7 @@ public enum EmbeddingModel {
 		"bge",
 		"BAAI/bge-large-en-v1.5",
 		1024,
+		512,
 		0.5,
 		ModelType.LOCAL,
 		Optional.of("Represent this sentence for searching relevant passages: "),
@@ -37,6 +40,7 @@ public enum EmbeddingModel {
 		"openai-small",
 		"text-embedding-3-small",
 		1536,
+		8191,
 		0.5,
 		ModelType.OPENAI,
 		Optional.empty(),
@@ -47,6 +51,7 @@ public enum EmbeddingModel {
 		"openai-large",
 		"text-embedding-3-large",
 		3072,
+		8191,
 		0.5,
 		ModelType.OPENAI,
 		Optional.empty(),
@@ -56,6 +61,7 @@ public enum EmbeddingModel {
 	private final String key;
 	private final String modelName;
 	private final int dimensions;
+	private final int maxSequenceLength;
 	private final double defaultThreshold;
 	private final ModelType modelType;
 	private final Optional<String> queryPrefix;
@@ -65,6 +71,7 @@ public enum EmbeddingModel {
 		String key,
 		String modelName,
 		int dimensions,
+		int maxSequenceLength,
 		double defaultThreshold,
 		ModelType modelType,
 		Optional<String> queryPrefix,
@@ -73,6 +80,7 @@ public enum EmbeddingModel {
 		this.key = key;
 		this.modelName = modelName;
 		this.dimensions = dimensions;
+		this.maxSequenceLength = maxSequenceLength;
 		this.defaultThreshold = defaultThreshold;
 		this.modelType = modelType;
 		this.queryPrefix = queryPrefix;
@@ -91,6 +99,13 @@ public enum EmbeddingModel {
 		return this.dimensions;
 	}
 
+	/**
+	 * The most tokens the model reads from one text, including special tokens. Longer texts are truncated.
+	 */
+	public int getMaxSequenceLength() {
+		return this.maxSequenceLength;
+	}
+
 	public double getDefaultThreshold() {
 		return this.defaultThreshold;
 	}
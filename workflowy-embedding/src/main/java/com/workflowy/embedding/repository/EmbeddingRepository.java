@@ -7,15 +7,19 @@ import java.sql.SQLException;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.workflowy.embedding.model.EmbeddingModel;
 import com.workflowy.embedding.model.NodeEmbedding;
 import com.workflowy.embedding.search.SearchResult;
 import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.factory.Maps;
 import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.list.MutableList;
+import org.eclipse.collections.api.map.MutableMap;
 import org.eclipse.collections.api.set.MutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +47,17 @@ public class EmbeddingRepository {
 		WHERE model = ? AND system_to = ?
 		""";
 
+	private static final String GET_CHANGE_WATERMARKS_SQL = """
+		SELECT user_id, import_timestamp FROM change_watermarks
+		WHERE model = ?
+		""";
+
+	private static final String SAVE_CHANGE_WATERMARK_SQL = """
+		INSERT INTO change_watermarks (model, user_id, import_timestamp)
+		VALUES (?, ?, ?)
+		ON CONFLICT (model, user_id) DO UPDATE SET import_timestamp = excluded.import_timestamp
+		""";
+
 	private static final String SEARCH_SQL = """
 		SELECT node_id, embedding,
 		       vec_distance_cosine(embedding, ?) as distance
@@ -128,6 +143,57 @@ public class EmbeddingRepository {
 		}
 	}
 
+	public void terminateBatch(Collection<String> nodeIds, EmbeddingModel model) throws SQLException {
+		Connection conn = this.sqliteVecConnection.getConnection();
+		String now = DATETIME_FORMATTER.format(Instant.now().atZone(ZoneOffset.UTC));
+
+		try (PreparedStatement updateStmt = conn.prepareStatement(UPDATE_SYSTEM_TO_SQL)) {
+			for (String nodeId : nodeIds) {
+				updateStmt.setString(1, now);
+				updateStmt.setString(2, nodeId);
+				updateStmt.setString(3, model.getKey());
+				updateStmt.setString(4, FAR_FUTURE_DATE);
+				updateStmt.addBatch();
+			}
+			updateStmt.executeBatch();
+		}
+	}
+
+	/**
+	 * The timestamp of each user's last import whose node content changes have been embedded with {@code model}, empty
+	 * before the first complete run.
+	 */
+	public MutableMap<String, Instant> getChangeWatermarks(EmbeddingModel model) throws SQLException {
+		MutableMap<String, Instant> changeWatermarks = Maps.mutable.empty();
+		Connection conn = this.sqliteVecConnection.getConnection();
+
+		try (PreparedStatement stmt = conn.prepareStatement(GET_CHANGE_WATERMARKS_SQL)) {
+			stmt.setString(1, model.getKey());
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					changeWatermarks.put(rs.getString("user_id"), Instant.parse(rs.getString("import_timestamp")));
+				}
+			}
+		}
+
+		return changeWatermarks;
+	}
+
+	public void saveChangeWatermarks(EmbeddingModel model, Map<String, Instant> changeWatermarks) throws SQLException {
+		Connection conn = this.sqliteVecConnection.getConnection();
+
+		try (PreparedStatement stmt = conn.prepareStatement(SAVE_CHANGE_WATERMARK_SQL)) {
+			for (Map.Entry<String, Instant> changeWatermark : changeWatermarks.entrySet()) {
+				stmt.setString(1, model.getKey());
+				stmt.setString(2, changeWatermark.getKey());
+				stmt.setString(3, changeWatermark.getValue().toString());
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+	}
+
 	public Set<String> getExistingNodeIds(EmbeddingModel model) throws SQLException {
 		MutableSet<String> existingIds = Sets.mutable.empty();
 		Connection conn = this.sqliteVecConnection.getConnection();
@@ -33,6 +33,15 @@ public class SqliteVecConnection implements AutoCloseable {
 		ON node_embeddings (model, system_to)
 		""";
 
+	private static final String CREATE_WATERMARK_TABLE_SQL = """
+		CREATE TABLE IF NOT EXISTS change_watermarks (
+		    model TEXT NOT NULL,
+		    user_id TEXT NOT NULL,
+		    import_timestamp TEXT NOT NULL,
+		    PRIMARY KEY (model, user_id)
+		)
+		""";
+
 	private final Connection connection;
 	private final String databasePath;
 	private boolean sqliteVecLoaded;
@@ -50,6 +59,7 @@ public class SqliteVecConnection implements AutoCloseable {
 		try (Statement stmt = this.connection.createStatement()) {
 			stmt.execute(CREATE_TABLE_SQL);
 			stmt.execute(CREATE_INDEX_SQL);
+			stmt.execute(CREATE_WATERMARK_TABLE_SQL);
 		}
 
 		LOGGER.info("SQLite database initialized at: {}", this.databasePath);
@@ -3,9 +3,8 @@ package com.workflowy.embedding.search;
 import java.sql.SQLException;
 import java.util.List;
 
-import com.workflowy.NodeContent;
-import com.workflowy.NodeContentFinder;
 import com.workflowy.embedding.engine.EmbeddingEngine;
+import com.workflowy.embedding.generator.NodeTreeIndex;
 import com.workflowy.embedding.generator.PathBuilder;
 import com.workflowy.embedding.model.EmbeddingModel;
 import com.workflowy.embedding.repository.EmbeddingRepository;
@@ -19,12 +18,10 @@ public class SearchEngine {
 
 	private final EmbeddingEngine engine;
 	private final EmbeddingRepository repository;
-	private final PathBuilder pathBuilder;
 
 	public SearchEngine(EmbeddingEngine engine, EmbeddingRepository repository) {
 		this.engine = engine;
 		this.repository = repository;
-		this.pathBuilder = new PathBuilder();
 	}
 
 	public List<SearchResult> search(String query, int limit, Double threshold) throws SQLException {
@@ -36,21 +33,27 @@ public class SearchEngine {
 
 		List<SearchResult> results = this.repository.search(queryEmbedding, model, limit, effectiveThreshold);
 
+		NodeTreeIndex index = NodeTreeIndex.loadByIds(results.stream().map(SearchResult::getNodeId).toList());
+		PathBuilder pathBuilder = new PathBuilder(index);
 		for (SearchResult result : results) {
-			this.enrichResult(result);
+			enrichResult(result, index, pathBuilder);
 		}
 
 		return results;
 	}
 
-	private void enrichResult(SearchResult result) {
-		NodeContent node = NodeContentFinder.findOne(NodeContentFinder.id().eq(result.getNodeId()));
-
-		if (node != null) {
-			result.setName(HtmlStripper.stripHtmlTags(node.getName()));
-			result.setNote(node.getNote() != null ? HtmlStripper.stripHtmlTags(node.getNote()) : null);
-			result.setFullPath(this.pathBuilder.buildFullPath(result.getNodeId()));
-			result.setTextContent(this.pathBuilder.buildTextContent(result.getNodeId()));
+	/**
+	 * Fills in a result from an index of every result node and its ancestors, loaded with a few queries for the whole
+	 * page of results.
+	 */
+	private static void enrichResult(SearchResult result, NodeTreeIndex index, PathBuilder pathBuilder) {
+		String nodeId = result.getNodeId();
+		if (index.contains(nodeId)) {
+			String note = index.getNote(nodeId);
+			result.setName(index.getName(nodeId));
+			result.setNote(note != null ? HtmlStripper.stripHtmlTags(note) : null);
+			result.setFullPath(pathBuilder.buildFullPath(nodeId));
+			result.setTextContent(pathBuilder.buildTextContent(nodeId));
 		}
 	}
 }
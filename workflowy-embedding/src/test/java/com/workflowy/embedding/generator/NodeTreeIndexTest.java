@@ -0,0 +1,87 @@
+package com.workflowy.embedding.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.workflowy.NodeContent;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeTreeIndexTest {
+
+	@Test
+	void buildsPathsFromTheRootDown() {
+		NodeTreeIndex index = NodeTreeIndex.of(List.of(
+			node("launch", "projects", "Launch", "<i>Ship</i> it"),
+			node("projects", "work", "<b>Projects</b>", null),
+			node("work", null, "Work", null)
+		));
+
+		assertEquals("Work > Projects > Launch", index.getFullPath("launch"));
+		assertEquals("Work > Projects", index.getFullPath("projects"));
+		assertEquals("Work > Projects > Launch", index.getFullPath("launch"));
+		assertEquals("", index.getFullPath("unknown"));
+
+		PathBuilder pathBuilder = new PathBuilder(index);
+		assertEquals("Work > Projects > Launch\n\nLaunch\n\nShip it", pathBuilder.buildEmbeddingText("launch"));
+		assertEquals("", pathBuilder.buildEmbeddingText("unknown"));
+	}
+
+	@Test
+	void leavesOutEmptyNames() {
+		NodeTreeIndex index = NodeTreeIndex.of(List.of(
+			node("work", null, "Work", null),
+			node("blank", "work", "<br>", null),
+			node("task", "blank", "Task", null)
+		));
+
+		assertEquals("Work > Task", index.getFullPath("task"));
+		assertEquals("Work", index.getFullPath("blank"));
+	}
+
+	@Test
+	void endsThePathAtAMissingParent() {
+		NodeTreeIndex index = NodeTreeIndex.of(List.of(
+			node("child", "missing", "Child", null),
+			node("leaf", "child", "Leaf", null)
+		));
+
+		assertEquals("Child > Leaf", index.getFullPath("leaf"));
+	}
+
+	@Test
+	void walksDeepOutlinesWithoutRecursing() {
+		List<NodeContent> nodes = new ArrayList<>();
+		nodes.add(node("node-0", null, "Root", null));
+		for (int depth = 1; depth < 100_000; depth++) {
+			nodes.add(node("node-" + depth, "node-" + (depth - 1), "", null));
+		}
+		nodes.add(node("leaf", "node-99999", "Leaf", null));
+		NodeTreeIndex index = NodeTreeIndex.of(nodes);
+
+		assertEquals("Root > Leaf", index.getFullPath("leaf"));
+		assertEquals("Root", index.getFullPath("node-50000"));
+	}
+
+	@Test
+	void failsOnACycle() {
+		NodeTreeIndex index = NodeTreeIndex.of(List.of(
+			node("a", "b", "A", null),
+			node("b", "a", "B", null)
+		));
+
+		assertThrows(IllegalStateException.class, () -> index.getFullPath("a"));
+	}
+
+	private static NodeContent node(String id, @Nullable String parentId, String name, @Nullable String note) {
+		NodeContent node = new NodeContent();
+		node.setId(id);
+		node.setParentId(parentId);
+		node.setName(name);
+		node.setNote(note);
+		return node;
+	}
+}
@@ -0,0 +1,32 @@
+package com.workflowy.embedding.generator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBudgetBatchesTest {
+
+	@Test
+	void givesATextLongerThanTheBudgetItsOwnBatch() {
+		assertEquals(List.of("[2, 0]", "[1]"), split(new int[] {5, 50, 3}, 20));
+		assertEquals(List.of("[0]"), split(new int[] {50}, 20));
+	}
+
+	@Test
+	void fillsBatchesUpToExactlyTheBudget() {
+		assertEquals(List.of("[0, 1]", "[2, 3]", "[4]"), split(new int[] {4, 4, 4, 4, 4}, 8));
+		assertEquals(List.of("[1, 2, 0]"), split(new int[] {3, 1, 2}, 9));
+	}
+
+	@Test
+	void splitsNoTextsIntoNoBatches() {
+		assertEquals(List.of(), split(new int[0], 8));
+	}
+
+	private static List<String> split(int[] tokenCounts, int tokenBudget) {
+		return TokenBudgetBatches.split(tokenCounts, tokenBudget).collect(Arrays::toString).castToList();
+	}
+}
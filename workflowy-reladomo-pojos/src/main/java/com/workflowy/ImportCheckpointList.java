@@ -0,0 +1,24 @@
+package com.workflowy;
+
+import java.util.*;
+
+import com.gs.fw.finder.Operation;
+
+public class ImportCheckpointList extends ImportCheckpointListAbstract {
+
+	public ImportCheckpointList() {
+		super();
+	}
+
+	public ImportCheckpointList(int initialSize) {
+		super(initialSize);
+	}
+
+	public ImportCheckpointList(Collection c) {
+		super(c);
+	}
+
+	public ImportCheckpointList(Operation operation) {
+		super(operation);
+	}
+}
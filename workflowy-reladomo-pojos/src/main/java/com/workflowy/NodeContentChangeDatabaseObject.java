@@ -0,0 +1,3 @@
+package com.workflowy;
+
+public class NodeContentChangeDatabaseObject extends NodeContentChangeDatabaseObjectAbstract {}
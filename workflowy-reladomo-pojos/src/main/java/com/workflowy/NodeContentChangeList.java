@@ -0,0 +1,24 @@
+package com.workflowy;
+
+import java.util.*;
+
+import com.gs.fw.finder.Operation;
+
+public class NodeContentChangeList extends NodeContentChangeListAbstract {
+
+	public NodeContentChangeList() {
+		super();
+	}
+
+	public NodeContentChangeList(int initialSize) {
+		super(initialSize);
+	}
+
+	public NodeContentChangeList(Collection c) {
+		super(c);
+	}
+
+	public NodeContentChangeList(Operation operation) {
+		super(operation);
+	}
+}
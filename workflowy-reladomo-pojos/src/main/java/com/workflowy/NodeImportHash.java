@@ -0,0 +1,10 @@
+package com.workflowy;
+
+public class NodeImportHash extends NodeImportHashAbstract {
+
+	public NodeImportHash() {
+		super();
+		// You must not modify this constructor. Mithra calls this internally.
+		// You can call this constructor. You can also add new constructors.
+	}
+}
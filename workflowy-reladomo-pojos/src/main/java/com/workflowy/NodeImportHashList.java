@@ -0,0 +1,24 @@
+package com.workflowy;
+
+import java.util.*;
+
+import com.gs.fw.finder.Operation;
+
+public class NodeImportHashList extends NodeImportHashListAbstract {
+
+	public NodeImportHashList() {
+		super();
+	}
+
+	public NodeImportHashList(int initialSize) {
+		super(initialSize);
+	}
+
+	public NodeImportHashList(Collection c) {
+		super(c);
+	}
+
+	public NodeImportHashList(Operation operation) {
+		super(operation);
+	}
+}